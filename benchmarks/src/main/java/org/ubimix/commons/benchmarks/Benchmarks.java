@@ -0,0 +1,40 @@
+/**
+ * 
+ */
+package org.ubimix.commons.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs cursor benchmarks. All standard JMH command line options are accepted
+ * (for example a regular expression selecting benchmarks to run). The GC
+ * profiler is always enabled so results contain both the throughput and the
+ * allocation rate ("gc.alloc.rate.norm" is the number of bytes allocated per
+ * operation).
+ * 
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar MergeCursorBenchmark
+ * </pre>
+ * 
+ * @author kotelnikov
+ */
+public class Benchmarks {
+
+    public static void main(String[] args)
+        throws RunnerException,
+        CommandLineOptionException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+            .parent(cmd)
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,78 @@
+/**
+ * 
+ */
+package org.ubimix.commons.benchmarks;
+
+import java.util.Arrays;
+
+/**
+ * Generators of benchmark data. All generators are deterministic so each run
+ * works with the same data.
+ * 
+ * @author kotelnikov
+ */
+public class Data {
+
+    /**
+     * Returns a sorted array of values where each value is repeated
+     * "groupSize" times.
+     */
+    public static Integer[] newGroupedArray(int size, int groupSize) {
+        Integer[] array = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            array[i] = i / groupSize;
+        }
+        return array;
+    }
+
+    /**
+     * Returns a pair of ordered arrays of the given size. The "overlap" is
+     * the part of values existing in both arrays.
+     */
+    public static Integer[][] newOverlappingArrays(int size, double overlap) {
+        int common = (int) (size * overlap);
+        Integer[] first = new Integer[size];
+        Integer[] second = new Integer[size];
+        int value = 0;
+        for (int i = 0; i < size; i++) {
+            if (i < common) {
+                first[i] = second[i] = value++;
+            } else {
+                first[i] = value++;
+                second[i] = value++;
+            }
+        }
+        Arrays.sort(first);
+        Arrays.sort(second);
+        return new Integer[][] { first, second };
+    }
+
+    /**
+     * Returns an array of the given size with ordered numbers starting from
+     * "first" with the specified step.
+     */
+    public static Integer[] newSortedArray(int size, int first, int step) {
+        Integer[] array = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            array[i] = first + i * step;
+        }
+        return array;
+    }
+
+    /**
+     * Splits the given number of ordered values between the specified number
+     * of arrays. Each array contains an ordered sequence of values.
+     */
+    public static Integer[][] newSortedArrays(int count, int size) {
+        Integer[][] result = new Integer[count][];
+        int len = Math.max(1, size / count);
+        for (int i = 0; i < count; i++) {
+            result[i] = newSortedArray(len, i, count);
+        }
+        return result;
+    }
+
+    private Data() {
+    }
+
+}
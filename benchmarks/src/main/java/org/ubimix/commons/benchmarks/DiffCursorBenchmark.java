@@ -0,0 +1,83 @@
+/**
+ * 
+ */
+package org.ubimix.commons.benchmarks;
+
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.ubimix.commons.cursor.DefaultComparator;
+import org.ubimix.commons.cursor.DiffCursor;
+import org.ubimix.commons.cursor.DiffCursor.DiffCursorListener;
+import org.ubimix.commons.cursor.IteratorBasedCursor;
+
+/**
+ * Compares two sorted sequences of 100000 values with the given part of
+ * common values.
+ * 
+ * @author kotelnikov
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiffCursorBenchmark {
+
+    private static final int SIZE = 100000;
+
+    private Comparator<Integer> fComparator = DefaultComparator
+        .<Integer> newComparator();
+
+    private Integer[][] fInputs;
+
+    @Param({ "0", "0.5", "0.9", "1" })
+    public double overlap;
+
+    @Benchmark
+    public void diff(final Blackhole blackhole) {
+        DiffCursor<Integer, RuntimeException> cursor = new DiffCursor<Integer, RuntimeException>(
+            fComparator,
+            new IteratorBasedCursor<Integer, RuntimeException>(fInputs[0]),
+            new IteratorBasedCursor<Integer, RuntimeException>(fInputs[1]),
+            new DiffCursorListener<Integer, RuntimeException>() {
+                @Override
+                public void onValueAdded(Integer value) {
+                    blackhole.consume(value);
+                }
+
+                @Override
+                public void onValueRemoved(Integer value) {
+                    blackhole.consume(value);
+                }
+
+                @Override
+                public void onValueUpdated(Integer first, Integer second) {
+                    blackhole.consume(first);
+                }
+            });
+        while (cursor.loadNext()) {
+            blackhole.consume(cursor.getCurrent());
+        }
+        cursor.close();
+    }
+
+    @Setup
+    public void setup() {
+        fInputs = Data.newOverlappingArrays(SIZE, overlap);
+    }
+
+}
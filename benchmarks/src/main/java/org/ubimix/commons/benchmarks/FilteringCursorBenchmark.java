@@ -0,0 +1,88 @@
+/**
+ * 
+ */
+package org.ubimix.commons.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.ubimix.commons.cursor.FilteringCursor;
+import org.ubimix.commons.cursor.ICursor;
+import org.ubimix.commons.cursor.IteratorBasedCursor;
+
+/**
+ * Reads 100000 values through a chain of filters. Each filter removes values
+ * divisible by its own prime number, so every filter of the chain is
+ * evaluated for most of the values.
+ * 
+ * @author kotelnikov
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilteringCursorBenchmark {
+
+    private static final int[] PRIMES = {
+        2,
+        3,
+        5,
+        7,
+        11,
+        13,
+        17,
+        19,
+        23,
+        29,
+        31,
+        37,
+        41,
+        43,
+        47,
+        53 };
+
+    private static final int SIZE = 100000;
+
+    @Param({ "1", "4", "16" })
+    public int chain;
+
+    private Integer[] fInput;
+
+    @Benchmark
+    public void filter(Blackhole blackhole) {
+        ICursor<Integer, RuntimeException> cursor = new IteratorBasedCursor<Integer, RuntimeException>(
+            fInput);
+        for (int i = 0; i < chain; i++) {
+            final int prime = PRIMES[i];
+            cursor = new FilteringCursor<Integer, RuntimeException>(cursor) {
+                @Override
+                protected boolean accept(Integer current) {
+                    return current % prime != 0;
+                }
+            };
+        }
+        while (cursor.loadNext()) {
+            blackhole.consume(cursor.getCurrent());
+        }
+        cursor.close();
+    }
+
+    @Setup
+    public void setup() {
+        fInput = Data.newSortedArray(SIZE, 0, 1);
+    }
+
+}
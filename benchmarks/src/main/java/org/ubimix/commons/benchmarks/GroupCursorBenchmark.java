@@ -0,0 +1,66 @@
+/**
+ * 
+ */
+package org.ubimix.commons.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.ubimix.commons.cursor.GroupCursor;
+import org.ubimix.commons.cursor.GroupCursor.GroupListener;
+import org.ubimix.commons.cursor.IteratorBasedCursor;
+
+/**
+ * Groups 100000 sorted values with the given number of equal values in each
+ * group.
+ * 
+ * @author kotelnikov
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GroupCursorBenchmark {
+
+    private static final int SIZE = 100000;
+
+    private Integer[] fInput;
+
+    @Param({ "1", "10", "1000" })
+    public int groupSize;
+
+    @Benchmark
+    public void group(final Blackhole blackhole) {
+        GroupCursor<Integer, RuntimeException> cursor = new GroupCursor<Integer, RuntimeException>(
+            new IteratorBasedCursor<Integer, RuntimeException>(fInput),
+            new GroupListener<Integer, RuntimeException>() {
+                @Override
+                public void beginGroup(Integer value) {
+                    blackhole.consume(value);
+                }
+            });
+        while (cursor.loadNext()) {
+            blackhole.consume(cursor.getCurrent());
+        }
+        cursor.close();
+    }
+
+    @Setup
+    public void setup() {
+        fInput = Data.newGroupedArray(SIZE, groupSize);
+    }
+
+}
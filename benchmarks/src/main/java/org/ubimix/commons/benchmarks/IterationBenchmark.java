@@ -0,0 +1,90 @@
+/**
+ * 
+ */
+package org.ubimix.commons.benchmarks;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.ubimix.commons.cursor.IteratorBasedCursor;
+import org.ubimix.commons.iterator.CursorAdapter;
+import org.ubimix.commons.iterator.ShiftIterator;
+
+/**
+ * Measures the overhead of cursors and iterator adapters compared with a
+ * plain iterator over 100000 values.
+ * 
+ * @author kotelnikov
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IterationBenchmark {
+
+    private static final int SIZE = 100000;
+
+    private List<Integer> fInput;
+
+    @Benchmark
+    public void cursor(Blackhole blackhole) {
+        IteratorBasedCursor<Integer, RuntimeException> cursor = new IteratorBasedCursor<Integer, RuntimeException>(
+            fInput);
+        while (cursor.loadNext()) {
+            blackhole.consume(cursor.getCurrent());
+        }
+        cursor.close();
+    }
+
+    @Benchmark
+    public void cursorAdapter(Blackhole blackhole) {
+        CursorAdapter<Integer, RuntimeException> iterator = new CursorAdapter<Integer, RuntimeException>(
+            new IteratorBasedCursor<Integer, RuntimeException>(fInput));
+        while (iterator.hasNext()) {
+            blackhole.consume(iterator.next());
+        }
+        iterator.close();
+    }
+
+    @Benchmark
+    public void iterator(Blackhole blackhole) {
+        for (Integer value : fInput) {
+            blackhole.consume(value);
+        }
+    }
+
+    @Setup
+    public void setup() {
+        fInput = Arrays.asList(Data.newSortedArray(SIZE, 0, 1));
+    }
+
+    @Benchmark
+    public void shiftIterator(Blackhole blackhole) {
+        final Iterator<Integer> input = fInput.iterator();
+        ShiftIterator<Integer> iterator = new ShiftIterator<Integer>() {
+            @Override
+            protected Integer shiftItem() {
+                return input.hasNext() ? input.next() : null;
+            }
+        };
+        while (iterator.hasNext()) {
+            blackhole.consume(iterator.next());
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+/**
+ * 
+ */
+package org.ubimix.commons.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.ubimix.commons.cursor.DefaultComparator;
+import org.ubimix.commons.cursor.ICursor;
+import org.ubimix.commons.cursor.IteratorBasedCursor;
+import org.ubimix.commons.cursor.MergeCursor;
+
+/**
+ * Merges 100000 values split between the given number of sorted inputs.
+ * 
+ * @author kotelnikov
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MergeCursorBenchmark {
+
+    private static final int SIZE = 100000;
+
+    private Comparator<Integer> fComparator = DefaultComparator
+        .<Integer> newComparator();
+
+    @Param({ "2", "10", "100", "1000", "10000" })
+    public int fanIn;
+
+    private Integer[][] fInputs;
+
+    @Benchmark
+    public void merge(Blackhole blackhole) {
+        List<ICursor<Integer, RuntimeException>> cursors = new ArrayList<ICursor<Integer, RuntimeException>>();
+        for (Integer[] input : fInputs) {
+            cursors.add(new IteratorBasedCursor<Integer, RuntimeException>(
+                input));
+        }
+        MergeCursor<Integer, RuntimeException> cursor = new MergeCursor<Integer, RuntimeException>(
+            fComparator,
+            cursors);
+        while (cursor.loadNext()) {
+            blackhole.consume(cursor.getCurrent());
+        }
+        cursor.close();
+    }
+
+    @Setup
+    public void setup() {
+        fInputs = Data.newSortedArrays(fanIn, SIZE);
+    }
+
+}
@@ -0,0 +1,83 @@
+/**
+ * 
+ */
+package org.ubimix.commons.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.ubimix.commons.cursor.IteratorBasedCursor;
+import org.ubimix.commons.cursor.ListCursor;
+import org.ubimix.commons.cursor.RangeCursor;
+
+/**
+ * Reads 100 values starting from the given offset in a sequence of 1000000
+ * values. The "iterator" benchmark skips values one by one; the "list"
+ * benchmark pushes the offset down to a seekable cursor.
+ * 
+ * @author kotelnikov
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RangeCursorBenchmark {
+
+    private static final int COUNT = 100;
+
+    private static final int SIZE = 1000000;
+
+    private Integer[] fInput;
+
+    @Param({ "0", "1000", "100000", "999000" })
+    public int offset;
+
+    @Benchmark
+    public void iterator(Blackhole blackhole) {
+        read(
+            new RangeCursor<Integer, RuntimeException>(
+                new IteratorBasedCursor<Integer, RuntimeException>(fInput),
+                offset,
+                COUNT),
+            blackhole);
+    }
+
+    @Benchmark
+    public void list(Blackhole blackhole) {
+        read(
+            new RangeCursor<Integer, RuntimeException>(
+                new ListCursor<Integer, RuntimeException>(Arrays.asList(fInput)),
+                offset,
+                COUNT),
+            blackhole);
+    }
+
+    private void read(
+        RangeCursor<Integer, RuntimeException> cursor,
+        Blackhole blackhole) {
+        while (cursor.loadNext()) {
+            blackhole.consume(cursor.getCurrent());
+        }
+        cursor.close();
+    }
+
+    @Setup
+    public void setup() {
+        fInput = Data.newSortedArray(SIZE, 0, 1);
+    }
+
+}
@@ -0,0 +1,77 @@
+/**
+ * 
+ */
+package org.ubimix.commons.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.ubimix.commons.cursor.ICursor;
+import org.ubimix.commons.cursor.IteratorBasedCursor;
+import org.ubimix.commons.cursor.TreeCursor;
+
+/**
+ * Visits all nodes of a virtual tree with the given depth and breadth. Nodes
+ * are not stored anywhere; children of each node are generated on demand.
+ * 
+ * @author kotelnikov
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TreeCursorBenchmark {
+
+    @Param({ "2", "10" })
+    public int breadth;
+
+    @Param({ "3", "5" })
+    public int depth;
+
+    private Integer[] fLevels;
+
+    @Setup
+    public void setup() {
+        // Node values are their levels in the tree
+        fLevels = Data.newSortedArray(depth + 1, 0, 1);
+    }
+
+    @Benchmark
+    public void visit(Blackhole blackhole) {
+        TreeCursor<Integer, RuntimeException> cursor = new TreeCursor<Integer, RuntimeException>(
+            fLevels[0]) {
+            @Override
+            protected ICursor<Integer, RuntimeException> getChildren(
+                Integer node) {
+                int level = node + 1;
+                if (level > depth) {
+                    return null;
+                }
+                Integer[] children = new Integer[breadth];
+                for (int i = 0; i < breadth; i++) {
+                    children[i] = fLevels[level];
+                }
+                return new IteratorBasedCursor<Integer, RuntimeException>(
+                    children);
+            }
+        };
+        while (cursor.loadNext()) {
+            blackhole.consume(cursor.getCurrent());
+        }
+        cursor.close();
+    }
+
+}
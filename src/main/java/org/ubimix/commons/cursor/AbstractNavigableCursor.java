@@ -0,0 +1,161 @@
+package org.ubimix.commons.cursor;
+
+import java.util.Comparator;
+import java.util.Iterator;
+
+/**
+ * This is a common super-class for cursors over navigable collections (see
+ * {@link java.util.NavigableSet} and {@link java.util.NavigableMap}). These
+ * cursors know the number of their elements and seek keys in logarithmic time
+ * using "tail" views of the underlying collections.
+ * 
+ * @author kotelnikov
+ * @param <T> the type of elements returned by this cursor
+ * @param <K> the type of keys used to order elements
+ * @param <E> the type of exceptions thrown by this cursor
+ */
+public abstract class AbstractNavigableCursor<T, K, E extends Exception>
+    implements
+    ISeekableCursor<T, E>,
+    ISizedCursor<T, E> {
+
+    private Comparator<? super K> fComparator;
+
+    /**
+     * The number of elements loaded after the last seek operation
+     */
+    private int fCounter;
+
+    private T fCurrent;
+
+    private Iterator<T> fIterator;
+
+    /**
+     * The key defining the position of this cursor. The next element returned
+     * by this cursor is greater than this key (or equal to this key if the
+     * cursor was moved by the {@link #seekKey(Object)} method and no elements
+     * were loaded after that).
+     */
+    private K fPosition;
+
+    /**
+     * The key of the last seek operation
+     */
+    private K fSeekKey;
+
+    /**
+     * The number of elements available after the last seek operation or -1
+     * if this number is not calculated yet
+     */
+    private int fSize;
+
+    public AbstractNavigableCursor(Comparator<? super K> comparator, int size) {
+        fComparator = comparator != null ? comparator : DefaultComparator
+            .<K> newComparator();
+        fSize = size;
+    }
+
+    public void close() throws E {
+        fIterator = null;
+        fCurrent = null;
+        fSize = fCounter = 0;
+    }
+
+    public T getCurrent() {
+        return fCurrent;
+    }
+
+    /**
+     * Returns the key of the specified element
+     * 
+     * @param value the element
+     * @return the key of the given element
+     */
+    protected abstract K getKey(T value);
+
+    /**
+     * Returns the number of elements equal or greater than the given key
+     * 
+     * @param from the key
+     * @return the number of elements equal or greater than the given key
+     */
+    protected abstract int getRemaining(K from);
+
+    /**
+     * Returns the number of remaining elements. Note that after the
+     * {@link #seek(Object)} calls this number is re-calculated which could
+     * take linear time for some collections.
+     * 
+     * @see org.ubimix.commons.cursor.ISizedCursor#getRemaining()
+     */
+    public int getRemaining() {
+        if (fSize < 0) {
+            fSize = getRemaining(fSeekKey);
+        }
+        return fSize - fCounter;
+    }
+
+    /**
+     * Returns an iterator over all elements with keys equal or greater than
+     * the specified one. If the given key is <code>null</code> then this method
+     * should return an iterator over all elements.
+     * 
+     * @param from the key of the first element to return
+     * @return an iterator over elements
+     */
+    protected abstract Iterator<T> iterator(K from);
+
+    public boolean loadNext() throws E {
+        if (fIterator == null) {
+            if (fSize == 0) {
+                return false;
+            }
+            fIterator = iterator(null);
+        }
+        if (!fIterator.hasNext()) {
+            fCurrent = null;
+            return false;
+        }
+        fCurrent = fIterator.next();
+        fPosition = getKey(fCurrent);
+        fCounter++;
+        return true;
+    }
+
+    public boolean seek(T key) throws E {
+        return seekKey(getKey(key));
+    }
+
+    /**
+     * Moves this cursor to the first element with the key equal or greater
+     * than the specified one.
+     * 
+     * @param key the key to seek
+     * @return <code>true</code> if there is such an element
+     * @throws E
+     */
+    public boolean seekKey(K key) throws E {
+        fCurrent = null;
+        if (fIterator != null
+            && fPosition != null
+            && fComparator.compare(key, fPosition) <= 0) {
+            // The next element is already after the given key
+            return fIterator.hasNext();
+        }
+        fIterator = iterator(key);
+        fPosition = fSeekKey = key;
+        fSize = -1;
+        fCounter = 0;
+        return fIterator.hasNext();
+    }
+
+    public int skip(int count) throws E {
+        int result = 0;
+        while (result < count && loadNext()) {
+            result++;
+        }
+        fCurrent = null;
+        return result;
+    }
+
+}
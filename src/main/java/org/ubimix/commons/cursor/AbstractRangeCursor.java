@@ -14,7 +14,9 @@ package org.ubimix.commons.cursor;
  */
 public abstract class AbstractRangeCursor<T, E extends Exception>
     implements
-    ICursor<T, E> {
+    IBatchCursor<T, E> {
+
+    private IBatchCursor<T, E> fBatchCursor;
 
     private T fCurrent;
 
@@ -29,11 +31,13 @@ public abstract class AbstractRangeCursor<T, E extends Exception>
      */
     public AbstractRangeCursor(ICursor<T, E> cursor) {
         fCursor = cursor;
+        fBatchCursor = BatchCursorAdapter.toBatchCursor(cursor);
     }
 
     public void close() throws E {
         fCursor.close();
         fCursor = null;
+        fBatchCursor = null;
         fCurrent = null;
     }
 
@@ -50,6 +54,33 @@ public abstract class AbstractRangeCursor<T, E extends Exception>
         return fCurrent;
     }
 
+    /**
+     * Returns the underlying cursor
+     */
+    protected ICursor<T, E> getCursor() {
+        return fCursor;
+    }
+
+    /**
+     * Returns the maximal number of elements which could follow the element
+     * with the specified position in this range. This value is used to avoid
+     * loading of unnecessary elements by batches.
+     * 
+     * @param pos the position of the element
+     * @return the maximal number of elements after the specified position
+     */
+    protected int getMaxCount(int pos) {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns <code>true</code> if elements were already loaded from the
+     * underlying cursor.
+     */
+    protected boolean isStarted() {
+        return fPos != -1;
+    }
+
     protected abstract boolean isAfter(int pos, ICursor<T, E> cursor) throws E;
 
     protected abstract boolean isBefore(int pos, ICursor<T, E> cursor) throws E;
@@ -61,6 +92,7 @@ public abstract class AbstractRangeCursor<T, E extends Exception>
         }
         boolean result = true;
         if (fPos == -1) {
+            fPos += seekStart(fCursor);
             // Skip all entries until the start position
             while (result = doLoadNext()) {
                 if (result = !isBefore(fPos, fCursor)) {
@@ -80,6 +112,64 @@ public abstract class AbstractRangeCursor<T, E extends Exception>
         return result;
     }
 
+    /**
+     * Loads elements by batches from the underlying cursor. Note that the
+     * {@link #isAfter(int, ICursor)} method is called for each element of the
+     * batch so this method should use the {@link #getCurrent()} value and not
+     * the current value of the given cursor.
+     * 
+     * @see org.ubimix.commons.cursor.IBatchCursor#loadNext(Object[], int, int)
+     */
+    public int loadNext(T[] buffer, int offset, int len) throws E {
+        int count = 0;
+        if (len > 0 && fPos == -1) {
+            // The first element is loaded individually to skip all entries
+            // before the beginning of the range
+            if (!loadNext()) {
+                return 0;
+            }
+            buffer[offset] = fCurrent;
+            count++;
+        }
+        while (count < len && !fFinished) {
+            int pos = offset + count;
+            int max = Math.min(len - count, getMaxCount(fPos));
+            int loaded = max > 0 ? fBatchCursor.loadNext(buffer, pos, max) : 0;
+            if (loaded == 0) {
+                break;
+            }
+            for (int i = pos; i < pos + loaded; i++) {
+                fPos++;
+                fCurrent = buffer[i];
+                if (!fFinished) {
+                    fFinished = isAfter(fPos, fCursor);
+                }
+                if (fFinished) {
+                    buffer[i] = null;
+                } else {
+                    count++;
+                }
+            }
+        }
+        fCurrent = count > 0 ? buffer[offset + count - 1] : null;
+        return count;
+    }
+
+    /**
+     * This method is called before loading of the first element and it gives
+     * an opportunity to move the underlying cursor directly to the beginning
+     * of the range without loading all skipped elements (see
+     * {@link ISeekableCursor}). The {@link #isBefore(int, ICursor)} method is
+     * still called for all elements returned by the cursor after this call.
+     * 
+     * @param cursor the underlying cursor
+     * @return the number of skipped elements or 0 if this number is unknown
+     * @throws E
+     */
+    protected int seekStart(ICursor<T, E> cursor) throws E {
+        return 0;
+    }
+
     @Override
     public String toString() {
         String name = getClass().getName();
@@ -0,0 +1,161 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+import org.ubimix.commons.cursor.GroupCursor.GroupListener;
+
+/**
+ * This cursor aggregates groups of consecutive values with the same keys and
+ * returns one {@link Aggregate} object for each group. The underlying cursor
+ * should return values sorted (or at least grouped) by their keys. Only the
+ * state of the current group is kept in memory.
+ * 
+ * @author kotelnikov
+ * @param <T> the type of aggregated values
+ * @param <K> the type of keys
+ * @param <R> the type of aggregation results
+ * @param <E> the type of exceptions
+ */
+public class AggregationCursor<T, K, R, E extends Exception>
+    implements
+    ICursor<AggregationCursor.Aggregate<K, R>, E> {
+
+    /**
+     * The result of aggregation of one group of values.
+     * 
+     * @author kotelnikov
+     * @param <K> the type of keys
+     * @param <R> the type of aggregation results
+     */
+    public static class Aggregate<K, R> {
+
+        private K fKey;
+
+        private R fResult;
+
+        public Aggregate(K key, R result) {
+            fKey = key;
+            fResult = result;
+        }
+
+        /**
+         * Returns the key common for all values of the group
+         */
+        public K getKey() {
+            return fKey;
+        }
+
+        /**
+         * Returns the result of aggregation of all values of the group
+         */
+        public R getResult() {
+            return fResult;
+        }
+
+        @Override
+        public String toString() {
+            return fKey + "=" + fResult;
+        }
+
+    }
+
+    private IAggregator<T, Object, R> fAggregator;
+
+    private Aggregate<K, R> fCurrent;
+
+    private GroupCursor<T, E> fCursor;
+
+    private boolean fFinished;
+
+    private K fKey;
+
+    private IKeyExtractor<T, K> fKeyExtractor;
+
+    private Aggregate<K, R> fNext;
+
+    private Object fState;
+
+    /**
+     * @param cursor the cursor returning values grouped by their keys
+     * @param keyExtractor returns keys of values
+     * @param aggregator the aggregator of values of each group
+     */
+    @SuppressWarnings("unchecked")
+    public AggregationCursor(
+        ICursor<T, E> cursor,
+        IKeyExtractor<T, K> keyExtractor,
+        IAggregator<T, ?, R> aggregator) {
+        fKeyExtractor = keyExtractor;
+        fAggregator = (IAggregator<T, Object, R>) aggregator;
+        fCursor = new GroupCursor<T, E>(cursor, new GroupListener<T, E>() {
+            @Override
+            public void beginGroup(T value) throws E {
+                fKey = fKeyExtractor.getKey(value);
+                fState = fAggregator.newState();
+            }
+
+            @Override
+            public void endGroup(T value) throws E {
+                R result = fAggregator.getResult(fState);
+                fNext = new Aggregate<K, R>(fKey, result);
+                fState = null;
+            }
+
+            @Override
+            public void onGroup(T value) throws E {
+                fState = fAggregator.add(fState, value);
+            }
+
+            @Override
+            public boolean sameGroup(T prev, T current) throws E {
+                K key = fKeyExtractor.getKey(current);
+                return isSameKey(fKey, key);
+            }
+        });
+    }
+
+    /**
+     * @see org.ubimix.commons.cursor.ICursor#close()
+     */
+    public void close() throws E {
+        fCursor.close();
+        fCurrent = null;
+        fNext = null;
+        fState = null;
+    }
+
+    /**
+     * @see org.ubimix.commons.cursor.ICursor#getCurrent()
+     */
+    public Aggregate<K, R> getCurrent() {
+        return fCurrent;
+    }
+
+    /**
+     * Returns <code>true</code> if the given keys belong to the same group.
+     * This method could be overloaded in subclasses to re-define the
+     * comparison of keys.
+     * 
+     * @param prev the key of the current group
+     * @param current the key of the next value
+     * @return <code>true</code> if both keys belong to the same group
+     */
+    protected boolean isSameKey(K prev, K current) {
+        return prev == null || current == null ? prev == current : prev
+            .equals(current);
+    }
+
+    /**
+     * @see org.ubimix.commons.cursor.ICursor#loadNext()
+     */
+    public boolean loadNext() throws E {
+        while (fNext == null && !fFinished) {
+            fFinished = !fCursor.loadNext();
+        }
+        fCurrent = fNext;
+        fNext = null;
+        return fCurrent != null;
+    }
+
+}
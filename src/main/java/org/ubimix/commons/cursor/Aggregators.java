@@ -0,0 +1,406 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Factory of the most common {@link IAggregator} implementations. Aggregators
+ * returned by the {@link #first()}, {@link #last()}, {@link #min(Comparator)}
+ * and {@link #max(Comparator)} methods ignore <code>null</code> values.
+ * 
+ * @author kotelnikov
+ */
+public class Aggregators {
+
+    /**
+     * The default precision of distinct counters. Counters with this precision
+     * use 4KB of memory and have a standard error about 1.6%.
+     */
+    public static final int DEFAULT_PRECISION = 12;
+
+    /**
+     * Returns an aggregator applying all the given aggregators to the same
+     * values. The result of this aggregator is a list of results of the given
+     * aggregators in the same order.
+     * 
+     * @param aggregators aggregators to combine
+     * @return an aggregator applying all the given aggregators
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static <T> IAggregator<T, Object[], List<Object>> compose(
+        IAggregator<T, ?, ?>... aggregators) {
+        final IAggregator<T, Object, Object>[] array = new IAggregator[aggregators.length];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = (IAggregator<T, Object, Object>) aggregators[i];
+        }
+        return new IAggregator<T, Object[], List<Object>>() {
+            public Object[] add(Object[] state, T value) {
+                for (int i = 0; i < array.length; i++) {
+                    state[i] = array[i].add(state[i], value);
+                }
+                return state;
+            }
+
+            public Object[] combine(Object[] first, Object[] second) {
+                for (int i = 0; i < array.length; i++) {
+                    first[i] = array[i].combine(first[i], second[i]);
+                }
+                return first;
+            }
+
+            public List<Object> getResult(Object[] state) {
+                List<Object> result = new ArrayList<Object>(array.length);
+                for (int i = 0; i < array.length; i++) {
+                    result.add(array[i].getResult(state[i]));
+                }
+                return result;
+            }
+
+            public Object[] newState() {
+                Object[] state = new Object[array.length];
+                for (int i = 0; i < array.length; i++) {
+                    state[i] = array[i].newState();
+                }
+                return state;
+            }
+        };
+    }
+
+    /**
+     * Returns an aggregator counting values. The counter is kept in a
+     * mutable one-element array, so values are counted without allocations.
+     * 
+     * @return an aggregator counting values
+     */
+    public static <T> IAggregator<T, long[], Long> count() {
+        return new IAggregator<T, long[], Long>() {
+            public long[] add(long[] state, T value) {
+                state[0]++;
+                return state;
+            }
+
+            public long[] combine(long[] first, long[] second) {
+                first[0] += second[0];
+                return first;
+            }
+
+            public Long getResult(long[] state) {
+                return state[0];
+            }
+
+            public long[] newState() {
+                return new long[1];
+            }
+        };
+    }
+
+    /**
+     * Returns an aggregator estimating the number of distinct values. Values
+     * are compared using their {@link Object#hashCode()} methods.
+     * 
+     * @param precision the number of bits used to select counter registers;
+     *        this value should be in the range [4..16]
+     * @return an approximate distinct counter
+     * @see #distinct(IKeyExtractor, int)
+     */
+    public static <T> IAggregator<T, byte[], Long> distinct(int precision) {
+        return distinct(null, precision);
+    }
+
+    /**
+     * Returns an aggregator estimating the number of distinct keys of values
+     * using the HyperLogLog algorithm. The aggregator uses
+     * <code>2^precision</code> bytes of memory and its standard error is
+     * about <code>1.04/sqrt(2^precision)</code>. Keys are compared by their
+     * {@link Object#hashCode()} values, so the estimation can not exceed the
+     * number of different hash codes.
+     * 
+     * @param extractor returns keys of values; if this parameter is
+     *        <code>null</code> then values themselves are used as keys
+     * @param precision the number of bits used to select counter registers;
+     *        this value should be in the range [4..16]
+     * @return an approximate distinct counter
+     */
+    public static <T> IAggregator<T, byte[], Long> distinct(
+        final IKeyExtractor<T, ?> extractor,
+        final int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("Precision "
+                + precision
+                + " is out of the range [4..16].");
+        }
+        return new IAggregator<T, byte[], Long>() {
+            public byte[] add(byte[] state, T value) {
+                Object key = extractor != null
+                    ? extractor.getKey(value)
+                    : value;
+                long hash = getHash(key != null ? key.hashCode() : 0);
+                int idx = (int) (hash >>> (64 - precision));
+                int rank = Math.min(
+                    Long.numberOfLeadingZeros(hash << precision) + 1,
+                    64 - precision + 1);
+                if (state[idx] < rank) {
+                    state[idx] = (byte) rank;
+                }
+                return state;
+            }
+
+            public byte[] combine(byte[] first, byte[] second) {
+                for (int i = 0; i < first.length; i++) {
+                    if (first[i] < second[i]) {
+                        first[i] = second[i];
+                    }
+                }
+                return first;
+            }
+
+            public Long getResult(byte[] state) {
+                return estimate(state);
+            }
+
+            public byte[] newState() {
+                return new byte[1 << precision];
+            }
+        };
+    }
+
+    /**
+     * Returns an aggregator summing values returned by the given extractor as
+     * doubles. The sum is kept in a mutable one-element array.
+     * 
+     * @param extractor returns numbers to sum
+     * @return an aggregator summing numbers
+     */
+    public static <T> IAggregator<T, double[], Double> doubleSum(
+        final IKeyExtractor<T, ? extends Number> extractor) {
+        return new IAggregator<T, double[], Double>() {
+            public double[] add(double[] state, T value) {
+                Number number = extractor.getKey(value);
+                if (number != null) {
+                    state[0] += number.doubleValue();
+                }
+                return state;
+            }
+
+            public double[] combine(double[] first, double[] second) {
+                first[0] += second[0];
+                return first;
+            }
+
+            public Double getResult(double[] state) {
+                return state[0];
+            }
+
+            public double[] newState() {
+                return new double[1];
+            }
+        };
+    }
+
+    /**
+     * Estimates the number of distinct values using HyperLogLog registers.
+     */
+    private static long estimate(byte[] registers) {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1d / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha;
+        switch (m) {
+            case 16:
+                alpha = 0.673;
+                break;
+            case 32:
+                alpha = 0.697;
+                break;
+            case 64:
+                alpha = 0.709;
+                break;
+            default:
+                alpha = 0.7213 / (1 + 1.079 / m);
+                break;
+        }
+        double result = alpha * m * m / sum;
+        if (result <= 2.5 * m && zeros > 0) {
+            // Linear counting for small cardinalities
+            result = m * Math.log((double) m / zeros);
+        }
+        return Math.round(result);
+    }
+
+    /**
+     * Returns an aggregator keeping the first non-<code>null</code> value
+     * 
+     * @return an aggregator keeping the first value
+     */
+    public static <T> IAggregator<T, T, T> first() {
+        return new IAggregator<T, T, T>() {
+            public T add(T state, T value) {
+                return state != null ? state : value;
+            }
+
+            public T combine(T first, T second) {
+                return first != null ? first : second;
+            }
+
+            public T getResult(T state) {
+                return state;
+            }
+
+            public T newState() {
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Spreads bits of the given hash code over a 64-bit value (the finalizer
+     * of the MurmurHash3 algorithm).
+     */
+    private static long getHash(int hashCode) {
+        long h = hashCode;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Returns an aggregator keeping the last non-<code>null</code> value
+     * 
+     * @return an aggregator keeping the last value
+     */
+    public static <T> IAggregator<T, T, T> last() {
+        return new IAggregator<T, T, T>() {
+            public T add(T state, T value) {
+                return value != null ? value : state;
+            }
+
+            public T combine(T first, T second) {
+                return second != null ? second : first;
+            }
+
+            public T getResult(T state) {
+                return state;
+            }
+
+            public T newState() {
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Returns an aggregator summing values returned by the given extractor as
+     * longs. The sum is kept in a mutable one-element array.
+     * 
+     * @param extractor returns numbers to sum
+     * @return an aggregator summing numbers
+     */
+    public static <T> IAggregator<T, long[], Long> longSum(
+        final IKeyExtractor<T, ? extends Number> extractor) {
+        return new IAggregator<T, long[], Long>() {
+            public long[] add(long[] state, T value) {
+                Number number = extractor.getKey(value);
+                if (number != null) {
+                    state[0] += number.longValue();
+                }
+                return state;
+            }
+
+            public long[] combine(long[] first, long[] second) {
+                first[0] += second[0];
+                return first;
+            }
+
+            public Long getResult(long[] state) {
+                return state[0];
+            }
+
+            public long[] newState() {
+                return new long[1];
+            }
+        };
+    }
+
+    /**
+     * Returns an aggregator keeping the maximal value
+     * 
+     * @param comparator the comparator of values
+     * @return an aggregator keeping the maximal value
+     */
+    public static <T> IAggregator<T, T, T> max(
+        final Comparator<? super T> comparator) {
+        return new IAggregator<T, T, T>() {
+            public T add(T state, T value) {
+                return combine(state, value);
+            }
+
+            public T combine(T first, T second) {
+                if (first == null) {
+                    return second;
+                }
+                if (second == null) {
+                    return first;
+                }
+                return comparator.compare(first, second) >= 0 ? first : second;
+            }
+
+            public T getResult(T state) {
+                return state;
+            }
+
+            public T newState() {
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Returns an aggregator keeping the minimal value
+     * 
+     * @param comparator the comparator of values
+     * @return an aggregator keeping the minimal value
+     */
+    public static <T> IAggregator<T, T, T> min(
+        final Comparator<? super T> comparator) {
+        return new IAggregator<T, T, T>() {
+            public T add(T state, T value) {
+                return combine(state, value);
+            }
+
+            public T combine(T first, T second) {
+                if (first == null) {
+                    return second;
+                }
+                if (second == null) {
+                    return first;
+                }
+                return comparator.compare(first, second) <= 0 ? first : second;
+            }
+
+            public T getResult(T state) {
+                return state;
+            }
+
+            public T newState() {
+                return null;
+            }
+        };
+    }
+
+    private Aggregators() {
+    }
+
+}
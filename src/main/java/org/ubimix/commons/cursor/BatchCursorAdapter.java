@@ -0,0 +1,75 @@
+package org.ubimix.commons.cursor;
+
+/**
+ * This adapter gives access by batches to cursors which are not implementing
+ * the {@link IBatchCursor} interface. Batches are loaded element by element
+ * from the wrapped cursor. The wrapped cursor is not called anymore after it
+ * reports the end of its elements.
+ * 
+ * @author kotelnikov
+ * @param <T> the type of elements returned by this cursor
+ * @param <E> the type of exceptions thrown by this cursor
+ */
+public class BatchCursorAdapter<T, E extends Exception>
+    implements
+    IBatchCursor<T, E> {
+
+    /**
+     * Returns the given cursor if it natively supports batches or a new
+     * adapter wrapping this cursor.
+     * 
+     * @param cursor the cursor to transform
+     * @return a batch cursor giving access to elements of the specified cursor
+     */
+    public static <T, E extends Exception> IBatchCursor<T, E> toBatchCursor(
+        ICursor<T, E> cursor) {
+        if (cursor instanceof IBatchCursor<?, ?>) {
+            return (IBatchCursor<T, E>) cursor;
+        }
+        return new BatchCursorAdapter<T, E>(cursor);
+    }
+
+    private T fCurrent;
+
+    private ICursor<T, E> fCursor;
+
+    private boolean fFinished;
+
+    public BatchCursorAdapter(ICursor<T, E> cursor) {
+        fCursor = cursor;
+    }
+
+    public void close() throws E {
+        fCursor.close();
+    }
+
+    public T getCurrent() {
+        return fCurrent;
+    }
+
+    public boolean loadNext() throws E {
+        boolean result = !fFinished && fCursor.loadNext();
+        fFinished = !result;
+        fCurrent = result ? fCursor.getCurrent() : null;
+        return result;
+    }
+
+    public int loadNext(T[] buffer, int offset, int len) throws E {
+        int count = 0;
+        while (count < len && !fFinished) {
+            if (!fCursor.loadNext()) {
+                fFinished = true;
+                break;
+            }
+            buffer[offset + count++] = fCursor.getCurrent();
+        }
+        fCurrent = count > 0 ? buffer[offset + count - 1] : null;
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchCursorAdapter[" + fCurrent + ":" + fCursor + "]";
+    }
+
+}
@@ -0,0 +1,46 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+import java.util.BitSet;
+
+/**
+ * Visited set keeping non-negative integer identifiers of nodes in a bitmap.
+ * It uses one bit for each identifier in the range [0..max], so it is the
+ * most compact visited set for dense identifiers. Subclasses should define
+ * the {@link #getId(Object)} method returning identifiers of nodes.
+ * 
+ * @author kotelnikov
+ * @param <T> the type of nodes
+ */
+public abstract class BitmapVisitedSet<T> implements IVisitedSet<T> {
+
+    private BitSet fBits = new BitSet();
+
+    public void clear() {
+        fBits.clear();
+    }
+
+    /**
+     * Returns the identifier of the given node
+     * 
+     * @param node the node
+     * @return a non-negative identifier of the node
+     */
+    protected abstract int getId(T node);
+
+    public int getSize() {
+        return fBits.cardinality();
+    }
+
+    public boolean visit(T node) {
+        int id = getId(node);
+        if (fBits.get(id)) {
+            return false;
+        }
+        fBits.set(id);
+        return true;
+    }
+
+}
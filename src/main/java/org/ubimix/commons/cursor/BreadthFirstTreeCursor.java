@@ -0,0 +1,276 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.ubimix.commons.cursor.SpillFile.SpillException;
+
+/**
+ * This cursor iterates over tree structures level by level (breadth-first).
+ * Unlike the {@link TreeCursor} children are requested for batches of nodes
+ * of the same level (see {@link #getChildren(List)}), so the number of
+ * requests is about the number of nodes divided by the batch size.
+ * <p>
+ * Nodes which should be expanded on the next level are kept in a queue. If
+ * the size of this queue exceeds the specified limit and a serializer is
+ * defined then the remaining nodes are stored in a temporary file.
+ * </p>
+ * 
+ * @author kotelnikov
+ * @param <T> the type of nodes
+ * @param <E> the type of exceptions
+ */
+public abstract class BreadthFirstTreeCursor<T, E extends Exception>
+    implements
+    ICursor<T, E> {
+
+    /**
+     * A FIFO queue of nodes keeping the first nodes in memory and storing all
+     * other nodes in a temporary file. All nodes are added to the queue
+     * before the first one is removed.
+     */
+    private class NodeQueue {
+
+        private SpillFile<T> fFile;
+
+        private List<T> fNodes = new ArrayList<T>();
+
+        private int fPos;
+
+        private int fRead;
+
+        private SpillFile<T>.Reader fReader;
+
+        public void add(T node) throws E {
+            if (fSerializer == null || fNodes.size() < fMaxQueueSize) {
+                fNodes.add(node);
+                return;
+            }
+            try {
+                if (fFile == null) {
+                    fFile = new SpillFile<T>(fDir, fSerializer);
+                }
+                fFile.write(node);
+            } catch (IOException e) {
+                fireIOException("Can not write nodes in a temporary file.", e);
+            }
+        }
+
+        public void delete() throws E {
+            fNodes.clear();
+            fPos = 0;
+            fRead = 0;
+            if (fFile != null) {
+                try {
+                    if (fReader != null) {
+                        fReader.close();
+                    }
+                } catch (IOException e) {
+                    fireIOException("Can not close a temporary file.", e);
+                } finally {
+                    fReader = null;
+                    fFile.delete();
+                    fFile = null;
+                }
+            }
+        }
+
+        public boolean isEmpty() {
+            return fPos >= fNodes.size()
+                && (fFile == null || fRead >= fFile.getCount());
+        }
+
+        /**
+         * Removes at most the specified number of nodes from this queue and
+         * adds them to the given list.
+         */
+        public void poll(List<T> nodes, int count) throws E {
+            while (nodes.size() < count && fPos < fNodes.size()) {
+                nodes.add(fNodes.set(fPos++, null));
+            }
+            if (fFile == null) {
+                return;
+            }
+            try {
+                if (fReader == null) {
+                    fReader = fFile.open();
+                }
+                while (nodes.size() < count && fReader.hasNext()) {
+                    nodes.add(fReader.read());
+                    fRead++;
+                }
+            } catch (IOException e) {
+                fireIOException("Can not read nodes from a temporary file.", e);
+            }
+        }
+
+    }
+
+    private int fBatchSize;
+
+    private ICursor<T, E> fChildren;
+
+    private T fCurrent;
+
+    private int fDepth;
+
+    private File fDir;
+
+    private int fMaxDepth;
+
+    private int fMaxQueueSize = Integer.MAX_VALUE;
+
+    private NodeQueue fNext = new NodeQueue();
+
+    private NodeQueue fParents = new NodeQueue();
+
+    private ISerializer<T> fSerializer;
+
+    /**
+     * @param cursor the cursor over the top-level nodes
+     * @param batchSize the maximal number of nodes in one request of children
+     */
+    public BreadthFirstTreeCursor(ICursor<T, E> cursor, int batchSize) {
+        this(cursor, batchSize, -1);
+    }
+
+    /**
+     * @param cursor the cursor over the top-level nodes
+     * @param batchSize the maximal number of nodes in one request of children
+     * @param maxDepth the maximal depth of returned nodes (top-level nodes
+     *        have depth 0); if this value is negative then the depth is not
+     *        limited
+     */
+    public BreadthFirstTreeCursor(
+        ICursor<T, E> cursor,
+        int batchSize,
+        int maxDepth) {
+        fChildren = cursor;
+        fBatchSize = Math.max(1, batchSize);
+        fMaxDepth = maxDepth;
+    }
+
+    /**
+     * @param cursor the cursor over the top-level nodes
+     * @param batchSize the maximal number of nodes in one request of children
+     * @param maxDepth the maximal depth of returned nodes; if this value is
+     *        negative then the depth is not limited
+     * @param serializer the serializer used to store queued nodes in
+     *        temporary files
+     * @param maxQueueSize the maximal number of queued nodes kept in memory
+     * @param dir the directory for temporary files; if it is
+     *        <code>null</code> then the default temporary directory is used
+     */
+    public BreadthFirstTreeCursor(
+        ICursor<T, E> cursor,
+        int batchSize,
+        int maxDepth,
+        ISerializer<T> serializer,
+        int maxQueueSize,
+        File dir) {
+        this(cursor, batchSize, maxDepth);
+        fSerializer = serializer;
+        fMaxQueueSize = Math.max(1, maxQueueSize);
+        fDir = dir;
+    }
+
+    /**
+     * @see org.ubimix.commons.cursor.ICursor#close()
+     */
+    public void close() throws E {
+        fCurrent = null;
+        try {
+            if (fChildren != null) {
+                fChildren.close();
+                fChildren = null;
+            }
+        } finally {
+            try {
+                fParents.delete();
+            } finally {
+                fNext.delete();
+            }
+        }
+    }
+
+    /**
+     * This method is called to notify about errors with temporary files. By
+     * default it throws a {@link SpillException}. It could be overloaded in
+     * subclasses to transform the given error in the exception of the
+     * required type.
+     * 
+     * @param msg the error message
+     * @param e the original exception
+     * @throws E
+     */
+    protected void fireIOException(String msg, IOException e) throws E {
+        throw new SpillException(msg, e);
+    }
+
+    /**
+     * Returns a cursor over children of all the given nodes or
+     * <code>null</code> if these nodes have no children. Children of the
+     * first node should be returned first, then children of the second one
+     * and so on.
+     * 
+     * @param nodes the list of nodes of the same level
+     * @return a cursor over all children of the given nodes
+     * @throws E
+     */
+    protected abstract ICursor<T, E> getChildren(List<T> nodes) throws E;
+
+    /**
+     * @see org.ubimix.commons.cursor.ICursor#getCurrent()
+     */
+    public T getCurrent() {
+        return fCurrent;
+    }
+
+    /**
+     * Returns the depth of the current node. Top-level nodes have depth 0.
+     * 
+     * @return the depth of the current node
+     */
+    public int getDepth() {
+        return fDepth;
+    }
+
+    /**
+     * @see org.ubimix.commons.cursor.ICursor#loadNext()
+     */
+    public boolean loadNext() throws E {
+        fCurrent = null;
+        while (true) {
+            if (fChildren != null) {
+                if (fChildren.loadNext()) {
+                    fCurrent = fChildren.getCurrent();
+                    if (fMaxDepth < 0 || fDepth < fMaxDepth) {
+                        fNext.add(fCurrent);
+                    }
+                    return true;
+                }
+                fChildren.close();
+                fChildren = null;
+            }
+            if (!fParents.isEmpty()) {
+                List<T> nodes = new ArrayList<T>(fBatchSize);
+                fParents.poll(nodes, fBatchSize);
+                fChildren = getChildren(nodes);
+            } else if (!fNext.isEmpty()) {
+                fParents.delete();
+                NodeQueue queue = fParents;
+                fParents = fNext;
+                fNext = queue;
+                fDepth++;
+            } else {
+                return false;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+package org.ubimix.commons.cursor;
+
+/**
+ * This cursor loads elements from the underlying batch cursor by chunks of the
+ * fixed size and returns them one by one. It is used to transparently give
+ * batch cursors to the code working with individual elements: only one call of
+ * the underlying cursor is performed for each chunk of elements.
+ * 
+ * @author kotelnikov
+ * @param <T> the type of elements returned by this cursor
+ * @param <E> the type of exceptions thrown by this cursor
+ */
+public class BufferedCursor<T, E extends Exception>
+    implements
+    IBatchCursor<T, E> {
+
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+
+    private T[] fBuffer;
+
+    private T fCurrent;
+
+    private IBatchCursor<T, E> fCursor;
+
+    private int fPos;
+
+    private int fSize;
+
+    public BufferedCursor(ICursor<T, E> cursor) {
+        this(cursor, DEFAULT_BUFFER_SIZE);
+    }
+
+    @SuppressWarnings("unchecked")
+    public BufferedCursor(ICursor<T, E> cursor, int bufferSize) {
+        fCursor = BatchCursorAdapter.toBatchCursor(cursor);
+        fBuffer = (T[]) new Object[Math.max(1, bufferSize)];
+    }
+
+    public void close() throws E {
+        for (int i = 0; i < fSize; i++) {
+            fBuffer[i] = null;
+        }
+        fPos = fSize = 0;
+        fCurrent = null;
+        fCursor.close();
+    }
+
+    public T getCurrent() {
+        return fCurrent;
+    }
+
+    public boolean loadNext() throws E {
+        if (fPos == fSize) {
+            fPos = 0;
+            fSize = fCursor.loadNext(fBuffer, 0, fBuffer.length);
+        }
+        if (fPos < fSize) {
+            fCurrent = fBuffer[fPos];
+            fBuffer[fPos++] = null;
+            return true;
+        }
+        fCurrent = null;
+        return false;
+    }
+
+    public int loadNext(T[] buffer, int offset, int len) throws E {
+        int count = 0;
+        // Returns already buffered elements before the direct loading
+        while (count < len && fPos < fSize) {
+            buffer[offset + count++] = fBuffer[fPos];
+            fBuffer[fPos++] = null;
+        }
+        if (count < len) {
+            count += fCursor.loadNext(buffer, offset + count, len - count);
+        }
+        fCurrent = count > 0 ? buffer[offset + count - 1] : null;
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "BufferedCursor[" + fCurrent + ":" + fCursor + "]";
+    }
+
+}
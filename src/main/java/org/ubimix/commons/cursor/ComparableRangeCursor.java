@@ -6,6 +6,7 @@ import java.util.Comparator;
  * This cursor is used to return a range of values from an ordered set provided
  * by an another cursor. For example if you have a list of messaged ordered by
  * dates then this cursor could be used to get messages from a specific date.
+ * A <code>null</code> bound means that the range is not limited on this side.
  * 
  * @author kotelnikov
  * @param <T,E>
@@ -49,6 +50,9 @@ public class ComparableRangeCursor<T, E extends Exception>
 
     @Override
     protected boolean isAfter(int pos, ICursor<T, E> cursor) throws E {
+        if (fLast == null) {
+            return false;
+        }
         T current = getCurrent();
         int res = fComparator.compare(current, fLast);
         if (res > 0) {
@@ -62,6 +66,9 @@ public class ComparableRangeCursor<T, E extends Exception>
 
     @Override
     protected boolean isBefore(int pos, ICursor<T, E> cursor) throws E {
+        if (fFirst == null) {
+            return false;
+        }
         T current = getCurrent();
         int res = fComparator.compare(fFirst, current);
         if (res < 0) {
@@ -72,4 +79,19 @@ public class ComparableRangeCursor<T, E extends Exception>
         }
         return true;
     }
+
+    /**
+     * Moves the underlying cursor directly to the first value of the range if
+     * this cursor implements the {@link ISeekableCursor} interface. Note that
+     * in this case the underlying cursor should use the same order of values
+     * as this range cursor.
+     */
+    @Override
+    protected int seekStart(ICursor<T, E> cursor) throws E {
+        if (fFirst != null && cursor instanceof ISeekableCursor<?, ?>) {
+            ((ISeekableCursor<T, E>) cursor).seek(fFirst);
+        }
+        return 0;
+    }
+
 }
\ No newline at end of file
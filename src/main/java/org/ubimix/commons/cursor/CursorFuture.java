@@ -0,0 +1,94 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Asynchronous task opening a cursor. This class is used by cursors opening
+ * their sub-cursors in advance. Results of tasks which are not needed anymore
+ * should be released using the {@link #discard()} method: it cancels the task
+ * if it is not started yet or it closes the opened cursor (immediately or as
+ * soon as the task is finished). Errors thrown by discarded cursors are
+ * ignored.
+ * 
+ * @author kotelnikov
+ * @param <T> the type of elements of the opened cursor
+ * @param <E> the type of exceptions
+ */
+class CursorFuture<T, E extends Exception> extends FutureTask<ICursor<T, E>> {
+
+    private AtomicBoolean fClosed = new AtomicBoolean();
+
+    private volatile boolean fDiscarded;
+
+    public CursorFuture(Callable<ICursor<T, E>> callable) {
+        super(callable);
+    }
+
+    /**
+     * Closes the opened cursor if the task is already finished
+     */
+    private void closeResult() {
+        if (isDone() && !isCancelled() && fClosed.compareAndSet(false, true)) {
+            try {
+                ICursor<T, E> cursor = get();
+                if (cursor != null) {
+                    cursor.close();
+                }
+            } catch (Exception e) {
+                // Results of discarded tasks are not used
+            }
+        }
+    }
+
+    /**
+     * Cancels this task or closes its result
+     */
+    public void discard() {
+        fDiscarded = true;
+        cancel(false);
+        closeResult();
+    }
+
+    @Override
+    protected void done() {
+        if (fDiscarded) {
+            closeResult();
+        }
+    }
+
+    /**
+     * Waits for the end of this task and returns the opened cursor. Errors
+     * thrown by the task are re-thrown by this method. If the current thread
+     * is interrupted then the task is discarded and a
+     * {@link CancellationException} is thrown.
+     * 
+     * @return the opened cursor
+     * @throws E
+     */
+    @SuppressWarnings("unchecked")
+    public ICursor<T, E> getCursor() throws E {
+        try {
+            return get();
+        } catch (ExecutionException e) {
+            Throwable t = e.getCause();
+            if (t instanceof Error) {
+                throw (Error) t;
+            } else if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            }
+            throw (E) t;
+        } catch (InterruptedException e) {
+            discard();
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        }
+    }
+
+}
@@ -3,13 +3,118 @@
  */
 package org.ubimix.commons.cursor;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 
 /**
  * @author kotelnikov
  */
 public class DiffCursor<T, E extends Exception> implements ICursor<T, E> {
 
+    /**
+     * This listener collects diff events and delivers them by batches to an
+     * {@link IBatchDiffCursorListener}. Each type of events is collected
+     * separately, so the order of events of different types is not kept. All
+     * collected events are delivered by the {@link #onEnd()} method.
+     * 
+     * @author kotelnikov
+     * @param <T>
+     * @param <E>
+     */
+    public static class BatchDiffCursorListener<T, E extends Exception>
+        implements
+        IDiffCursorListener<T, E> {
+
+        private List<T> fAdded = new ArrayList<T>();
+
+        private int fBatchSize;
+
+        private List<T> fFirstUpdated = new ArrayList<T>();
+
+        private IBatchDiffCursorListener<T, E> fListener;
+
+        private List<T> fRemoved = new ArrayList<T>();
+
+        private List<T> fSecondUpdated = new ArrayList<T>();
+
+        /**
+         * @param listener the listener receiving batches of events
+         * @param batchSize the maximal number of events of the same type in
+         *        one batch
+         */
+        public BatchDiffCursorListener(
+            IBatchDiffCursorListener<T, E> listener,
+            int batchSize) {
+            fListener = listener;
+            fBatchSize = Math.max(1, batchSize);
+        }
+
+        /**
+         * Delivers all collected events
+         * 
+         * @throws E
+         */
+        public void flush() throws E {
+            flushAdded();
+            flushRemoved();
+            flushUpdated();
+        }
+
+        private void flushAdded() throws E {
+            if (!fAdded.isEmpty()) {
+                List<T> values = fAdded;
+                fAdded = new ArrayList<T>();
+                fListener.onValuesAdded(values);
+            }
+        }
+
+        private void flushRemoved() throws E {
+            if (!fRemoved.isEmpty()) {
+                List<T> values = fRemoved;
+                fRemoved = new ArrayList<T>();
+                fListener.onValuesRemoved(values);
+            }
+        }
+
+        private void flushUpdated() throws E {
+            if (!fFirstUpdated.isEmpty()) {
+                List<T> firstValues = fFirstUpdated;
+                List<T> secondValues = fSecondUpdated;
+                fFirstUpdated = new ArrayList<T>();
+                fSecondUpdated = new ArrayList<T>();
+                fListener.onValuesUpdated(firstValues, secondValues);
+            }
+        }
+
+        public void onEnd() throws E {
+            flush();
+        }
+
+        public void onValueAdded(T value) throws E {
+            fAdded.add(value);
+            if (fAdded.size() >= fBatchSize) {
+                flushAdded();
+            }
+        }
+
+        public void onValueRemoved(T value) throws E {
+            fRemoved.add(value);
+            if (fRemoved.size() >= fBatchSize) {
+                flushRemoved();
+            }
+        }
+
+        public void onValueUpdated(T firstValue, T secondValue) throws E {
+            fFirstUpdated.add(firstValue);
+            fSecondUpdated.add(secondValue);
+            if (fFirstUpdated.size() >= fBatchSize) {
+                flushUpdated();
+            }
+        }
+
+    }
+
     /**
      * @author kotelnikov
      * @param <T>
@@ -30,6 +135,25 @@ public class DiffCursor<T, E extends Exception> implements ICursor<T, E> {
 
     }
 
+    /**
+     * @author kotelnikov
+     * @param <T>
+     * @param <E>
+     */
+    public interface IBatchDiffCursorListener<T, E extends Exception> {
+
+        void onValuesAdded(List<T> values) throws E;
+
+        void onValuesRemoved(List<T> values) throws E;
+
+        /**
+         * Notifies about updated values. Values with the same index in both
+         * lists correspond to each other.
+         */
+        void onValuesUpdated(List<T> firstValues, List<T> secondValues)
+            throws E;
+    }
+
     /**
      * @author kotelnikov
      * @param <T>
@@ -37,6 +161,16 @@ public class DiffCursor<T, E extends Exception> implements ICursor<T, E> {
      */
     public interface IDiffCursorListener<T, E extends Exception> {
 
+        /**
+         * This method is called once when all differences are reported.
+         * Listeners buffering events should deliver them here. By default
+         * this method does nothing.
+         * 
+         * @throws E
+         */
+        default void onEnd() throws E {
+        }
+
         void onValueAdded(T value) throws E;
 
         void onValueRemoved(T value) throws E;
@@ -74,9 +208,19 @@ public class DiffCursor<T, E extends Exception> implements ICursor<T, E> {
             }
         }
 
+        /**
+         * The winner is moved immediately, so the events about the last
+         * group are delivered together with the last value.
+         */
+        @Override
+        protected boolean isAdvanceDeferred() {
+            return false;
+        }
+
         @Override
         protected void onEndIterations() throws E {
             finishGroup();
+            fDiffCursorListener.onEnd();
         }
 
         @Override
@@ -140,7 +284,9 @@ public class DiffCursor<T, E extends Exception> implements ICursor<T, E> {
                 T v2 = o2.getCurrent();
                 int result = comparator.compare(v1, v2);
                 if (result == 0) {
-                    result = fFirstStamp - fSecondStamp;
+                    // Equal values are returned alternately by both cursors:
+                    // the least recently used cursor goes first.
+                    result = getStamp(o1) - getStamp(o2);
                 }
                 return result;
             };
@@ -151,6 +297,29 @@ public class DiffCursor<T, E extends Exception> implements ICursor<T, E> {
         updateCursorTimeStamps();
     }
 
+    /**
+     * Creates a new diff cursor delivering events by batches.
+     * 
+     * @param comparator the comparator of values
+     * @param first the first cursor
+     * @param second the second cursor
+     * @param listener the listener receiving batches of events
+     * @param batchSize the maximal number of events of the same type in one
+     *        batch
+     */
+    public DiffCursor(
+        Comparator<T> comparator,
+        ICursor<T, E> first,
+        ICursor<T, E> second,
+        IBatchDiffCursorListener<T, E> listener,
+        int batchSize) {
+        this(
+            comparator,
+            first,
+            second,
+            new BatchDiffCursorListener<T, E>(listener, batchSize));
+    }
+
     /**
      * @see org.ubimix.commons.cursor.ICursor#close()
      */
@@ -165,6 +334,10 @@ public class DiffCursor<T, E extends Exception> implements ICursor<T, E> {
         return fMergeCursor.getCurrent();
     }
 
+    private int getStamp(ICursor<T, E> cursor) {
+        return cursor == fFirstCursor ? fFirstStamp : fSecondStamp;
+    }
+
     public boolean isValueProvidedByFirstCursor() {
         return fProvidedByFirstCursor;
     }
@@ -11,7 +11,9 @@ package org.ubimix.commons.cursor;
  */
 public abstract class FilteringCursor<T, E extends Exception>
     implements
-    ICursor<T, E> {
+    IBatchCursor<T, E> {
+
+    private IBatchCursor<T, E> fBatchCursor;
 
     private T fCurrent;
 
@@ -22,6 +24,7 @@ public abstract class FilteringCursor<T, E extends Exception>
      */
     public FilteringCursor(ICursor<T, E> cursor) {
         fCursor = cursor;
+        fBatchCursor = BatchCursorAdapter.toBatchCursor(cursor);
     }
 
     protected abstract boolean accept(T current) throws E;
@@ -56,6 +59,32 @@ public abstract class FilteringCursor<T, E extends Exception>
         return result;
     }
 
+    /**
+     * Loads elements by batches from the underlying cursor directly in the
+     * given buffer and compacts accepted elements in place.
+     * 
+     * @see org.ubimix.commons.cursor.IBatchCursor#loadNext(Object[], int, int)
+     */
+    public int loadNext(T[] buffer, int offset, int len) throws E {
+        int count = 0;
+        while (count < len) {
+            int pos = offset + count;
+            int loaded = fBatchCursor.loadNext(buffer, pos, len - count);
+            if (loaded == 0) {
+                break;
+            }
+            for (int i = pos; i < pos + loaded; i++) {
+                T current = buffer[i];
+                buffer[i] = null;
+                if (accept(current)) {
+                    buffer[offset + count++] = current;
+                }
+            }
+        }
+        fCurrent = count > 0 ? buffer[offset + count - 1] : null;
+        return count;
+    }
+
     @Override
     public String toString() {
         return "FilteringCursor[" + fCurrent + ":" + fCursor + "]";
@@ -0,0 +1,184 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.ubimix.commons.cursor.DiffCursor.IDiffCursorListener;
+
+/**
+ * This class compares two sorted sources able to return fingerprints of key
+ * ranges (see {@link IFingerprintSource}). Fingerprints of ranges are
+ * compared first; only ranges with different fingerprints are split in
+ * smaller ranges. Values of small ranges with different fingerprints are
+ * compared by a {@link DiffCursor}. So the cost of the comparison is
+ * proportional to the number of changes and not to the size of the sources.
+ * <p>
+ * The listener is notified about added and removed values in the order of
+ * keys. Values existing in both sources are reported as updated only if they
+ * are changed (see {@link #isChanged(Object, Object)}), because values of
+ * ranges with equal fingerprints are not compared at all.
+ * </p>
+ * 
+ * <pre>
+ * // Example of usage:
+ * IFingerprintSource&lt;MyType, E&gt; first = ...;
+ * IFingerprintSource&lt;MyType, E&gt; second = ...;
+ * new FingerprintDiff&lt;MyType, E&gt;(comparator, first, second, listener).run();
+ * </pre>
+ * 
+ * @author kotelnikov
+ * @param <T> the type of compared values
+ * @param <E> the type of exceptions
+ */
+public class FingerprintDiff<T, E extends Exception> {
+
+    /**
+     * The default number of sub-ranges of each range with different
+     * fingerprints
+     */
+    public static final int DEFAULT_FAN_OUT = 16;
+
+    private Comparator<T> fComparator;
+
+    private int fFanOut = DEFAULT_FAN_OUT;
+
+    private IFingerprintSource<T, E> fFirst;
+
+    private IDiffCursorListener<T, E> fListener;
+
+    private IDiffCursorListener<T, E> fRangeListener;
+
+    private IFingerprintSource<T, E> fSecond;
+
+    /**
+     * @param comparator the comparator of values
+     * @param first the first source of values
+     * @param second the second source of values
+     * @param listener the listener notified about differences
+     */
+    public FingerprintDiff(
+        Comparator<T> comparator,
+        IFingerprintSource<T, E> first,
+        IFingerprintSource<T, E> second,
+        final IDiffCursorListener<T, E> listener) {
+        fComparator = comparator;
+        fFirst = first;
+        fSecond = second;
+        fListener = listener;
+        fRangeListener = new IDiffCursorListener<T, E>() {
+
+            public void onEnd() throws E {
+                // The end of the whole diff is reported by the run method
+            }
+
+            public void onValueAdded(T value) throws E {
+                listener.onValueAdded(value);
+            }
+
+            public void onValueRemoved(T value) throws E {
+                listener.onValueRemoved(value);
+            }
+
+            public void onValueUpdated(T firstValue, T secondValue) throws E {
+                if (isChanged(firstValue, secondValue)) {
+                    listener.onValueUpdated(firstValue, secondValue);
+                }
+            }
+
+        };
+    }
+
+    /**
+     * Compares values of the given range.
+     */
+    private void diff(T first, T last) throws E {
+        long firstHash = fFirst.getFingerprint(first, last);
+        long secondHash = fSecond.getFingerprint(first, last);
+        if (firstHash == secondHash) {
+            return;
+        }
+        List<T> points = getSplitPoints(fFirst, first, last);
+        if (points.isEmpty()) {
+            points = getSplitPoints(fSecond, first, last);
+        }
+        if (points.isEmpty()) {
+            DiffCursor<T, E> cursor = new DiffCursor<T, E>(
+                fComparator,
+                fFirst.getCursor(first, last),
+                fSecond.getCursor(first, last),
+                fRangeListener);
+            try {
+                while (cursor.loadNext()) {
+                }
+            } finally {
+                cursor.close();
+            }
+        } else {
+            T from = first;
+            for (T point : points) {
+                diff(from, point);
+                from = point;
+            }
+            diff(from, last);
+        }
+    }
+
+    public int getFanOut() {
+        return fFanOut;
+    }
+
+    /**
+     * Returns split points of the given range which are strictly inside of
+     * this range. So each sub-range is smaller than the range itself.
+     */
+    private List<T> getSplitPoints(
+        IFingerprintSource<T, E> source,
+        T first,
+        T last) throws E {
+        List<T> result = new ArrayList<T>();
+        T prev = first;
+        for (T point : source.getSplitPoints(first, last, fFanOut)) {
+            if (prev != null && fComparator.compare(prev, point) >= 0) {
+                continue;
+            }
+            if (last != null && fComparator.compare(point, last) >= 0) {
+                continue;
+            }
+            result.add(point);
+            prev = point;
+        }
+        return result;
+    }
+
+    /**
+     * Returns <code>true</code> if the given values with the same key are
+     * different. By default values are compared using the
+     * {@link Object#equals(Object)} method.
+     * 
+     * @param first the value of the first source
+     * @param second the value of the second source
+     * @return <code>true</code> if the values are different
+     */
+    protected boolean isChanged(T first, T second) {
+        return !first.equals(second);
+    }
+
+    /**
+     * Compares both sources and notifies the listener about all differences.
+     * 
+     * @throws E
+     */
+    public void run() throws E {
+        diff(null, null);
+        fListener.onEnd();
+    }
+
+    public void setFanOut(int fanOut) {
+        fFanOut = Math.max(2, fanOut);
+    }
+
+}
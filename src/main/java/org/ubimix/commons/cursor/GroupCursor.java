@@ -3,6 +3,9 @@
  */
 package org.ubimix.commons.cursor;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * This cursor is used to notify about begins/ends of each group of values.
  * 
@@ -10,6 +13,113 @@ package org.ubimix.commons.cursor;
  */
 public class GroupCursor<T, E extends Exception> implements ICursor<T, E> {
 
+    /**
+     * This listener collects whole groups of values and delivers them by
+     * batches to an {@link IBatchGroupListener}. A batch is delivered as soon
+     * as the number of collected values reaches the batch size. Groups are
+     * not split between batches unless the number of buffered values reaches
+     * the maximal size; in this case the collected part of the current group
+     * is delivered immediately and the rest of this group is delivered in the
+     * following batches. Remaining groups are delivered by the
+     * {@link #onEnd()} method.
+     * 
+     * @author kotelnikov
+     * @param <T>
+     * @param <E>
+     */
+    public static class BatchGroupListener<T, E extends Exception>
+        extends
+        GroupListener<T, E> {
+
+        private int fBatchSize;
+
+        private List<T> fGroup;
+
+        private List<List<T>> fGroups = new ArrayList<List<T>>();
+
+        private IBatchGroupListener<T, E> fListener;
+
+        private int fMaxSize;
+
+        private int fSize;
+
+        /**
+         * @param listener the listener receiving batches of groups
+         * @param batchSize the minimal number of values in each delivered
+         *        batch (except the last one)
+         */
+        public BatchGroupListener(
+            IBatchGroupListener<T, E> listener,
+            int batchSize) {
+            this(listener, batchSize, DEFAULT_MAX_SIZE);
+        }
+
+        /**
+         * @param listener the listener receiving batches of groups
+         * @param batchSize the minimal number of values in each delivered
+         *        batch (except the last one)
+         * @param maxSize the maximal number of buffered values; bigger groups
+         *        are delivered by parts
+         */
+        public BatchGroupListener(
+            IBatchGroupListener<T, E> listener,
+            int batchSize,
+            int maxSize) {
+            fListener = listener;
+            fBatchSize = Math.max(1, batchSize);
+            fMaxSize = Math.max(fBatchSize, maxSize);
+        }
+
+        @Override
+        public void beginGroup(T value) throws E {
+            fGroup = new ArrayList<T>();
+        }
+
+        @Override
+        public void endGroup(T value) throws E {
+            if (fGroup != null) {
+                if (!fGroup.isEmpty()) {
+                    fGroups.add(fGroup);
+                }
+                fGroup = null;
+                if (fSize >= fBatchSize) {
+                    flush();
+                }
+            }
+        }
+
+        /**
+         * Delivers all completely collected groups.
+         * 
+         * @throws E
+         */
+        public void flush() throws E {
+            if (!fGroups.isEmpty()) {
+                List<List<T>> groups = fGroups;
+                fGroups = new ArrayList<List<T>>();
+                fSize = fGroup != null ? fGroup.size() : 0;
+                fListener.onGroups(groups);
+            }
+        }
+
+        @Override
+        public void onEnd() throws E {
+            flush();
+        }
+
+        @Override
+        public void onGroup(T value) throws E {
+            fGroup.add(value);
+            fSize++;
+            if (fSize >= fMaxSize) {
+                fGroups.add(fGroup);
+                fGroup = new ArrayList<T>();
+                flush();
+            }
+        }
+
+    }
+
     public static class GroupListener<T, E extends Exception>
         implements
         IGroupListener<T, E> {
@@ -30,6 +140,23 @@ public class GroupCursor<T, E extends Exception> implements ICursor<T, E> {
 
     }
 
+    /**
+     * @author kotelnikov
+     * @param <T>
+     * @param <E>
+     */
+    public static interface IBatchGroupListener<T, E extends Exception> {
+
+        /**
+         * Notifies about a batch of groups. Each group contains all values
+         * belonging to this group in the order returned by the cursor.
+         * 
+         * @param groups the list of groups
+         */
+        void onGroups(List<List<T>> groups) throws E;
+
+    }
+
     /**
      * @author kotelnikov
      * @param <T>
@@ -52,6 +179,16 @@ public class GroupCursor<T, E extends Exception> implements ICursor<T, E> {
          */
         void endGroup(T value) throws E;
 
+        /**
+         * This method is called once when the cursor is exhausted or closed,
+         * after the end of the last group. Listeners buffering values should
+         * deliver them here. By default this method does nothing.
+         * 
+         * @throws E
+         */
+        default void onEnd() throws E {
+        }
+
         /**
          * This method is called to notify that the specified cursor returns a
          * group value. Begin and the end of the group are delimited by
@@ -76,8 +213,16 @@ public class GroupCursor<T, E extends Exception> implements ICursor<T, E> {
 
     }
 
+    /**
+     * The default maximal number of values buffered by the
+     * {@link BatchGroupListener}
+     */
+    public static final int DEFAULT_MAX_SIZE = 64 * 1024;
+
     protected ICursor<T, E> fCursor;
 
+    private boolean fFinished;
+
     private IGroupListener<T, E> fListener;
 
     private T fPrevValue;
@@ -91,6 +236,20 @@ public class GroupCursor<T, E extends Exception> implements ICursor<T, E> {
         init(cursor);
     }
 
+    /**
+     * Creates a new cursor delivering whole groups by batches.
+     * 
+     * @param cursor the cursor providing values
+     * @param listener the listener receiving batches of groups
+     * @param batchSize the number of values in each batch
+     */
+    public GroupCursor(
+        ICursor<T, E> cursor,
+        IBatchGroupListener<T, E> listener,
+        int batchSize) {
+        this(cursor, new BatchGroupListener<T, E>(listener, batchSize));
+    }
+
     /**
      * @param comparator
      */
@@ -119,6 +278,7 @@ public class GroupCursor<T, E extends Exception> implements ICursor<T, E> {
 
     protected void init(ICursor<T, E> cursor) {
         fCursor = cursor;
+        fFinished = false;
     }
 
     /**
@@ -150,6 +310,10 @@ public class GroupCursor<T, E extends Exception> implements ICursor<T, E> {
             fListener.endGroup(fPrevValue);
             fPrevValue = null;
         }
+        if (!fFinished) {
+            fFinished = true;
+            fListener.onEnd();
+        }
     }
 
 }
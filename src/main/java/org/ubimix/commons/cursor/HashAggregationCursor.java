@@ -0,0 +1,509 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedList;
+
+import org.ubimix.commons.cursor.AggregationCursor.Aggregate;
+import org.ubimix.commons.cursor.SpillFile.SpillException;
+
+/**
+ * This cursor aggregates values with the same keys without requiring the
+ * underlying cursor to be sorted. Aggregation states are accumulated in an
+ * open-addressing hash table; one {@link Aggregate} object is returned for
+ * each key. Results are not ordered.
+ * <p>
+ * If the estimated size of the table exceeds the memory budget and
+ * serializers of keys and states are defined then partial aggregates are
+ * written in temporary files partitioned by hashes of keys. When all values
+ * are read partitions are loaded one by one, their states are combined (see
+ * {@link IAggregator#combine(Object, Object)}) and returned. Partitions
+ * which are still too big are partitioned again.
+ * </p>
+ * <p>
+ * All values of the underlying cursor are read by the first call of the
+ * {@link #loadNext()} method.
+ * </p>
+ * 
+ * @author kotelnikov
+ * @param <T> the type of aggregated values
+ * @param <K> the type of keys
+ * @param <S> the type of aggregation states
+ * @param <R> the type of aggregation results
+ * @param <E> the type of exceptions
+ */
+public class HashAggregationCursor<T, K, S, R, E extends Exception>
+    implements
+    ICursor<Aggregate<K, R>, E> {
+
+    /**
+     * A partial aggregate stored in temporary files
+     */
+    private static class Entry<K, S> {
+
+        private K fKey;
+
+        private S fState;
+
+        public Entry(K key, S state) {
+            fKey = key;
+            fState = state;
+        }
+
+    }
+
+    /**
+     * Serializes keys and states of partial aggregates
+     */
+    private class EntrySerializer implements ISerializer<Entry<K, S>> {
+
+        public Entry<K, S> read(DataInput in) throws IOException {
+            K key = fKeySerializer.read(in);
+            S state = fStateSerializer.read(in);
+            return new Entry<K, S>(key, state);
+        }
+
+        public void write(DataOutput out, Entry<K, S> value)
+            throws IOException {
+            fKeySerializer.write(out, value.fKey);
+            fStateSerializer.write(out, value.fState);
+        }
+
+    }
+
+    /**
+     * A temporary file with partial aggregates and its partitioning level
+     */
+    private static class Partition<K, S> {
+
+        private SpillFile<Entry<K, S>> fFile;
+
+        private int fLevel;
+
+        public Partition(SpillFile<Entry<K, S>> file, int level) {
+            fFile = file;
+            fLevel = level;
+        }
+
+    }
+
+    /**
+     * The default estimation of the memory size of one table entry
+     */
+    public static final long DEFAULT_ENTRY_SIZE = 96;
+
+    /**
+     * The default number of partitions created when the table does not fit in
+     * memory
+     */
+    public static final int DEFAULT_PARTITIONS = 16;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The maximal depth of recursive partitioning; partitions on this level
+     * are aggregated in memory regardless of their size
+     */
+    private static final int MAX_LEVEL = 6;
+
+    /**
+     * This object replaces <code>null</code> keys in the table
+     */
+    private static final Object NULL_KEY = new Object();
+
+    private IAggregator<T, S, R> fAggregator;
+
+    private int fCount;
+
+    private Aggregate<K, R> fCurrent;
+
+    private ICursor<T, E> fCursor;
+
+    private File fDir;
+
+    private int[] fHashes;
+
+    private IKeyExtractor<T, K> fKeyExtractor;
+
+    private Object[] fKeys;
+
+    private ISerializer<K> fKeySerializer;
+
+    private long fMemoryBudget = Long.MAX_VALUE;
+
+    private int fPartitions = DEFAULT_PARTITIONS;
+
+    private LinkedList<Partition<K, S>> fPending = new LinkedList<Partition<K, S>>();
+
+    private int fPos;
+
+    private long fSize;
+
+    private SpillFile<Entry<K, S>>[] fSpillFiles;
+
+    private int fSpillLevel;
+
+    private Object[] fStates;
+
+    private ISerializer<S> fStateSerializer;
+
+    /**
+     * Creates a new cursor keeping all aggregates in memory.
+     * 
+     * @param cursor the cursor returning values to aggregate
+     * @param keyExtractor returns keys of values
+     * @param aggregator the aggregator of values with the same keys
+     */
+    public HashAggregationCursor(
+        ICursor<T, E> cursor,
+        IKeyExtractor<T, K> keyExtractor,
+        IAggregator<T, S, R> aggregator) {
+        fCursor = cursor;
+        fKeyExtractor = keyExtractor;
+        fAggregator = aggregator;
+        clearTable();
+    }
+
+    /**
+     * Creates a new cursor with a limited memory budget.
+     * 
+     * @param cursor the cursor returning values to aggregate
+     * @param keyExtractor returns keys of values
+     * @param aggregator the aggregator of values with the same keys
+     * @param keySerializer the serializer of keys used to store partial
+     *        aggregates in temporary files
+     * @param stateSerializer the serializer of aggregation states
+     * @param memoryBudget the maximal memory size (in bytes) of the table
+     * @param dir the directory for temporary files; if it is
+     *        <code>null</code> then the default temporary directory is used
+     */
+    public HashAggregationCursor(
+        ICursor<T, E> cursor,
+        IKeyExtractor<T, K> keyExtractor,
+        IAggregator<T, S, R> aggregator,
+        ISerializer<K> keySerializer,
+        ISerializer<S> stateSerializer,
+        long memoryBudget,
+        File dir) {
+        this(cursor, keyExtractor, aggregator);
+        fKeySerializer = keySerializer;
+        fStateSerializer = stateSerializer;
+        fMemoryBudget = memoryBudget;
+        fDir = dir;
+    }
+
+    /**
+     * Adds the given value to the aggregate of its key
+     */
+    private void add(T value) {
+        K key = fKeyExtractor.getKey(value);
+        int idx = getSlot(key);
+        if (fKeys[idx] == null) {
+            S state = fAggregator.add(fAggregator.newState(), value);
+            insert(idx, key, state);
+        } else {
+            fStates[idx] = fAggregator.add(getState(idx), value);
+        }
+    }
+
+    /**
+     * Spills the table if it exceeds the memory budget.
+     */
+    private void checkBudget(int level) throws E {
+        if (fKeySerializer != null
+            && level < MAX_LEVEL
+            && fSize > fMemoryBudget) {
+            spill(level);
+        }
+    }
+
+    private void clearTable() {
+        fKeys = new Object[INITIAL_CAPACITY];
+        fStates = new Object[INITIAL_CAPACITY];
+        fHashes = new int[INITIAL_CAPACITY];
+        fCount = 0;
+        fSize = 0;
+        fPos = 0;
+    }
+
+    /**
+     * @see org.ubimix.commons.cursor.ICursor#close()
+     */
+    public void close() throws E {
+        fCurrent = null;
+        try {
+            if (fCursor != null) {
+                fCursor.close();
+                fCursor = null;
+            }
+        } finally {
+            if (fSpillFiles != null) {
+                for (SpillFile<Entry<K, S>> file : fSpillFiles) {
+                    if (file != null) {
+                        file.delete();
+                    }
+                }
+                fSpillFiles = null;
+            }
+            for (Partition<K, S> partition : fPending) {
+                partition.fFile.delete();
+            }
+            fPending.clear();
+            clearTable();
+        }
+    }
+
+    /**
+     * Combines the given partial aggregate with the aggregate of its key
+     */
+    private void combine(K key, S value) {
+        int idx = getSlot(key);
+        if (fKeys[idx] == null) {
+            insert(idx, key, value);
+        } else {
+            fStates[idx] = fAggregator.combine(getState(idx), value);
+        }
+    }
+
+    /**
+     * Finishes partition files created by the last spills and adds them to
+     * the beginning of the queue of pending partitions.
+     */
+    private void finishPartitions() throws E {
+        if (fSpillFiles == null) {
+            return;
+        }
+        spill(fSpillLevel);
+        SpillFile<Entry<K, S>>[] files = fSpillFiles;
+        fSpillFiles = null;
+        for (int i = files.length - 1; i >= 0; i--) {
+            SpillFile<Entry<K, S>> file = files[i];
+            if (file.getCount() > 0) {
+                fPending.addFirst(new Partition<K, S>(file, fSpillLevel + 1));
+            } else {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * This method is called to notify about errors with temporary files. By
+     * default it throws a {@link SpillException}. It could be overloaded in
+     * subclasses to transform the given error in the exception of the
+     * required type.
+     * 
+     * @param msg the error message
+     * @param e the original exception
+     * @throws E
+     */
+    protected void fireIOException(String msg, IOException e) throws E {
+        throw new SpillException(msg, e);
+    }
+
+    /**
+     * @see org.ubimix.commons.cursor.ICursor#getCurrent()
+     */
+    public Aggregate<K, R> getCurrent() {
+        return fCurrent;
+    }
+
+    /**
+     * Returns an estimation of the memory size of the table entry
+     * corresponding to the given key and the initial state.
+     * 
+     * @param key the key of the entry
+     * @param state the initial aggregation state
+     * @return the estimated size of the entry in bytes
+     */
+    protected long getEntrySize(K key, S state) {
+        return DEFAULT_ENTRY_SIZE;
+    }
+
+    private int getHash(Object key) {
+        return Hashes.mix(key.hashCode(), Hashes.TABLE_SEED);
+    }
+
+    @SuppressWarnings("unchecked")
+    private K getKey(int idx) {
+        Object key = fKeys[idx];
+        return key != NULL_KEY ? (K) key : null;
+    }
+
+    /**
+     * Returns the index of the slot containing the given key or the index of
+     * the empty slot where this key should be inserted.
+     */
+    private int getSlot(K key) {
+        Object k = key != null ? key : NULL_KEY;
+        int hash = getHash(k);
+        int mask = fKeys.length - 1;
+        int idx = hash & mask;
+        while (fKeys[idx] != null) {
+            if (fHashes[idx] == hash && fKeys[idx].equals(k)) {
+                break;
+            }
+            idx = (idx + 1) & mask;
+        }
+        return idx;
+    }
+
+    @SuppressWarnings("unchecked")
+    private S getState(int idx) {
+        return (S) fStates[idx];
+    }
+
+    /**
+     * Inserts a new entry in the specified empty slot of the table.
+     */
+    private void insert(int idx, K key, S state) {
+        Object k = key != null ? key : NULL_KEY;
+        fKeys[idx] = k;
+        fStates[idx] = state;
+        fHashes[idx] = getHash(k);
+        fCount++;
+        fSize += getEntrySize(key, state);
+        if (fCount * 2 > fKeys.length) {
+            resize(fKeys.length * 2);
+        }
+    }
+
+    /**
+     * @see org.ubimix.commons.cursor.ICursor#loadNext()
+     */
+    public boolean loadNext() throws E {
+        fCurrent = null;
+        if (fCursor != null) {
+            readInput();
+        }
+        while (true) {
+            while (fPos < fKeys.length) {
+                int idx = fPos++;
+                if (fKeys[idx] != null) {
+                    K key = getKey(idx);
+                    R result = fAggregator.getResult(getState(idx));
+                    fKeys[idx] = null;
+                    fStates[idx] = null;
+                    fCurrent = new Aggregate<K, R>(key, result);
+                    return true;
+                }
+            }
+            clearTable();
+            if (fPending.isEmpty()) {
+                return false;
+            }
+            readPartition(fPending.removeFirst());
+        }
+    }
+
+    /**
+     * Reads and aggregates all values of the underlying cursor
+     */
+    private void readInput() throws E {
+        ICursor<T, E> cursor = fCursor;
+        fCursor = null;
+        try {
+            while (cursor.loadNext()) {
+                add(cursor.getCurrent());
+                checkBudget(0);
+            }
+        } finally {
+            cursor.close();
+        }
+        finishPartitions();
+        fPos = 0;
+    }
+
+    /**
+     * Loads partial aggregates from the given partition and combines them in
+     * the table. The partition file is removed.
+     */
+    private void readPartition(Partition<K, S> partition) throws E {
+        try {
+            SpillFile<Entry<K, S>>.Reader reader = partition.fFile.open();
+            try {
+                while (reader.hasNext()) {
+                    Entry<K, S> entry = reader.read();
+                    combine(entry.fKey, entry.fState);
+                    checkBudget(partition.fLevel);
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            fireIOException("Can not read a partition.", e);
+        } finally {
+            partition.fFile.delete();
+        }
+        finishPartitions();
+        fPos = 0;
+    }
+
+    private void resize(int capacity) {
+        Object[] keys = fKeys;
+        Object[] states = fStates;
+        int[] hashes = fHashes;
+        fKeys = new Object[capacity];
+        fStates = new Object[capacity];
+        fHashes = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                int idx = hashes[i] & mask;
+                while (fKeys[idx] != null) {
+                    idx = (idx + 1) & mask;
+                }
+                fKeys[idx] = keys[i];
+                fStates[idx] = states[i];
+                fHashes[idx] = hashes[i];
+            }
+        }
+    }
+
+    /**
+     * Sets the number of partitions created when the table does not fit in
+     * memory.
+     */
+    public void setPartitions(int partitions) {
+        fPartitions = Math.max(2, partitions);
+    }
+
+    /**
+     * Writes all entries of the table in partition files of the specified
+     * level and clears the table.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void spill(int level) throws E {
+        try {
+            if (fSpillFiles == null) {
+                EntrySerializer serializer = new EntrySerializer();
+                fSpillFiles = new SpillFile[fPartitions];
+                fSpillLevel = level;
+                for (int i = 0; i < fSpillFiles.length; i++) {
+                    fSpillFiles[i] = new SpillFile<Entry<K, S>>(
+                        fDir,
+                        serializer);
+                }
+            }
+            for (int i = 0; i < fKeys.length; i++) {
+                if (fKeys[i] != null) {
+                    int partition = Hashes.getPartition(
+                        fKeys[i].hashCode(),
+                        fSpillLevel,
+                        fPartitions);
+                    fSpillFiles[partition].write(new Entry<K, S>(
+                        getKey(i),
+                        getState(i)));
+                }
+            }
+        } catch (IOException e) {
+            fireIOException("Can not write a partition.", e);
+        }
+        clearTable();
+    }
+
+}
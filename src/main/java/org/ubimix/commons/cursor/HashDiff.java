@@ -0,0 +1,640 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.ubimix.commons.cursor.DiffCursor.IDiffCursorListener;
+import org.ubimix.commons.cursor.SpillFile.SpillException;
+
+/**
+ * This class compares two sets of values which are not sorted. Values of both
+ * sets are identified by keys (see {@link IKeyExtractor}); each key should be
+ * present at most once in each set and it should not be <code>null</code>.
+ * Values with the same key are compared using their fingerprints (see
+ * {@link #getFingerprint(Object)}).
+ * <p>
+ * A table mapping keys to fingerprints is built from the "build" side
+ * (normally the smaller one). This table uses open addressing and keeps keys,
+ * fingerprints and states of entries in arrays, so no objects are created for
+ * individual entries. Then values of the other ("probe") side are
+ * checked against this table. Finally values of the build side are read one
+ * more time to report removed and updated values. So cursors of the build
+ * side are requested at least twice from the corresponding provider; the
+ * parameter of the provider is the number of the pass (0 or 1). Cursors of
+ * the probe side are requested only once (parameter 0).
+ * </p>
+ * <p>
+ * The listener is notified about values existing only in one set
+ * ({@link IDiffCursorListener#onValueAdded(Object)},
+ * {@link IDiffCursorListener#onValueRemoved(Object)}) and about values with
+ * the same key and different fingerprints (
+ * {@link IDiffCursorListener#onValueUpdated(Object, Object)}). Unlike the
+ * {@link DiffCursor} unchanged values are not reported. Events are not
+ * ordered.
+ * </p>
+ * <p>
+ * If the estimated size of the table exceeds the memory budget and a
+ * serializer is defined then both sides are partitioned by hashes of keys in
+ * temporary files ("grace hash" partitioning) and each partition is compared
+ * separately. Partitions which are still too big are partitioned again.
+ * Probe values with changed fingerprints are kept in memory until the build
+ * side is read again; they are counted in the memory budget as well. When the
+ * budget is exceeded these values are written in a temporary file together
+ * with the corresponding build values, and both files are compared
+ * separately.
+ * </p>
+ * 
+ * @author kotelnikov
+ * @param <T> the type of compared values
+ * @param <K> the type of keys
+ * @param <E> the type of exceptions
+ */
+public class HashDiff<T, K, E extends Exception> {
+
+    /**
+     * This provider returns cursors over values stored in a temporary file.
+     */
+    private class PartitionProvider
+        implements
+        ICursorProvider<Integer, E, ICursor<T, E>> {
+
+        private SpillFile<T> fFile;
+
+        public PartitionProvider(SpillFile<T> file) {
+            fFile = file;
+        }
+
+        public ICursor<T, E> getCursor(Integer parameter) throws E {
+            return new ICursor<T, E>() {
+
+                private T fCurrent;
+
+                private SpillFile<T>.Reader fReader;
+
+                public void close() throws E {
+                    fCurrent = null;
+                    if (fReader != null) {
+                        try {
+                            fReader.close();
+                        } catch (IOException e) {
+                            fireIOException("Can not close a partition.", e);
+                        } finally {
+                            fReader = null;
+                        }
+                    }
+                }
+
+                public T getCurrent() {
+                    return fCurrent;
+                }
+
+                public boolean loadNext() throws E {
+                    fCurrent = null;
+                    try {
+                        if (fReader == null) {
+                            fReader = fFile.open();
+                        }
+                        if (!fReader.hasNext()) {
+                            return false;
+                        }
+                        fCurrent = fReader.read();
+                        return true;
+                    } catch (IOException e) {
+                        fireIOException("Can not read a partition.", e);
+                        return false;
+                    }
+                }
+
+            };
+        }
+
+    }
+
+    /**
+     * The hash table of the build side. It uses open addressing with linear
+     * probing; keys, fingerprints and states of entries are stored in
+     * parallel arrays.
+     */
+    private static class Table<K, T> {
+
+        /**
+         * The probe side contains a different value with the same key; this
+         * value is kept in the table.
+         */
+        public static final byte CHANGED = 2;
+
+        /**
+         * The probe side contains the same value
+         */
+        public static final byte FOUND = 1;
+
+        /**
+         * The key is not found in the probe side (yet)
+         */
+        public static final byte NOT_FOUND = 0;
+
+        /**
+         * The probe side contains a different value with the same key; this
+         * value is written in a temporary file.
+         */
+        public static final byte SPILLED = 3;
+
+        private long[] fFingerprints;
+
+        private Object[] fKeys;
+
+        private int fSize;
+
+        private byte[] fStates;
+
+        private Object[] fValues;
+
+        public Table() {
+            init(16);
+        }
+
+        public long getFingerprint(int pos) {
+            return fFingerprints[pos];
+        }
+
+        /**
+         * Returns the position of the slot where the search of the given key
+         * should start.
+         */
+        private int getStart(Object key) {
+            int hash = Hashes.mix(key.hashCode(), Hashes.TABLE_SEED);
+            return hash & (fKeys.length - 1);
+        }
+
+        public byte getState(int pos) {
+            return fStates[pos];
+        }
+
+        @SuppressWarnings("unchecked")
+        public T getValue(int pos) {
+            return (T) fValues[pos];
+        }
+
+        /**
+         * Returns the position of the given key in the table or
+         * <code>-1</code> if there is no such a key.
+         */
+        public int indexOf(K key) {
+            int mask = fKeys.length - 1;
+            int pos = getStart(key);
+            Object k;
+            while ((k = fKeys[pos]) != null) {
+                if (k.equals(key)) {
+                    return pos;
+                }
+                pos = (pos + 1) & mask;
+            }
+            return -1;
+        }
+
+        private void init(int capacity) {
+            fKeys = new Object[capacity];
+            fFingerprints = new long[capacity];
+            fStates = new byte[capacity];
+            fValues = null;
+        }
+
+        public void put(K key, long fingerprint) {
+            if ((fSize + 1) * 3 > fKeys.length * 2) {
+                resize(fKeys.length * 2);
+            }
+            int mask = fKeys.length - 1;
+            int pos = getStart(key);
+            Object k;
+            while ((k = fKeys[pos]) != null) {
+                if (k.equals(key)) {
+                    fFingerprints[pos] = fingerprint;
+                    return;
+                }
+                pos = (pos + 1) & mask;
+            }
+            fKeys[pos] = key;
+            fFingerprints[pos] = fingerprint;
+            fSize++;
+        }
+
+        private void resize(int capacity) {
+            Object[] keys = fKeys;
+            long[] fingerprints = fFingerprints;
+            byte[] states = fStates;
+            Object[] values = fValues;
+            init(capacity);
+            if (values != null) {
+                fValues = new Object[capacity];
+            }
+            int mask = capacity - 1;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) {
+                    int pos = getStart(keys[i]);
+                    while (fKeys[pos] != null) {
+                        pos = (pos + 1) & mask;
+                    }
+                    fKeys[pos] = keys[i];
+                    fFingerprints[pos] = fingerprints[i];
+                    fStates[pos] = states[i];
+                    if (values != null) {
+                        fValues[pos] = values[i];
+                    }
+                }
+            }
+        }
+
+        public void setState(int pos, byte state) {
+            fStates[pos] = state;
+        }
+
+        public void setValue(int pos, T value) {
+            if (fValues == null) {
+                fValues = new Object[fKeys.length];
+            }
+            fValues[pos] = value;
+        }
+
+    }
+
+    /**
+     * The default estimation of the memory size of one table entry
+     */
+    public static final long DEFAULT_ENTRY_SIZE = 96;
+
+    /**
+     * The default number of partitions created when the table does not fit in
+     * memory
+     */
+    public static final int DEFAULT_PARTITIONS = 16;
+
+    /**
+     * The maximal depth of recursive partitioning; partitions on this level
+     * are compared in memory regardless of their size
+     */
+    private static final int MAX_LEVEL = 6;
+
+    private boolean fBuildFirst;
+
+    private File fDir;
+
+    private ICursorProvider<Integer, E, ? extends ICursor<T, E>> fFirstProvider;
+
+    private IKeyExtractor<T, K> fKeyExtractor;
+
+    private IDiffCursorListener<T, E> fListener;
+
+    private long fMemoryBudget = Long.MAX_VALUE;
+
+    private int fPartitions = DEFAULT_PARTITIONS;
+
+    private ICursorProvider<Integer, E, ? extends ICursor<T, E>> fSecondProvider;
+
+    private ISerializer<T> fSerializer;
+
+    /**
+     * Creates a new diff keeping the whole table in memory. The table is
+     * built from the first set of values.
+     * 
+     * @param keyExtractor returns keys of values
+     * @param first provider of cursors over the first set of values
+     * @param second provider of cursors over the second set of values
+     * @param listener the listener notified about differences
+     */
+    public HashDiff(
+        IKeyExtractor<T, K> keyExtractor,
+        ICursorProvider<Integer, E, ? extends ICursor<T, E>> first,
+        ICursorProvider<Integer, E, ? extends ICursor<T, E>> second,
+        IDiffCursorListener<T, E> listener) {
+        this(keyExtractor, first, second, listener, true);
+    }
+
+    /**
+     * Creates a new diff keeping the whole table in memory.
+     * 
+     * @param keyExtractor returns keys of values
+     * @param first provider of cursors over the first set of values
+     * @param second provider of cursors over the second set of values
+     * @param listener the listener notified about differences
+     * @param buildFirst if this flag is <code>true</code> then the table is
+     *        built from the first set of values; otherwise it is built from
+     *        the second one
+     */
+    public HashDiff(
+        IKeyExtractor<T, K> keyExtractor,
+        ICursorProvider<Integer, E, ? extends ICursor<T, E>> first,
+        ICursorProvider<Integer, E, ? extends ICursor<T, E>> second,
+        IDiffCursorListener<T, E> listener,
+        boolean buildFirst) {
+        fKeyExtractor = keyExtractor;
+        fFirstProvider = first;
+        fSecondProvider = second;
+        fListener = listener;
+        fBuildFirst = buildFirst;
+    }
+
+    /**
+     * Creates a new diff with a limited memory budget.
+     * 
+     * @param keyExtractor returns keys of values
+     * @param first provider of cursors over the first set of values
+     * @param second provider of cursors over the second set of values
+     * @param listener the listener notified about differences
+     * @param buildFirst if this flag is <code>true</code> then the table is
+     *        built from the first set of values; otherwise it is built from
+     *        the second one
+     * @param serializer the serializer used to store values in temporary
+     *        files
+     * @param memoryBudget the maximal memory size (in bytes) of the table
+     * @param dir the directory for temporary files; if it is
+     *        <code>null</code> then the default temporary directory is used
+     */
+    public HashDiff(
+        IKeyExtractor<T, K> keyExtractor,
+        ICursorProvider<Integer, E, ? extends ICursor<T, E>> first,
+        ICursorProvider<Integer, E, ? extends ICursor<T, E>> second,
+        IDiffCursorListener<T, E> listener,
+        boolean buildFirst,
+        ISerializer<T> serializer,
+        long memoryBudget,
+        File dir) {
+        this(keyExtractor, first, second, listener, buildFirst);
+        fSerializer = serializer;
+        fMemoryBudget = memoryBudget;
+        fDir = dir;
+    }
+
+    /**
+     * Compares values provided by the given providers. Returns
+     * <code>false</code> if the table does not fit in memory; in this case
+     * nothing is reported.
+     */
+    private boolean diff(
+        ICursorProvider<Integer, E, ? extends ICursor<T, E>> build,
+        ICursorProvider<Integer, E, ? extends ICursor<T, E>> probe,
+        int level) throws E {
+        boolean limited = fSerializer != null && level < MAX_LEVEL;
+        Table<K, T> table = new Table<K, T>();
+        long size = 0;
+        ICursor<T, E> cursor = build.getCursor(0);
+        try {
+            while (cursor.loadNext()) {
+                T value = cursor.getCurrent();
+                table.put(fKeyExtractor.getKey(value), getFingerprint(value));
+                size += getEntrySize(value);
+                if (limited && size > fMemoryBudget) {
+                    return false;
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        SpillFile<T> buildChanges = null;
+        SpillFile<T> probeChanges = null;
+        try {
+            cursor = probe.getCursor(0);
+            try {
+                while (cursor.loadNext()) {
+                    T value = cursor.getCurrent();
+                    int pos = table.indexOf(fKeyExtractor.getKey(value));
+                    if (pos < 0) {
+                        onProbeValue(value);
+                    } else if (getFingerprint(value) == table
+                        .getFingerprint(pos)) {
+                        table.setState(pos, Table.FOUND);
+                    } else {
+                        size += getEntrySize(value);
+                        if (limited && size > fMemoryBudget) {
+                            if (probeChanges == null) {
+                                buildChanges = newSpillFile();
+                                probeChanges = newSpillFile();
+                            }
+                            probeChanges.write(value);
+                            table.setState(pos, Table.SPILLED);
+                        } else {
+                            table.setValue(pos, value);
+                            table.setState(pos, Table.CHANGED);
+                        }
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+            cursor = build.getCursor(1);
+            try {
+                while (cursor.loadNext()) {
+                    T value = cursor.getCurrent();
+                    int pos = table.indexOf(fKeyExtractor.getKey(value));
+                    if (pos < 0) {
+                        throw new IllegalStateException(
+                            "The build side returned a new value: " + value);
+                    }
+                    switch (table.getState(pos)) {
+                        case Table.NOT_FOUND:
+                            onBuildValue(value);
+                            break;
+                        case Table.CHANGED:
+                            onChangedValue(value, table.getValue(pos));
+                            break;
+                        case Table.SPILLED:
+                            buildChanges.write(value);
+                            break;
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+            if (probeChanges != null) {
+                table = null;
+                buildChanges.finish();
+                probeChanges.finish();
+                run(
+                    new PartitionProvider(buildChanges),
+                    new PartitionProvider(probeChanges),
+                    level + 1);
+            }
+        } catch (IOException e) {
+            fireIOException("Can not write changed values.", e);
+        } finally {
+            if (buildChanges != null) {
+                buildChanges.delete();
+            }
+            if (probeChanges != null) {
+                probeChanges.delete();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This method is called to notify about errors with temporary files. By
+     * default it throws a {@link SpillException}. It could be overloaded in
+     * subclasses to transform the given error in the exception of the
+     * required type.
+     * 
+     * @param msg the error message
+     * @param e the original exception
+     * @throws E
+     */
+    protected void fireIOException(String msg, IOException e) throws E {
+        throw new SpillException(msg, e);
+    }
+
+    /**
+     * Returns an estimation of the memory size of the table entry
+     * corresponding to the given value. This method is also used to estimate
+     * the size of probe values with changed fingerprints kept in the table.
+     * 
+     * @param value the value
+     * @return the estimated size of the entry in bytes
+     */
+    protected long getEntrySize(T value) {
+        return DEFAULT_ENTRY_SIZE;
+    }
+
+    /**
+     * Returns the fingerprint of the given value. Values with the same key
+     * and the same fingerprint are considered as equal. By default this method
+     * returns the hash code of the value. It should be overloaded in
+     * subclasses to return stronger (64 bit) fingerprints.
+     * 
+     * @param value the value
+     * @return the fingerprint of the value
+     */
+    protected long getFingerprint(T value) {
+        return value.hashCode();
+    }
+
+    private int getPartition(T value, int level) {
+        int hash = fKeyExtractor.getKey(value).hashCode();
+        return Hashes.getPartition(hash, level, fPartitions);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private SpillFile<T>[] newPartitions() {
+        return new SpillFile[fPartitions];
+    }
+
+    private SpillFile<T> newSpillFile() throws IOException {
+        return new SpillFile<T>(fDir, fSerializer);
+    }
+
+    private void onBuildValue(T value) throws E {
+        if (fBuildFirst) {
+            fListener.onValueRemoved(value);
+        } else {
+            fListener.onValueAdded(value);
+        }
+    }
+
+    private void onChangedValue(T buildValue, T probeValue) throws E {
+        if (fBuildFirst) {
+            fListener.onValueUpdated(buildValue, probeValue);
+        } else {
+            fListener.onValueUpdated(probeValue, buildValue);
+        }
+    }
+
+    private void onProbeValue(T value) throws E {
+        if (fBuildFirst) {
+            fListener.onValueAdded(value);
+        } else {
+            fListener.onValueRemoved(value);
+        }
+    }
+
+    /**
+     * Splits values of both sides in partitions and compares each partition
+     * separately.
+     */
+    private void partition(
+        ICursorProvider<Integer, E, ? extends ICursor<T, E>> build,
+        ICursorProvider<Integer, E, ? extends ICursor<T, E>> probe,
+        int level) throws E {
+        SpillFile<T>[] buildFiles = newPartitions();
+        SpillFile<T>[] probeFiles = newPartitions();
+        try {
+            write(build, buildFiles, level);
+            write(probe, probeFiles, level);
+            for (int i = 0; i < fPartitions; i++) {
+                run(
+                    new PartitionProvider(buildFiles[i]),
+                    new PartitionProvider(probeFiles[i]),
+                    level + 1);
+                buildFiles[i].delete();
+                probeFiles[i].delete();
+            }
+        } finally {
+            for (int i = 0; i < fPartitions; i++) {
+                if (buildFiles[i] != null) {
+                    buildFiles[i].delete();
+                }
+                if (probeFiles[i] != null) {
+                    probeFiles[i].delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares both sets of values and notifies the listener about all
+     * differences.
+     * 
+     * @throws E
+     */
+    public void run() throws E {
+        if (fBuildFirst) {
+            run(fFirstProvider, fSecondProvider, 0);
+        } else {
+            run(fSecondProvider, fFirstProvider, 0);
+        }
+        fListener.onEnd();
+    }
+
+    private void run(
+        ICursorProvider<Integer, E, ? extends ICursor<T, E>> build,
+        ICursorProvider<Integer, E, ? extends ICursor<T, E>> probe,
+        int level) throws E {
+        if (!diff(build, probe, level)) {
+            partition(build, probe, level);
+        }
+    }
+
+    /**
+     * Sets the number of partitions created when the table does not fit in
+     * memory.
+     */
+    public void setPartitions(int partitions) {
+        fPartitions = Math.max(2, partitions);
+    }
+
+    /**
+     * Writes all values of the given provider in partition files.
+     */
+    private void write(
+        ICursorProvider<Integer, E, ? extends ICursor<T, E>> provider,
+        SpillFile<T>[] files,
+        int level) throws E {
+        ICursor<T, E> cursor = provider.getCursor(0);
+        try {
+            for (int i = 0; i < files.length; i++) {
+                files[i] = newSpillFile();
+            }
+            while (cursor.loadNext()) {
+                T value = cursor.getCurrent();
+                files[getPartition(value, level)].write(value);
+            }
+            for (SpillFile<T> file : files) {
+                file.finish();
+            }
+        } catch (IOException e) {
+            fireIOException("Can not write a partition.", e);
+        } finally {
+            cursor.close();
+        }
+    }
+
+}
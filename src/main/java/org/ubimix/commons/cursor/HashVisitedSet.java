@@ -0,0 +1,32 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Visited set keeping nodes in a hash set. Nodes should implement the
+ * {@link Object#equals(Object)} and {@link Object#hashCode()} methods.
+ * 
+ * @author kotelnikov
+ * @param <T> the type of nodes
+ */
+public class HashVisitedSet<T> implements IVisitedSet<T> {
+
+    private Set<T> fNodes = new HashSet<T>();
+
+    public void clear() {
+        fNodes.clear();
+    }
+
+    public int getSize() {
+        return fNodes.size();
+    }
+
+    public boolean visit(T node) {
+        return fNodes.add(node);
+    }
+
+}
@@ -0,0 +1,62 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+/**
+ * Hash functions used to distribute keys between partitions and slots of hash
+ * tables. Each level of partitioning uses its own seed, so keys of one
+ * partition are distributed independently between partitions of the next
+ * level.
+ * 
+ * @author kotelnikov
+ */
+final class Hashes {
+
+    /**
+     * The seed of slots of hash tables; it is different from seeds of all
+     * partitioning levels.
+     */
+    public static final int TABLE_SEED = 0x5BD1E995;
+
+    /**
+     * The finalization mix of the MurmurHash3 function; it is a bijection
+     * changing all bits of the result with each bit of the argument.
+     */
+    private static int fmix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    /**
+     * Returns the partition of the given hash code on the specified level.
+     * 
+     * @param hash the hash code of the key
+     * @param level the level of partitioning
+     * @param partitions the number of partitions
+     * @return the number of the partition
+     */
+    public static int getPartition(int hash, int level, int partitions) {
+        int seed = fmix((level + 1) * 0x9E3779B9);
+        return (mix(hash, seed) & Integer.MAX_VALUE) % partitions;
+    }
+
+    /**
+     * Mixes the given hash code with the seed.
+     * 
+     * @param hash the hash code of the key
+     * @param seed the seed
+     * @return the mixed hash code
+     */
+    public static int mix(int hash, int seed) {
+        return fmix(hash ^ seed);
+    }
+
+    private Hashes() {
+    }
+
+}
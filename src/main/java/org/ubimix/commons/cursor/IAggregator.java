@@ -0,0 +1,55 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+/**
+ * Aggregates values in a state object and transforms this state in a final
+ * result. States of the same aggregator can be combined together, so values
+ * could be aggregated by parts (for example in different threads or in
+ * different partitions of data) and merged after that.
+ * 
+ * @author kotelnikov
+ * @param <T> the type of aggregated values
+ * @param <S> the type of intermediate states
+ * @param <R> the type of results
+ * @see Aggregators
+ */
+public interface IAggregator<T, S, R> {
+
+    /**
+     * Adds a new value to the given state. This method can modify and return
+     * the given state object or it can return a new one.
+     * 
+     * @param state the current state
+     * @param value the value to add
+     * @return the new state
+     */
+    S add(S state, T value);
+
+    /**
+     * Combines two states. This method can modify and return one of the given
+     * states or it can return a new one.
+     * 
+     * @param first the first state
+     * @param second the second state
+     * @return a state containing values of both given states
+     */
+    S combine(S first, S second);
+
+    /**
+     * Returns the final result corresponding to the specified state
+     * 
+     * @param state the state to transform
+     * @return the result of aggregation
+     */
+    R getResult(S state);
+
+    /**
+     * Returns a new empty state
+     * 
+     * @return a new empty state
+     */
+    S newState();
+
+}
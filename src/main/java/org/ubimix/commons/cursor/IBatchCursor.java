@@ -0,0 +1,29 @@
+package org.ubimix.commons.cursor;
+
+/**
+ * Cursors implementing this interface can load elements by batches. It allows
+ * to avoid one virtual call per element in long chains of cursors. Batch and
+ * element-by-element loading could be mixed - both methods load elements from
+ * the same sequence.
+ * 
+ * @author kotelnikov
+ * @param <T> the type of elements returned by this cursor
+ * @param <E> the type of exceptions thrown by this cursor
+ */
+public interface IBatchCursor<T, E extends Exception> extends ICursor<T, E> {
+
+    /**
+     * Loads up to <code>len</code> next elements and puts them in the given
+     * buffer starting from the <code>offset</code> position. After this call
+     * the {@link #getCurrent()} method returns the last loaded element.
+     * 
+     * @param buffer the buffer to fill
+     * @param offset the first position in the buffer to fill
+     * @param len the maximal number of elements to load
+     * @return the number of loaded elements; <code>0</code> means that there
+     *         is no more elements (if the given length is not <code>0</code>)
+     * @throws E
+     */
+    int loadNext(T[] buffer, int offset, int len) throws E;
+
+}
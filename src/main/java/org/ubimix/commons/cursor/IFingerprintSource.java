@@ -0,0 +1,55 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+import java.util.List;
+
+/**
+ * A sorted source of values able to return fingerprints of key ranges
+ * without reading all values of these ranges (for example using hashes kept
+ * alongside the data). Fingerprints of equal ranges of two sources should be
+ * equal. In all methods ranges include the first key and exclude the last
+ * one; <code>null</code> bounds mean that the range is not limited on the
+ * corresponding side.
+ * 
+ * @author kotelnikov
+ * @param <T> the type of values
+ * @param <E> the type of exceptions
+ */
+public interface IFingerprintSource<T, E extends Exception> {
+
+    /**
+     * Returns a cursor over all values of the specified range
+     * 
+     * @param first the first key of the range (inclusive)
+     * @param last the last key of the range (exclusive)
+     * @return a cursor over sorted values of the range
+     * @throws E
+     */
+    ICursor<T, E> getCursor(T first, T last) throws E;
+
+    /**
+     * Returns the fingerprint of all values of the specified range
+     * 
+     * @param first the first key of the range (inclusive)
+     * @param last the last key of the range (exclusive)
+     * @return the fingerprint of the range
+     * @throws E
+     */
+    long getFingerprint(T first, T last) throws E;
+
+    /**
+     * Returns keys splitting the specified range in smaller ranges. This
+     * method returns an empty list if the range is small enough to be
+     * compared value by value.
+     * 
+     * @param first the first key of the range (inclusive)
+     * @param last the last key of the range (exclusive)
+     * @param count the required number of sub-ranges
+     * @return an ordered list of keys splitting the range
+     * @throws E
+     */
+    List<T> getSplitPoints(T first, T last, int count) throws E;
+
+}
@@ -0,0 +1,20 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+/**
+ * This is a version of the {@link ICursor} interface specialized for
+ * <code>int</code> values. It allows to iterate over primitive values without
+ * boxing.
+ * 
+ * @author kotelnikov
+ */
+public interface IIntCursor<E extends Exception> {
+
+    void close() throws E;
+
+    int getCurrent();
+
+    boolean loadNext() throws E;
+}
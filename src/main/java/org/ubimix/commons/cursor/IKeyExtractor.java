@@ -0,0 +1,25 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+/**
+ * Returns keys of values. Keys are used to find values corresponding to each
+ * other (for example in hash tables); they should implement the
+ * {@link Object#equals(Object)} and {@link Object#hashCode()} methods.
+ * 
+ * @author kotelnikov
+ * @param <T> the type of values
+ * @param <K> the type of keys
+ */
+public interface IKeyExtractor<T, K> {
+
+    /**
+     * Returns the key of the given value
+     * 
+     * @param value the value
+     * @return the key of the value
+     */
+    K getKey(T value);
+
+}
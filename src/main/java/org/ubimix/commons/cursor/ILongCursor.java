@@ -0,0 +1,20 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+/**
+ * This is a version of the {@link ICursor} interface specialized for
+ * <code>long</code> values. It allows to iterate over primitive values without
+ * boxing.
+ * 
+ * @author kotelnikov
+ */
+public interface ILongCursor<E extends Exception> {
+
+    void close() throws E;
+
+    long getCurrent();
+
+    boolean loadNext() throws E;
+}
@@ -0,0 +1,40 @@
+package org.ubimix.commons.cursor;
+
+/**
+ * Cursors implementing this interface can move forward without loading all
+ * skipped elements. Both methods define the element returned by the next call
+ * of the {@link #loadNext()} method; after these calls the value returned by
+ * the {@link #getCurrent()} method is not defined. Cursors can not move
+ * backward: if the next element is already after the requested position then
+ * these methods do nothing.
+ * 
+ * @author kotelnikov
+ * @param <T> the type of elements returned by this cursor
+ * @param <E> the type of exceptions thrown by this cursor
+ */
+public interface ISeekableCursor<T, E extends Exception> extends ICursor<T, E> {
+
+    /**
+     * Moves this cursor to the first element which is equal or greater than
+     * the specified key. The order of elements is defined by the cursor
+     * itself; for example sorted sources use the comparator used to order
+     * their elements.
+     * 
+     * @param key the key to seek
+     * @return <code>true</code> if there is an element equal or greater than
+     *         the given key
+     * @throws E
+     */
+    boolean seek(T key) throws E;
+
+    /**
+     * Skips the specified number of elements.
+     * 
+     * @param count the number of elements to skip
+     * @return the number of really skipped elements; it could be less than the
+     *         specified count if there is no more elements in this cursor
+     * @throws E
+     */
+    int skip(int count) throws E;
+
+}
@@ -0,0 +1,34 @@
+package org.ubimix.commons.cursor;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Serializers are used by cursors storing temporary data on the disk (see
+ * {@link SpillFile}).
+ * 
+ * @author kotelnikov
+ * @param <T> the type of serialized values
+ */
+public interface ISerializer<T> {
+
+    /**
+     * Reads a value from the given input
+     * 
+     * @param in the input to read
+     * @return the read value
+     * @throws IOException
+     */
+    T read(DataInput in) throws IOException;
+
+    /**
+     * Writes the given value in the output
+     * 
+     * @param out the output
+     * @param value the value to write
+     * @throws IOException
+     */
+    void write(DataOutput out, T value) throws IOException;
+
+}
@@ -0,0 +1,21 @@
+package org.ubimix.commons.cursor;
+
+/**
+ * Cursors implementing this interface know the number of elements they will
+ * return. It is the case of cursors over in-memory collections.
+ * 
+ * @author kotelnikov
+ * @param <T> the type of elements returned by this cursor
+ * @param <E> the type of exceptions thrown by this cursor
+ */
+public interface ISizedCursor<T, E extends Exception> extends ICursor<T, E> {
+
+    /**
+     * Returns the number of elements which will be returned by this cursor
+     * (by the following calls of the {@link #loadNext()} method).
+     * 
+     * @return the number of remaining elements
+     */
+    int getRemaining();
+
+}
@@ -0,0 +1,30 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+/**
+ * Cursors implementing this interface can partition their remaining elements
+ * in two independent parts. Such cursors can be processed in parallel (see
+ * {@link org.ubimix.commons.iterator.CursorSpliterator}).
+ * 
+ * @author kotelnikov
+ * @param <T> the type of elements returned by this cursor
+ * @param <E> the type of exceptions thrown by this cursor
+ */
+public interface ISplittableCursor<T, E extends Exception>
+    extends
+    ICursor<T, E> {
+
+    /**
+     * Splits remaining elements of this cursor. The returned cursor contains
+     * the first part of elements and this cursor keeps the rest. Both cursors
+     * can be used independently (for example in different threads).
+     * 
+     * @return a new cursor over the first part of remaining elements or
+     *         <code>null</code> if this cursor can not be split
+     * @throws E
+     */
+    ICursor<T, E> split() throws E;
+
+}
@@ -0,0 +1,24 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+/**
+ * A set of nodes already visited by a cursor. It is used to avoid multiple
+ * iterations over the same nodes.
+ * 
+ * @author kotelnikov
+ * @param <T> the type of nodes
+ * @see TreeCursor#setVisitedSet(IVisitedSet)
+ */
+public interface IVisitedSet<T> {
+
+    /**
+     * Marks the given node as visited.
+     * 
+     * @param node the node to mark
+     * @return <code>true</code> if the node was not visited before
+     */
+    boolean visit(T node);
+
+}
@@ -0,0 +1,193 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+/**
+ * This cursor compares two ordered sequences of <code>int</code> values and
+ * notifies about added, removed and updated values. It is a version of the
+ * {@link DiffCursor} specialized for primitive values: it returns exactly the
+ * same sequence of values and listener notifications but values are never
+ * boxed.
+ * 
+ * @author kotelnikov
+ */
+public class IntDiffCursor<E extends Exception> implements IIntCursor<E> {
+
+    /**
+     * @author kotelnikov
+     * @param <E>
+     */
+    public interface IIntDiffCursorListener<E extends Exception> {
+
+        void onValueAdded(int value) throws E;
+
+        void onValueRemoved(int value) throws E;
+
+        void onValueUpdated(int firstValue, int secondValue) throws E;
+    }
+
+    /**
+     * @author kotelnikov
+     * @param <E>
+     */
+    public static class IntDiffCursorListener<E extends Exception>
+        implements
+        IIntDiffCursorListener<E> {
+
+        public void onValueAdded(int value) throws E {
+        }
+
+        public void onValueRemoved(int value) throws E {
+        }
+
+        public void onValueUpdated(int firstValue, int secondValue) throws E {
+        }
+
+    }
+
+    private int fCurrent;
+
+    private IIntDiffCursorListener<E> fDiffCursorListener;
+
+    private IIntCursor<E> fFirstCursor;
+
+    private boolean fFirstLoaded;
+
+    private int fGroupCounter;
+
+    private boolean fHasPrevValue;
+
+    private int fPrevValue;
+
+    private boolean fProvidedByFirstCursor;
+
+    private IIntCursor<E> fSecondCursor;
+
+    private boolean fSecondLoaded;
+
+    private boolean fStarted;
+
+    public IntDiffCursor(
+        IIntCursor<E> first,
+        IIntCursor<E> second,
+        IIntDiffCursorListener<E> listener) {
+        fFirstCursor = first;
+        fSecondCursor = second;
+        fDiffCursorListener = listener;
+    }
+
+    public void close() throws E {
+        endIterations();
+        try {
+            if (fFirstCursor != null) {
+                fFirstCursor.close();
+                fFirstCursor = null;
+            }
+        } finally {
+            if (fSecondCursor != null) {
+                fSecondCursor.close();
+                fSecondCursor = null;
+            }
+        }
+    }
+
+    private void endIterations() throws E {
+        if (fHasPrevValue) {
+            finishGroup();
+            fHasPrevValue = false;
+        }
+    }
+
+    private void finishGroup() throws E {
+        if (fGroupCounter % 2 == 1) {
+            if (fProvidedByFirstCursor) {
+                fDiffCursorListener.onValueRemoved(fPrevValue);
+            } else {
+                fDiffCursorListener.onValueAdded(fPrevValue);
+            }
+        }
+    }
+
+    public int getCurrent() {
+        return fCurrent;
+    }
+
+    public boolean isValueProvidedByFirstCursor() {
+        return fProvidedByFirstCursor;
+    }
+
+    public boolean loadNext() throws E {
+        if (!fStarted) {
+            fStarted = true;
+            fFirstLoaded = fFirstCursor.loadNext();
+            fSecondLoaded = fSecondCursor.loadNext();
+        }
+        if (!fFirstLoaded && !fSecondLoaded) {
+            return false;
+        }
+        boolean first;
+        if (fFirstLoaded && fSecondLoaded) {
+            int a = fFirstCursor.getCurrent();
+            int b = fSecondCursor.getCurrent();
+            // Equal values are returned alternately by both cursors
+            first = a < b || (a == b && !fProvidedByFirstCursor);
+        } else {
+            first = fFirstLoaded;
+        }
+        int currentValue;
+        if (first) {
+            currentValue = fFirstCursor.getCurrent();
+            fFirstLoaded = fFirstCursor.loadNext();
+        } else {
+            currentValue = fSecondCursor.getCurrent();
+            fSecondLoaded = fSecondCursor.loadNext();
+        }
+        onValue(currentValue, first);
+        fCurrent = currentValue;
+        if (!fFirstLoaded && !fSecondLoaded) {
+            endIterations();
+        }
+        return true;
+    }
+
+    private void onValue(int currentValue, boolean first) throws E {
+        boolean equals = fHasPrevValue && fPrevValue == currentValue;
+        if (equals) {
+            fGroupCounter++;
+            if (fGroupCounter % 2 == 0) {
+                if (first != fProvidedByFirstCursor) {
+                    if (fProvidedByFirstCursor) {
+                        fDiffCursorListener.onValueUpdated(
+                            fPrevValue,
+                            currentValue);
+                    } else {
+                        fDiffCursorListener.onValueUpdated(
+                            currentValue,
+                            fPrevValue);
+                    }
+                } else if (fProvidedByFirstCursor) {
+                    fDiffCursorListener.onValueRemoved(fPrevValue);
+                    fDiffCursorListener.onValueRemoved(currentValue);
+                } else {
+                    fDiffCursorListener.onValueAdded(fPrevValue);
+                    fDiffCursorListener.onValueAdded(currentValue);
+                }
+            }
+        } else {
+            if (fHasPrevValue) {
+                finishGroup();
+            }
+            fGroupCounter = 1;
+        }
+        fProvidedByFirstCursor = first;
+        fPrevValue = currentValue;
+        fHasPrevValue = true;
+    }
+
+    @Override
+    public String toString() {
+        return "IntDiffCursor[" + fCurrent + "]";
+    }
+
+}
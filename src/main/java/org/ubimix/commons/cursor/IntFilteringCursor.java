@@ -0,0 +1,56 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+/**
+ * This cursor filters values from an another cursor and returns only accepted
+ * values (see the {@link #accept(int)} method). It is a version of the
+ * {@link FilteringCursor} specialized for <code>int</code> values.
+ * 
+ * @author kotelnikov
+ */
+public abstract class IntFilteringCursor<E extends Exception>
+    implements
+    IIntCursor<E> {
+
+    private int fCurrent;
+
+    private IIntCursor<E> fCursor;
+
+    /**
+     * 
+     */
+    public IntFilteringCursor(IIntCursor<E> cursor) {
+        fCursor = cursor;
+    }
+
+    protected abstract boolean accept(int current) throws E;
+
+    public void close() throws E {
+        fCursor.close();
+    }
+
+    public int getCurrent() {
+        return fCurrent;
+    }
+
+    public boolean loadNext() throws E {
+        fCurrent = 0;
+        boolean result = false;
+        while (!result && fCursor.loadNext()) {
+            int current = fCursor.getCurrent();
+            result = accept(current);
+            if (result) {
+                fCurrent = current;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "IntFilteringCursor[" + fCurrent + ":" + fCursor + "]";
+    }
+
+}
@@ -0,0 +1,132 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+/**
+ * This cursor is used to notify about begins/ends of each group of
+ * <code>int</code> values. It is a version of the {@link GroupCursor}
+ * specialized for primitive values.
+ * 
+ * @author kotelnikov
+ */
+public class IntGroupCursor<E extends Exception> implements IIntCursor<E> {
+
+    /**
+     * @author kotelnikov
+     * @param <E>
+     */
+    public interface IIntGroupListener<E extends Exception> {
+
+        /**
+         * This method is used to notify that beginning a new group of values
+         * with the specified value.
+         * 
+         * @param value
+         */
+        void beginGroup(int value) throws E;
+
+        /**
+         * This method is used to notify about the end of the group of values.
+         * 
+         * @param value the end of the group of these value.
+         */
+        void endGroup(int value) throws E;
+
+        /**
+         * This method is called to notify that the specified cursor returns a
+         * group value.
+         * 
+         * @param value
+         */
+        void onGroup(int value) throws E;
+
+        /**
+         * This method could be overloaded to re-define the comparison strategy
+         * of the given values.
+         * 
+         * @param prev previous value
+         * @param current the current value
+         * @return <code>true</code> if both values belong to the same group
+         * @throws E
+         */
+        boolean sameGroup(int prev, int current) throws E;
+
+    }
+
+    public static class IntGroupListener<E extends Exception>
+        implements
+        IIntGroupListener<E> {
+
+        public void beginGroup(int value) throws E {
+        }
+
+        public void endGroup(int value) throws E {
+        }
+
+        public void onGroup(int value) throws E {
+        }
+
+        public boolean sameGroup(int prev, int current) throws E {
+            return prev == current;
+        }
+
+    }
+
+    protected IIntCursor<E> fCursor;
+
+    private boolean fHasPrevValue;
+
+    private IIntGroupListener<E> fListener;
+
+    private int fPrevValue;
+
+    public IntGroupCursor(
+        IIntCursor<E> cursor,
+        IIntGroupListener<E> listener) {
+        fListener = listener;
+        fCursor = cursor;
+    }
+
+    public void close() throws E {
+        if (fCursor != null) {
+            onEndIterations();
+            fCursor.close();
+            fCursor = null;
+        }
+    }
+
+    public int getCurrent() {
+        return fCursor.getCurrent();
+    }
+
+    public boolean loadNext() throws E {
+        boolean result = false;
+        if (fCursor.loadNext()) {
+            result = true;
+            int currentValue = fCursor.getCurrent();
+            boolean equals = fHasPrevValue
+                && fListener.sameGroup(fPrevValue, currentValue);
+            if (!equals) {
+                if (fHasPrevValue) {
+                    fListener.endGroup(fPrevValue);
+                }
+                fListener.beginGroup(currentValue);
+            }
+            fListener.onGroup(currentValue);
+            fPrevValue = currentValue;
+            fHasPrevValue = true;
+        } else {
+            onEndIterations();
+        }
+        return result;
+    }
+
+    private void onEndIterations() throws E {
+        if (fHasPrevValue) {
+            fListener.endGroup(fPrevValue);
+            fHasPrevValue = false;
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package org.ubimix.commons.cursor;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+
+/**
+ * It is a simple implementation of the {@link IIntCursor} interface based on
+ * the Java primitive iterators.
+ * 
+ * @author kotelnikov
+ * @param <E>
+ */
+public class IntIteratorBasedCursor<E extends Exception>
+    implements
+    IIntCursor<E> {
+
+    private int fCurrent;
+
+    private PrimitiveIterator.OfInt fIterator;
+
+    public IntIteratorBasedCursor(int... list) {
+        this(Arrays.stream(list).iterator());
+    }
+
+    public IntIteratorBasedCursor(PrimitiveIterator.OfInt iterator) {
+        setIterator(iterator);
+    }
+
+    public void close() throws E {
+        fIterator = null;
+    }
+
+    public int getCurrent() {
+        return fCurrent;
+    }
+
+    public boolean loadNext() throws E {
+        fCurrent = 0;
+        if (!fIterator.hasNext()) {
+            return false;
+        }
+        fCurrent = fIterator.nextInt();
+        return true;
+    }
+
+    protected void setIterator(PrimitiveIterator.OfInt iterator) {
+        fIterator = iterator;
+        fCurrent = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "IntIteratorBasedCursor[" + fCurrent + "]";
+    }
+
+}
@@ -0,0 +1,199 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.ubimix.commons.cursor.MergeCursor.CompositeException;
+
+/**
+ * This cursor returns the intersection of multiple ordered cursors - values
+ * present in all of them. It uses the "leapfrog" algorithm: cursors are
+ * ordered by their current values and the cursor with the smallest value is
+ * moved to the biggest value of all other cursors; this operation is repeated
+ * until all cursors have the same value. Cursors implementing the
+ * {@link ISeekableCursor} interface are moved directly (so the cost of the
+ * intersection depends on the size of the smallest cursor and not on the sum
+ * of all sizes); other cursors are moved element by element.
+ * <p>
+ * Each cursor should return ordered values without duplicates. Values of the
+ * first cursor are returned by this cursor.
+ * </p>
+ * 
+ * <pre>
+ * // Example of usage:
+ * ICursor&lt;Long, E&gt; a = ...; // posting list of the first term
+ * ICursor&lt;Long, E&gt; b = ...; // posting list of the second term
+ * ICursor&lt;Long, E&gt; c = new IntersectionCursor&lt;Long, E&gt;(
+ *     comparator,
+ *     a,
+ *     b);
+ * while (c.loadNext()) {
+ *     System.out.println(c.getCurrent());
+ * }
+ * </pre>
+ * 
+ * @author kotelnikov
+ */
+public class IntersectionCursor<T, E extends Exception>
+    implements
+    ICursor<T, E> {
+
+    private enum Status {
+        NOT_STARTED, STARTED, STOPPED
+    }
+
+    private Comparator<T> fComparator;
+
+    private T fCurrent;
+
+    private List<? extends ICursor<T, E>> fCursors;
+
+    /**
+     * Cursors ordered by their current values (in a circular way starting
+     * from the {@link #fPos} position).
+     */
+    private ICursor<T, E>[] fOrder;
+
+    /**
+     * Position of the cursor with the smallest value in the {@link #fOrder}
+     * array
+     */
+    private int fPos;
+
+    private Status fStatus = Status.NOT_STARTED;
+
+    @SuppressWarnings("unchecked")
+    public IntersectionCursor(
+        Comparator<T> comparator,
+        ICursor<T, E>... cursors) {
+        this(comparator, Arrays.asList(cursors));
+    }
+
+    public IntersectionCursor(
+        Comparator<T> comparator,
+        List<? extends ICursor<T, E>> cursors) {
+        fComparator = comparator;
+        fCursors = cursors;
+    }
+
+    public void close() throws E {
+        fStatus = Status.STOPPED;
+        fCurrent = null;
+        Set<Throwable> errors = null;
+        for (ICursor<T, E> cursor : fCursors) {
+            try {
+                cursor.close();
+            } catch (Throwable t) {
+                if (errors == null) {
+                    errors = new HashSet<Throwable>();
+                }
+                errors.add(t);
+            }
+        }
+        if (errors != null) {
+            fireCompositeException("Can not close IntersectionCursor.", errors);
+        }
+    }
+
+    protected void fireCompositeException(String msg, Set<Throwable> errors)
+        throws E {
+        throw new CompositeException(msg, errors);
+    }
+
+    public T getCurrent() {
+        return fCurrent;
+    }
+
+    public boolean loadNext() throws E {
+        boolean result = false;
+        if (fStatus == Status.NOT_STARTED) {
+            result = startIterations();
+        } else if (fStatus == Status.STARTED) {
+            // All cursors have the same value; the smallest one is moved to
+            // the next value.
+            result = fOrder[fPos].loadNext();
+            if (result) {
+                fPos = (fPos + 1) % fOrder.length;
+            }
+        }
+        if (result) {
+            result = search();
+        }
+        if (!result) {
+            fStatus = Status.STOPPED;
+            fCurrent = null;
+        }
+        return result;
+    }
+
+    /**
+     * Moves cursors until all of them have the same value.
+     * 
+     * @return <code>true</code> if such a value was found and
+     *         <code>false</code> if one of the cursors is finished
+     */
+    private boolean search() throws E {
+        int k = fOrder.length;
+        T max = fOrder[(fPos + k - 1) % k].getCurrent();
+        while (true) {
+            ICursor<T, E> cursor = fOrder[fPos];
+            if (fComparator.compare(cursor.getCurrent(), max) == 0) {
+                fCurrent = fCursors.get(0).getCurrent();
+                return true;
+            }
+            if (!seek(cursor, max)) {
+                return false;
+            }
+            max = cursor.getCurrent();
+            fPos = (fPos + 1) % k;
+        }
+    }
+
+    /**
+     * Loads in the given cursor the first value equal or greater than the
+     * specified key.
+     * 
+     * @return <code>true</code> if such a value exists
+     */
+    private boolean seek(ICursor<T, E> cursor, T key) throws E {
+        if (cursor instanceof ISeekableCursor<?, ?>) {
+            return ((ISeekableCursor<T, E>) cursor).seek(key)
+                && cursor.loadNext();
+        }
+        boolean result;
+        while ((result = cursor.loadNext())
+            && fComparator.compare(cursor.getCurrent(), key) < 0) {
+        }
+        return result;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private boolean startIterations() throws E {
+        fStatus = Status.STARTED;
+        if (fCursors.isEmpty()) {
+            return false;
+        }
+        fOrder = fCursors.toArray(new ICursor[fCursors.size()]);
+        for (ICursor<T, E> cursor : fOrder) {
+            if (!cursor.loadNext()) {
+                return false;
+            }
+        }
+        Arrays.sort(fOrder, new MergeCursor.DefaultCursorComparator<T, E>(
+            fComparator));
+        fPos = 0;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "IntersectionCursor[" + fCurrent + ":" + fCursors + "]";
+    }
+
+}
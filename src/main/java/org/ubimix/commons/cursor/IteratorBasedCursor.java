@@ -12,7 +12,7 @@ import java.util.Iterator;
  */
 public class IteratorBasedCursor<T, E extends Exception>
     implements
-    ICursor<T, E> {
+    IBatchCursor<T, E> {
 
     private T fCurrent;
 
@@ -47,6 +47,15 @@ public class IteratorBasedCursor<T, E extends Exception>
         return true;
     }
 
+    public int loadNext(T[] buffer, int offset, int len) throws E {
+        int count = 0;
+        while (count < len && fIterator.hasNext()) {
+            buffer[offset + count++] = fIterator.next();
+        }
+        fCurrent = count > 0 ? buffer[offset + count - 1] : null;
+        return count;
+    }
+
     protected void setIterator(Iterator<? extends T> iterator) {
         fIterator = iterator;
         fCurrent = null;
@@ -0,0 +1,215 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A merge cursor opening its inputs only when they are needed. Each input is
+ * defined by a cursor provider and by the minimal key of its elements (see
+ * {@link Input}). An input is opened only when the merge reaches its lower
+ * bound, i.e. when all elements before this bound are already returned. So
+ * inputs starting far from the current position (like time-partitioned data)
+ * do not keep open files or memory.
+ * <p>
+ * Cursors of inputs are requested from providers with the lower bound of the
+ * input as the parameter. Cursors should never return elements smaller than
+ * their lower bound. Like the {@link MergeCursor} this cursor is stable:
+ * equal elements are returned in the order of inputs.
+ * </p>
+ * 
+ * @author kotelnikov
+ * @param <T> the type of merged elements
+ * @param <E> the type of exceptions
+ */
+public class LazyMergeCursor<T, E extends Exception> implements ICursor<T, E> {
+
+    /**
+     * An opened input and its position in the list of inputs
+     */
+    private static class Head<T, E extends Exception> {
+
+        private ICursor<T, E> fCursor;
+
+        private int fIndex;
+
+        public Head(ICursor<T, E> cursor, int index) {
+            fCursor = cursor;
+            fIndex = index;
+        }
+
+    }
+
+    /**
+     * A lazily opened input of the merge
+     * 
+     * @author kotelnikov
+     * @param <T> the type of merged elements
+     * @param <E> the type of exceptions
+     */
+    public static class Input<T, E extends Exception> {
+
+        private T fLowerBound;
+
+        private ICursorProvider<T, E, ? extends ICursor<T, E>> fProvider;
+
+        /**
+         * @param provider the provider of the cursor of this input
+         * @param lowerBound the minimal key of elements of this input
+         */
+        public Input(
+            ICursorProvider<T, E, ? extends ICursor<T, E>> provider,
+            T lowerBound) {
+            fProvider = provider;
+            fLowerBound = lowerBound;
+        }
+
+        public T getLowerBound() {
+            return fLowerBound;
+        }
+
+        public ICursorProvider<T, E, ? extends ICursor<T, E>> getProvider() {
+            return fProvider;
+        }
+
+    }
+
+    private Comparator<T> fComparator;
+
+    private T fCurrent;
+
+    private List<Input<T, E>> fInputs;
+
+    private int fOpened;
+
+    /**
+     * Positions of inputs sorted by their lower bounds
+     */
+    private Integer[] fOrder;
+
+    private PriorityQueue<Head<T, E>> fQueue;
+
+    private Head<T, E> fWinner;
+
+    /**
+     * @param comparator the comparator of elements
+     * @param inputs the inputs to merge
+     */
+    public LazyMergeCursor(
+        final Comparator<T> comparator,
+        List<Input<T, E>> inputs) {
+        fComparator = comparator;
+        fInputs = new ArrayList<Input<T, E>>(inputs);
+        fOrder = new Integer[fInputs.size()];
+        for (int i = 0; i < fOrder.length; i++) {
+            fOrder[i] = i;
+        }
+        // The sort is stable, so inputs with equal bounds keep their order
+        Arrays.sort(fOrder, new Comparator<Integer>() {
+            public int compare(Integer o1, Integer o2) {
+                return comparator.compare(
+                    fInputs.get(o1).fLowerBound,
+                    fInputs.get(o2).fLowerBound);
+            }
+        });
+        fQueue = new PriorityQueue<Head<T, E>>(
+            Math.max(1, fInputs.size()),
+            new Comparator<Head<T, E>>() {
+                public int compare(Head<T, E> o1, Head<T, E> o2) {
+                    int result = comparator.compare(
+                        o1.fCursor.getCurrent(),
+                        o2.fCursor.getCurrent());
+                    if (result == 0) {
+                        result = o1.fIndex < o2.fIndex ? -1 : 1;
+                    }
+                    return result;
+                }
+            });
+    }
+
+    /**
+     * @see org.ubimix.commons.cursor.ICursor#close()
+     */
+    public void close() throws E {
+        fCurrent = null;
+        fOpened = fInputs.size();
+        try {
+            if (fWinner != null) {
+                fWinner.fCursor.close();
+                fWinner = null;
+            }
+        } finally {
+            while (!fQueue.isEmpty()) {
+                fQueue.poll().fCursor.close();
+            }
+        }
+    }
+
+    /**
+     * @see org.ubimix.commons.cursor.ICursor#getCurrent()
+     */
+    public T getCurrent() {
+        return fCurrent;
+    }
+
+    /**
+     * Returns the number of inputs opened (or skipped) since the beginning of
+     * iterations
+     * 
+     * @return the number of opened inputs
+     */
+    public int getOpenedCount() {
+        return fOpened;
+    }
+
+    /**
+     * @see org.ubimix.commons.cursor.ICursor#loadNext()
+     */
+    public boolean loadNext() throws E {
+        fCurrent = null;
+        if (fWinner != null) {
+            // The winner is moved only now, so the current value stays valid
+            // until the next element is requested
+            Head<T, E> winner = fWinner;
+            fWinner = null;
+            if (winner.fCursor.loadNext()) {
+                fQueue.add(winner);
+            } else {
+                winner.fCursor.close();
+            }
+        }
+        while (fOpened < fOrder.length) {
+            int index = fOrder[fOpened];
+            Input<T, E> input = fInputs.get(index);
+            Head<T, E> top = fQueue.peek();
+            if (top != null
+                && fComparator.compare(
+                    input.fLowerBound,
+                    top.fCursor.getCurrent()) > 0) {
+                break;
+            }
+            fOpened++;
+            ICursor<T, E> cursor = input.fProvider.getCursor(input.fLowerBound);
+            if (cursor == null) {
+                continue;
+            }
+            if (cursor.loadNext()) {
+                fQueue.add(new Head<T, E>(cursor, index));
+            } else {
+                cursor.close();
+            }
+        }
+        fWinner = fQueue.poll();
+        if (fWinner == null) {
+            return false;
+        }
+        fCurrent = fWinner.fCursor.getCurrent();
+        return true;
+    }
+
+}
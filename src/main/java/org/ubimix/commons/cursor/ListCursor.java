@@ -0,0 +1,193 @@
+package org.ubimix.commons.cursor;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * This cursor returns elements of a list with random access to elements (see
+ * {@link RandomAccess}) or of an array. It skips elements in constant time. If
+ * the list is sorted then the {@link #seek(Object)} method uses exponential
+ * ("galloping") search forward from the current position followed by a binary
+ * search, so seeking to an element at the distance d costs O(log d)
+ * comparisons. By default elements are compared using their natural order.
+ * 
+ * @author kotelnikov
+ * @param <T> the type of elements returned by this cursor
+ * @param <E> the type of exceptions thrown by this cursor
+ */
+public class ListCursor<T, E extends Exception>
+    implements
+    ISeekableCursor<T, E>,
+    ISizedCursor<T, E>,
+    ISplittableCursor<T, E>,
+    IBatchCursor<T, E> {
+
+    private Comparator<? super T> fComparator;
+
+    private T fCurrent;
+
+    private List<? extends T> fList;
+
+    /**
+     * Position of the next element to return
+     */
+    private int fPos;
+
+    /**
+     * Position after the last element returned by this cursor
+     */
+    private int fTo;
+
+    @SuppressWarnings("unchecked")
+    public ListCursor(Comparator<? super T> comparator, T... list) {
+        this(Arrays.asList(list), comparator);
+    }
+
+    public ListCursor(List<? extends T> list) {
+        this(list, DefaultComparator.<T> newComparator());
+    }
+
+    public ListCursor(
+        List<? extends T> list,
+        Comparator<? super T> comparator) {
+        this(list, 0, list.size(), comparator);
+    }
+
+    /**
+     * Creates a cursor over a range of list elements.
+     * 
+     * @param list the list of elements
+     * @param from the position of the first element (inclusive)
+     * @param to the position after the last element (exclusive)
+     * @param comparator the comparator used to order elements in the list
+     */
+    public ListCursor(
+        List<? extends T> list,
+        int from,
+        int to,
+        Comparator<? super T> comparator) {
+        fList = list;
+        fPos = from;
+        fTo = to;
+        fComparator = comparator;
+    }
+
+    @SuppressWarnings("unchecked")
+    public ListCursor(T... list) {
+        this(Arrays.asList(list));
+    }
+
+    public void close() throws E {
+        fPos = fTo;
+        fCurrent = null;
+    }
+
+    public T getCurrent() {
+        return fCurrent;
+    }
+
+    public Comparator<? super T> getComparator() {
+        return fComparator;
+    }
+
+    public List<? extends T> getList() {
+        return fList;
+    }
+
+    /**
+     * Returns the position of the next element returned by this cursor.
+     * 
+     * @return the position of the next element returned by this cursor
+     */
+    public int getPosition() {
+        return fPos;
+    }
+
+    public int getRemaining() {
+        return fTo - fPos;
+    }
+
+    public boolean loadNext() throws E {
+        if (fPos >= fTo) {
+            fCurrent = null;
+            return false;
+        }
+        fCurrent = fList.get(fPos++);
+        return true;
+    }
+
+    public int loadNext(T[] buffer, int offset, int len) throws E {
+        int count = Math.max(0, Math.min(len, fTo - fPos));
+        for (int i = 0; i < count; i++) {
+            buffer[offset + i] = fList.get(fPos++);
+        }
+        fCurrent = count > 0 ? buffer[offset + count - 1] : null;
+        return count;
+    }
+
+    /**
+     * Finds the first element equal or greater than the given key. This
+     * method checks elements at exponentially growing distances from the
+     * current position (1, 2, 4, 8...) and then uses binary search in the last
+     * interval.
+     * 
+     * @see org.ubimix.commons.cursor.ISeekableCursor#seek(java.lang.Object)
+     */
+    public boolean seek(T key) throws E {
+        int low = fPos;
+        int high = fPos;
+        int step = 1;
+        while (high < fTo && fComparator.compare(fList.get(high), key) < 0) {
+            low = high + 1;
+            high = step < fTo - high ? high + step : fTo;
+            step <<= 1;
+        }
+        // All elements before the "low" position are less than the key
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (fComparator.compare(fList.get(mid), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        fPos = low;
+        fCurrent = null;
+        return fPos < fTo;
+    }
+
+    /**
+     * Returns a cursor over the first half of remaining elements; this cursor
+     * keeps the second half.
+     * 
+     * @see org.ubimix.commons.cursor.ISplittableCursor#split()
+     */
+    public ICursor<T, E> split() throws E {
+        int mid = fPos + (fTo - fPos) / 2;
+        if (mid == fPos) {
+            return null;
+        }
+        ListCursor<T, E> result = new ListCursor<T, E>(
+            fList,
+            fPos,
+            mid,
+            fComparator);
+        fPos = mid;
+        return result;
+    }
+
+    public int skip(int count) throws E {
+        int result = Math.max(0, Math.min(count, fTo - fPos));
+        fPos += result;
+        fCurrent = null;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ListCursor[" + fCurrent + ":" + fPos + "]";
+    }
+
+}
@@ -0,0 +1,122 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A fingerprint source over a sorted list of values. The fingerprint of a
+ * range is the sum of hashes of all its values, so fingerprints of all ranges
+ * are calculated in constant time using prefix sums.
+ * 
+ * @author kotelnikov
+ * @param <T> the type of values
+ * @param <E> the type of exceptions
+ */
+public class ListFingerprintSource<T, E extends Exception>
+    implements
+    IFingerprintSource<T, E> {
+
+    /**
+     * Ranges with this number of values (or less) are not split
+     */
+    public static final int DEFAULT_LEAF_SIZE = 64;
+
+    private Comparator<? super T> fComparator;
+
+    private int fLeafSize = DEFAULT_LEAF_SIZE;
+
+    private List<? extends T> fList;
+
+    /**
+     * The cell i contains the sum of hashes of the first i values
+     */
+    private long[] fSums;
+
+    public ListFingerprintSource(
+        List<? extends T> list,
+        Comparator<? super T> comparator) {
+        fList = list;
+        fComparator = comparator;
+        fSums = new long[list.size() + 1];
+        for (int i = 0; i < list.size(); i++) {
+            fSums[i + 1] = fSums[i] + getHash(list.get(i));
+        }
+    }
+
+    public ICursor<T, E> getCursor(T first, T last) throws E {
+        return new ListCursor<T, E>(
+            fList,
+            getPosition(first, 0),
+            getPosition(last, fList.size()),
+            fComparator);
+    }
+
+    public long getFingerprint(T first, T last) throws E {
+        int from = getPosition(first, 0);
+        int to = getPosition(last, fList.size());
+        return fSums[to] - fSums[from];
+    }
+
+    /**
+     * Returns the hash of the given value. By default it mixes bits of the
+     * hash code of the value. This method could be overloaded in subclasses to
+     * return stronger hashes.
+     * 
+     * @param value the value
+     * @return the hash of the value
+     */
+    protected long getHash(T value) {
+        long hash = value.hashCode() * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 32;
+        return hash * 0xBF58476D1CE4E5B9L;
+    }
+
+    public int getLeafSize() {
+        return fLeafSize;
+    }
+
+    /**
+     * Returns the position of the first value equal or greater than the
+     * given key.
+     */
+    private int getPosition(T key, int defaultPos) {
+        if (key == null) {
+            return defaultPos;
+        }
+        int low = 0;
+        int high = fList.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (fComparator.compare(fList.get(mid), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public List<T> getSplitPoints(T first, T last, int count) throws E {
+        int from = getPosition(first, 0);
+        int to = getPosition(last, fList.size());
+        int size = to - from;
+        if (size <= fLeafSize || count < 2) {
+            return Collections.emptyList();
+        }
+        List<T> result = new ArrayList<T>();
+        for (int i = 1; i < count; i++) {
+            result.add(fList.get(from + (int) ((long) size * i / count)));
+        }
+        return result;
+    }
+
+    public void setLeafSize(int leafSize) {
+        fLeafSize = leafSize;
+    }
+
+}
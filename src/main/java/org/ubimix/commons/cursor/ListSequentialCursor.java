@@ -0,0 +1,86 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This cursor returns elements of a known list of cursors one after another.
+ * While no elements were loaded the remaining cursors can be split in two
+ * groups (see {@link ISplittableCursor}). A single remaining cursor is split
+ * if it implements the {@link ISplittableCursor} interface itself.
+ * 
+ * @author kotelnikov
+ * @param <T> the type of elements returned by this cursor
+ * @param <E> the type of exceptions thrown by this cursor
+ */
+public class ListSequentialCursor<T, E extends Exception>
+    extends
+    SequentialCursor<T, E>
+    implements
+    ISplittableCursor<T, E> {
+
+    private List<? extends ICursor<T, E>> fCursors;
+
+    /**
+     * The position of the next cursor to load
+     */
+    private int fPos;
+
+    @SuppressWarnings("unchecked")
+    public ListSequentialCursor(ICursor<T, E>... cursors) {
+        this(Arrays.asList(cursors));
+    }
+
+    public ListSequentialCursor(List<? extends ICursor<T, E>> cursors) {
+        fCursors = cursors;
+    }
+
+    @Override
+    public void close() throws E {
+        super.close();
+        while (fPos < fCursors.size()) {
+            fCursors.get(fPos++).close();
+        }
+    }
+
+    @Override
+    protected ICursor<T, E> loadNextCursor(ICursor<T, E> cursor) throws E {
+        return fPos < fCursors.size() ? fCursors.get(fPos++) : null;
+    }
+
+    /**
+     * Returns a cursor over the first half of remaining sub-cursors if
+     * iterations were not started yet.
+     * 
+     * @see org.ubimix.commons.cursor.ISplittableCursor#split()
+     */
+    public ICursor<T, E> split() throws E {
+        if (fPos > 0) {
+            return null;
+        }
+        int size = fCursors.size();
+        if (size == 1) {
+            ICursor<T, E> cursor = fCursors.get(0);
+            ICursor<T, E> part = null;
+            if (cursor instanceof ISplittableCursor<?, ?>) {
+                part = ((ISplittableCursor<T, E>) cursor).split();
+            }
+            return part != null ? new ListSequentialCursor<T, E>(Collections
+                .singletonList(part)) : null;
+        }
+        int mid = size / 2;
+        if (mid == 0) {
+            return null;
+        }
+        List<ICursor<T, E>> first = new ArrayList<ICursor<T, E>>(fCursors
+            .subList(0, mid));
+        fCursors = new ArrayList<ICursor<T, E>>(fCursors.subList(mid, size));
+        return new ListSequentialCursor<T, E>(first);
+    }
+
+}
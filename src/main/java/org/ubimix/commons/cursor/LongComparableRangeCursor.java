@@ -0,0 +1,100 @@
+package org.ubimix.commons.cursor;
+
+/**
+ * This cursor is used to return a range of values from an ordered sequence of
+ * <code>long</code> values provided by an another cursor. It is a version of
+ * the {@link ComparableRangeCursor} specialized for primitive values; values
+ * are compared using their natural order.
+ * 
+ * @author kotelnikov
+ * @param <E>
+ */
+public class LongComparableRangeCursor<E extends Exception>
+    implements
+    ILongCursor<E> {
+
+    private long fCurrent;
+
+    private ILongCursor<E> fCursor;
+
+    private long fFirst;
+
+    private boolean fFinished;
+
+    private boolean fIncludeFirst;
+
+    private boolean fIncludeLast;
+
+    private long fLast;
+
+    private boolean fStarted;
+
+    public LongComparableRangeCursor(
+        ILongCursor<E> cursor,
+        long first,
+        boolean includeFirst,
+        long last,
+        boolean includeLast) {
+        fCursor = cursor;
+        fFirst = first;
+        fIncludeFirst = includeFirst;
+        fLast = last;
+        fIncludeLast = includeLast;
+    }
+
+    public LongComparableRangeCursor(
+        ILongCursor<E> cursor,
+        long first,
+        long last) {
+        this(cursor, first, true, last, true);
+    }
+
+    public void close() throws E {
+        fCursor.close();
+        fCurrent = 0;
+    }
+
+    public long getCurrent() {
+        return fCurrent;
+    }
+
+    private boolean isAfter(long value) {
+        return value > fLast || (value == fLast && !fIncludeLast);
+    }
+
+    private boolean isBefore(long value) {
+        return value < fFirst || (value == fFirst && !fIncludeFirst);
+    }
+
+    public boolean loadNext() throws E {
+        fCurrent = 0;
+        if (fFinished) {
+            return false;
+        }
+        boolean result;
+        if (!fStarted) {
+            fStarted = true;
+            // Skip all entries until the start position
+            while ((result = fCursor.loadNext())
+                && isBefore(fCursor.getCurrent())) {
+            }
+        } else {
+            result = fCursor.loadNext();
+        }
+        if (result) {
+            long current = fCursor.getCurrent();
+            fFinished = isAfter(current);
+            result = !fFinished;
+            if (result) {
+                fCurrent = current;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "LongComparableRangeCursor[" + fCurrent + ":" + fCursor + "]";
+    }
+
+}
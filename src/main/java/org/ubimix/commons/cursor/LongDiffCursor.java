@@ -0,0 +1,193 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+/**
+ * This cursor compares two ordered sequences of <code>long</code> values and
+ * notifies about added, removed and updated values. It is a version of the
+ * {@link DiffCursor} specialized for primitive values: it returns exactly the
+ * same sequence of values and listener notifications but values are never
+ * boxed.
+ * 
+ * @author kotelnikov
+ */
+public class LongDiffCursor<E extends Exception> implements ILongCursor<E> {
+
+    /**
+     * @author kotelnikov
+     * @param <E>
+     */
+    public interface ILongDiffCursorListener<E extends Exception> {
+
+        void onValueAdded(long value) throws E;
+
+        void onValueRemoved(long value) throws E;
+
+        void onValueUpdated(long firstValue, long secondValue) throws E;
+    }
+
+    /**
+     * @author kotelnikov
+     * @param <E>
+     */
+    public static class LongDiffCursorListener<E extends Exception>
+        implements
+        ILongDiffCursorListener<E> {
+
+        public void onValueAdded(long value) throws E {
+        }
+
+        public void onValueRemoved(long value) throws E {
+        }
+
+        public void onValueUpdated(long firstValue, long secondValue) throws E {
+        }
+
+    }
+
+    private long fCurrent;
+
+    private ILongDiffCursorListener<E> fDiffCursorListener;
+
+    private ILongCursor<E> fFirstCursor;
+
+    private boolean fFirstLoaded;
+
+    private int fGroupCounter;
+
+    private boolean fHasPrevValue;
+
+    private long fPrevValue;
+
+    private boolean fProvidedByFirstCursor;
+
+    private ILongCursor<E> fSecondCursor;
+
+    private boolean fSecondLoaded;
+
+    private boolean fStarted;
+
+    public LongDiffCursor(
+        ILongCursor<E> first,
+        ILongCursor<E> second,
+        ILongDiffCursorListener<E> listener) {
+        fFirstCursor = first;
+        fSecondCursor = second;
+        fDiffCursorListener = listener;
+    }
+
+    public void close() throws E {
+        endIterations();
+        try {
+            if (fFirstCursor != null) {
+                fFirstCursor.close();
+                fFirstCursor = null;
+            }
+        } finally {
+            if (fSecondCursor != null) {
+                fSecondCursor.close();
+                fSecondCursor = null;
+            }
+        }
+    }
+
+    private void endIterations() throws E {
+        if (fHasPrevValue) {
+            finishGroup();
+            fHasPrevValue = false;
+        }
+    }
+
+    private void finishGroup() throws E {
+        if (fGroupCounter % 2 == 1) {
+            if (fProvidedByFirstCursor) {
+                fDiffCursorListener.onValueRemoved(fPrevValue);
+            } else {
+                fDiffCursorListener.onValueAdded(fPrevValue);
+            }
+        }
+    }
+
+    public long getCurrent() {
+        return fCurrent;
+    }
+
+    public boolean isValueProvidedByFirstCursor() {
+        return fProvidedByFirstCursor;
+    }
+
+    public boolean loadNext() throws E {
+        if (!fStarted) {
+            fStarted = true;
+            fFirstLoaded = fFirstCursor.loadNext();
+            fSecondLoaded = fSecondCursor.loadNext();
+        }
+        if (!fFirstLoaded && !fSecondLoaded) {
+            return false;
+        }
+        boolean first;
+        if (fFirstLoaded && fSecondLoaded) {
+            long a = fFirstCursor.getCurrent();
+            long b = fSecondCursor.getCurrent();
+            // Equal values are returned alternately by both cursors
+            first = a < b || (a == b && !fProvidedByFirstCursor);
+        } else {
+            first = fFirstLoaded;
+        }
+        long currentValue;
+        if (first) {
+            currentValue = fFirstCursor.getCurrent();
+            fFirstLoaded = fFirstCursor.loadNext();
+        } else {
+            currentValue = fSecondCursor.getCurrent();
+            fSecondLoaded = fSecondCursor.loadNext();
+        }
+        onValue(currentValue, first);
+        fCurrent = currentValue;
+        if (!fFirstLoaded && !fSecondLoaded) {
+            endIterations();
+        }
+        return true;
+    }
+
+    private void onValue(long currentValue, boolean first) throws E {
+        boolean equals = fHasPrevValue && fPrevValue == currentValue;
+        if (equals) {
+            fGroupCounter++;
+            if (fGroupCounter % 2 == 0) {
+                if (first != fProvidedByFirstCursor) {
+                    if (fProvidedByFirstCursor) {
+                        fDiffCursorListener.onValueUpdated(
+                            fPrevValue,
+                            currentValue);
+                    } else {
+                        fDiffCursorListener.onValueUpdated(
+                            currentValue,
+                            fPrevValue);
+                    }
+                } else if (fProvidedByFirstCursor) {
+                    fDiffCursorListener.onValueRemoved(fPrevValue);
+                    fDiffCursorListener.onValueRemoved(currentValue);
+                } else {
+                    fDiffCursorListener.onValueAdded(fPrevValue);
+                    fDiffCursorListener.onValueAdded(currentValue);
+                }
+            }
+        } else {
+            if (fHasPrevValue) {
+                finishGroup();
+            }
+            fGroupCounter = 1;
+        }
+        fProvidedByFirstCursor = first;
+        fPrevValue = currentValue;
+        fHasPrevValue = true;
+    }
+
+    @Override
+    public String toString() {
+        return "LongDiffCursor[" + fCurrent + "]";
+    }
+
+}
@@ -0,0 +1,56 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+/**
+ * This cursor filters values from an another cursor and returns only accepted
+ * values (see the {@link #accept(long)} method). It is a version of the
+ * {@link FilteringCursor} specialized for <code>long</code> values.
+ * 
+ * @author kotelnikov
+ */
+public abstract class LongFilteringCursor<E extends Exception>
+    implements
+    ILongCursor<E> {
+
+    private long fCurrent;
+
+    private ILongCursor<E> fCursor;
+
+    /**
+     * 
+     */
+    public LongFilteringCursor(ILongCursor<E> cursor) {
+        fCursor = cursor;
+    }
+
+    protected abstract boolean accept(long current) throws E;
+
+    public void close() throws E {
+        fCursor.close();
+    }
+
+    public long getCurrent() {
+        return fCurrent;
+    }
+
+    public boolean loadNext() throws E {
+        fCurrent = 0;
+        boolean result = false;
+        while (!result && fCursor.loadNext()) {
+            long current = fCursor.getCurrent();
+            result = accept(current);
+            if (result) {
+                fCurrent = current;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "LongFilteringCursor[" + fCurrent + ":" + fCursor + "]";
+    }
+
+}
@@ -0,0 +1,56 @@
+package org.ubimix.commons.cursor;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+
+/**
+ * It is a simple implementation of the {@link ILongCursor} interface based on
+ * the Java primitive iterators.
+ * 
+ * @author kotelnikov
+ * @param <E>
+ */
+public class LongIteratorBasedCursor<E extends Exception>
+    implements
+    ILongCursor<E> {
+
+    private long fCurrent;
+
+    private PrimitiveIterator.OfLong fIterator;
+
+    public LongIteratorBasedCursor(long... list) {
+        this(Arrays.stream(list).iterator());
+    }
+
+    public LongIteratorBasedCursor(PrimitiveIterator.OfLong iterator) {
+        setIterator(iterator);
+    }
+
+    public void close() throws E {
+        fIterator = null;
+    }
+
+    public long getCurrent() {
+        return fCurrent;
+    }
+
+    public boolean loadNext() throws E {
+        fCurrent = 0;
+        if (!fIterator.hasNext()) {
+            return false;
+        }
+        fCurrent = fIterator.nextLong();
+        return true;
+    }
+
+    protected void setIterator(PrimitiveIterator.OfLong iterator) {
+        fIterator = iterator;
+        fCurrent = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "LongIteratorBasedCursor[" + fCurrent + "]";
+    }
+
+}
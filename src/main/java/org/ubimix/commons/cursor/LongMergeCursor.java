@@ -0,0 +1,218 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.ubimix.commons.cursor.MergeCursor.CompositeException;
+
+/**
+ * This cursor is used to merge ordered <code>long</code> values provided by
+ * multiple cursors. It is a version of the {@link MergeCursor} specialized for
+ * primitive values: values are compared using their natural order and they are
+ * never boxed. Equal values are returned in the order of cursors.
+ * 
+ * @author kotelnikov
+ */
+public class LongMergeCursor<E extends Exception> implements ILongCursor<E> {
+
+    private enum Status {
+        NOT_STARTED, STARTED, STOPPED
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static <E extends Exception> ILongCursor<E>[] newArray(int size) {
+        return new ILongCursor[size];
+    }
+
+    private long fCurrentValue;
+
+    /**
+     * Leaves of the tournament tree. Exhausted (and already closed) cursors
+     * are replaced by <code>null</code> values.
+     */
+    private ILongCursor<E>[] fCursors;
+
+    /**
+     * Current values of all cursors; used to avoid calls of cursors for each
+     * comparison.
+     */
+    private long[] fHeads;
+
+    private Status fStatus = Status.NOT_STARTED;
+
+    /**
+     * The "loser tree" used to select the smallest head of all cursors. See
+     * the {@link MergeCursor} class for details.
+     */
+    private int[] fTree = new int[0];
+
+    @SuppressWarnings("unchecked")
+    public LongMergeCursor(ILongCursor<E>... cursors) {
+        this(Arrays.asList(cursors));
+    }
+
+    public LongMergeCursor(List<? extends ILongCursor<E>> cursors) {
+        fCursors = cursors.toArray(LongMergeCursor.<E> newArray(cursors
+            .size()));
+        fHeads = new long[fCursors.length];
+    }
+
+    private void buildTree() {
+        int k = fCursors.length;
+        fTree = new int[k];
+        if (k == 0) {
+            return;
+        }
+        int[] winners = new int[2 * k];
+        for (int i = 0; i < k; i++) {
+            winners[k + i] = i;
+        }
+        for (int n = k - 1; n > 0; n--) {
+            int first = winners[2 * n];
+            int second = winners[2 * n + 1];
+            if (isBefore(first, second)) {
+                winners[n] = first;
+                fTree[n] = second;
+            } else {
+                winners[n] = second;
+                fTree[n] = first;
+            }
+        }
+        fTree[0] = winners[1];
+    }
+
+    public void close() throws E {
+        endIterations();
+        Set<Throwable> errors = null;
+        for (int i = 0; i < fCursors.length; i++) {
+            ILongCursor<E> cursor = fCursors[i];
+            if (cursor == null) {
+                continue;
+            }
+            fCursors[i] = null;
+            try {
+                cursor.close();
+            } catch (Throwable t) {
+                if (errors == null) {
+                    errors = new HashSet<Throwable>();
+                }
+                errors.add(t);
+            }
+        }
+        if (errors != null) {
+            fireCompositeException("Can not close LongMergeCursor.", errors);
+        }
+    }
+
+    private void endIterations() throws E {
+        if (fStatus == Status.STARTED) {
+            fStatus = Status.STOPPED;
+            onEndIterations();
+        }
+    }
+
+    protected void fireCompositeException(String msg, Set<Throwable> errors)
+        throws E {
+        throw new CompositeException(msg, errors);
+    }
+
+    public long getCurrent() {
+        return fCurrentValue;
+    }
+
+    private boolean hasWinner() {
+        return fTree.length > 0 && fCursors[fTree[0]] != null;
+    }
+
+    private boolean isBefore(int first, int second) {
+        if (fCursors[first] == null || fCursors[second] == null) {
+            return fCursors[second] == null
+                && (fCursors[first] != null || first < second);
+        }
+        long a = fHeads[first];
+        long b = fHeads[second];
+        return a < b || (a == b && first < second);
+    }
+
+    public boolean loadNext() throws E {
+        if (fStatus == Status.NOT_STARTED) {
+            fStatus = Status.STARTED;
+            for (int i = 0; i < fCursors.length; i++) {
+                ILongCursor<E> cursor = fCursors[i];
+                if (cursor.loadNext()) {
+                    fHeads[i] = cursor.getCurrent();
+                } else {
+                    fCursors[i] = null;
+                    cursor.close();
+                }
+            }
+            buildTree();
+            onBeginIterations();
+            if (!hasWinner()) {
+                endIterations();
+            }
+        }
+        boolean result = false;
+        if (hasWinner()) {
+            result = true;
+            int winner = fTree[0];
+            ILongCursor<E> cursor = fCursors[winner];
+            setCurrentCursor(cursor);
+            if (cursor.loadNext()) {
+                fHeads[winner] = cursor.getCurrent();
+            } else {
+                fCursors[winner] = null;
+                cursor.close();
+            }
+            replay(winner);
+            if (!hasWinner()) {
+                endIterations();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * This is an utility method used to notify about the beginning of
+     * iterations
+     * 
+     * @throws E
+     */
+    protected void onBeginIterations() throws E {
+    }
+
+    /**
+     * This is an utility method used to notify about the end of iterations
+     * 
+     * @throws E
+     */
+    protected void onEndIterations() throws E {
+    }
+
+    private void replay(int leaf) {
+        int winner = leaf;
+        for (int n = (leaf + fCursors.length) >> 1; n > 0; n >>= 1) {
+            int loser = fTree[n];
+            if (isBefore(loser, winner)) {
+                fTree[n] = winner;
+                winner = loser;
+            }
+        }
+        fTree[0] = winner;
+    }
+
+    protected void setCurrentCursor(ILongCursor<E> cursor) throws E {
+        fCurrentValue = cursor.getCurrent();
+    }
+
+    @Override
+    public String toString() {
+        return "LongMergeCursor[" + fCurrentValue + "]";
+    }
+
+}
@@ -0,0 +1,86 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+/**
+ * Visited set keeping long identifiers of nodes in an open-addressing hash
+ * table of primitive values. Each identifier uses 8-16 bytes of memory.
+ * Subclasses should define the {@link #getId(Object)} method returning
+ * identifiers of nodes.
+ * 
+ * @author kotelnikov
+ * @param <T> the type of nodes
+ */
+public abstract class LongVisitedSet<T> implements IVisitedSet<T> {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private boolean fHasZero;
+
+    private long[] fIds = new long[INITIAL_CAPACITY];
+
+    private int fSize;
+
+    public void clear() {
+        fIds = new long[INITIAL_CAPACITY];
+        fHasZero = false;
+        fSize = 0;
+    }
+
+    /**
+     * Returns the identifier of the given node
+     * 
+     * @param node the node
+     * @return the identifier of the node
+     */
+    protected abstract long getId(T node);
+
+    private int getSlot(long[] ids, long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        int mask = ids.length - 1;
+        int idx = (int) (hash ^ (hash >>> 32)) & mask;
+        while (ids[idx] != 0 && ids[idx] != id) {
+            idx = (idx + 1) & mask;
+        }
+        return idx;
+    }
+
+    public int getSize() {
+        return fSize;
+    }
+
+    private void resize() {
+        long[] ids = new long[fIds.length * 2];
+        for (long id : fIds) {
+            if (id != 0) {
+                ids[getSlot(ids, id)] = id;
+            }
+        }
+        fIds = ids;
+    }
+
+    public boolean visit(T node) {
+        long id = getId(node);
+        if (id == 0) {
+            // Zero marks empty slots, so it is kept separately
+            if (fHasZero) {
+                return false;
+            }
+            fHasZero = true;
+            fSize++;
+            return true;
+        }
+        int idx = getSlot(fIds, id);
+        if (fIds[idx] == id) {
+            return false;
+        }
+        fIds[idx] = id;
+        fSize++;
+        if (fSize * 2 > fIds.length) {
+            resize();
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,140 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+
+/**
+ * A view of one fixed-width record stored in a byte buffer. Instances of this
+ * class are used as flyweights by the {@link MappedRecordCursor}: the same
+ * instance is moved from one record to another, so the content of the record
+ * is read directly from the underlying (mapped) buffer without copying. Use
+ * the {@link #copy()} method to keep the record after the cursor was moved.
+ * 
+ * @author kotelnikov
+ */
+public class MappedRecord {
+
+    /**
+     * Returns a comparator comparing the specified field of records as a
+     * sequence of unsigned bytes.
+     * 
+     * @param pos the position of the key field in records
+     * @param len the length of the key field
+     * @return a comparator of records by their keys
+     */
+    public static Comparator<MappedRecord> newKeyComparator(
+        final int pos,
+        final int len) {
+        return new Comparator<MappedRecord>() {
+            public int compare(MappedRecord o1, MappedRecord o2) {
+                for (int i = pos; i < pos + len; i++) {
+                    int a = o1.getByte(i) & 0xFF;
+                    int b = o2.getByte(i) & 0xFF;
+                    if (a != b) {
+                        return a - b;
+                    }
+                }
+                return 0;
+            }
+        };
+    }
+
+    /**
+     * Creates a new record with the given content. This method can be used to
+     * create keys for the {@link MappedRecordCursor#seek(MappedRecord)}
+     * method.
+     * 
+     * @param data the content of the record
+     * @return a new record
+     */
+    public static MappedRecord wrap(byte[] data) {
+        return new MappedRecord(ByteBuffer.wrap(data), 0, data.length, -1);
+    }
+
+    private ByteBuffer fBuffer;
+
+    private long fIndex;
+
+    private int fOffset;
+
+    private int fSize;
+
+    public MappedRecord(ByteBuffer buffer, int offset, int size, long index) {
+        fSize = size;
+        setPosition(buffer, offset, index);
+    }
+
+    /**
+     * Returns a copy of this record which does not depend on the underlying
+     * buffer.
+     * 
+     * @return a copy of this record
+     */
+    public MappedRecord copy() {
+        byte[] data = new byte[fSize];
+        getBytes(0, data, 0, fSize);
+        return new MappedRecord(ByteBuffer.wrap(data), 0, fSize, fIndex);
+    }
+
+    public byte getByte(int pos) {
+        return fBuffer.get(fOffset + pos);
+    }
+
+    /**
+     * Copies the specified number of bytes of this record in the given
+     * array.
+     */
+    public void getBytes(int pos, byte[] array, int offset, int len) {
+        for (int i = 0; i < len; i++) {
+            array[offset + i] = fBuffer.get(fOffset + pos + i);
+        }
+    }
+
+    public double getDouble(int pos) {
+        return fBuffer.getDouble(fOffset + pos);
+    }
+
+    /**
+     * Returns the index of this record in the file or -1 if this record does
+     * not belong to a file.
+     */
+    public long getIndex() {
+        return fIndex;
+    }
+
+    public int getInt(int pos) {
+        return fBuffer.getInt(fOffset + pos);
+    }
+
+    public long getLong(int pos) {
+        return fBuffer.getLong(fOffset + pos);
+    }
+
+    public short getShort(int pos) {
+        return fBuffer.getShort(fOffset + pos);
+    }
+
+    public int getSize() {
+        return fSize;
+    }
+
+    void setPosition(ByteBuffer buffer, int offset, long index) {
+        fBuffer = buffer;
+        fOffset = offset;
+        fIndex = index;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < fSize; i++) {
+            String str = Integer.toHexString(0x100 | (getByte(i) & 0xFF));
+            buf.append(str.substring(1));
+        }
+        return "MappedRecord[" + fIndex + ":" + buf + "]";
+    }
+
+}
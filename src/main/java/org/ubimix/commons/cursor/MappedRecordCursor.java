@@ -0,0 +1,260 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Comparator;
+
+/**
+ * This cursor returns fixed-width records stored in a file. The file is mapped
+ * in memory so records are read without copying. If the file is too big to
+ * be mapped as one buffer then it is split in multiple mappings; records
+ * never cross mapping boundaries.
+ * <p>
+ * By default the {@link #getCurrent()} method always returns the same
+ * {@link MappedRecord} instance moved to the current record (a flyweight).
+ * Records should be copied with the {@link MappedRecord#copy()} method if
+ * they have to be kept after the next call of the {@link #loadNext()} method.
+ * The {@link MergeCursor} moves its inputs only when the next element is
+ * requested, so it can merge such cursors directly. Other cursors built on
+ * top of this one (diffs, groups, buffered cursors and batch loading methods)
+ * keep elements of their underlying cursors after moving them. To use this
+ * cursor with such operators call the
+ * {@link #setCopyRecords(boolean)} method: then each record is returned as a
+ * separate copy.
+ * </p>
+ * <p>
+ * If records in the file are sorted by the comparator given to this cursor
+ * then the {@link #seek(MappedRecord)} method uses binary search to find the
+ * required record.
+ * </p>
+ * 
+ * <pre>
+ * // Example of usage:
+ * // Records of 16 bytes with 8-byte keys in the beginning
+ * MappedRecordCursor&lt;RuntimeException&gt; cursor = new MappedRecordCursor&lt;RuntimeException&gt;(
+ *     file,
+ *     16,
+ *     MappedRecord.newKeyComparator(0, 8));
+ * while (cursor.loadNext()) {
+ *     MappedRecord record = cursor.getCurrent();
+ *     System.out.println(record.getLong(0) + &quot;: &quot; + record.getLong(8));
+ * }
+ * cursor.close();
+ * </pre>
+ * 
+ * @author kotelnikov
+ */
+public class MappedRecordCursor<E extends Exception>
+    implements
+    ISeekableCursor<MappedRecord, E>,
+    ISizedCursor<MappedRecord, E> {
+
+    /**
+     * The default maximal size of one mapping (1Gb)
+     */
+    public static final long DEFAULT_SEGMENT_SIZE = 1L << 30;
+
+    private Comparator<MappedRecord> fComparator;
+
+    /**
+     * The copy of the current record; it is used only if the
+     * {@link #fCopyRecords} flag is <code>true</code>
+     */
+    private MappedRecord fCopy;
+
+    private boolean fCopyRecords;
+
+    private long fCount;
+
+    private MappedRecord fCurrent;
+
+    private long fPos;
+
+    /**
+     * This record is used to compare records with keys during search
+     */
+    private MappedRecord fProbe;
+
+    private int fRecordSize;
+
+    private int fSegmentLength;
+
+    private ByteBuffer[] fSegments;
+
+    /**
+     * @param file the file to read
+     * @param recordSize the size of each record in bytes
+     * @param comparator the comparator used to order records
+     * @throws IOException
+     */
+    public MappedRecordCursor(
+        File file,
+        int recordSize,
+        Comparator<MappedRecord> comparator) throws IOException {
+        this(file, recordSize, comparator, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param file the file to read
+     * @param recordSize the size of each record in bytes
+     * @param comparator the comparator used to order records
+     * @param segmentSize the maximal size of one mapping in bytes
+     * @throws IOException
+     */
+    public MappedRecordCursor(
+        File file,
+        int recordSize,
+        Comparator<MappedRecord> comparator,
+        long segmentSize) throws IOException {
+        fRecordSize = recordSize;
+        fComparator = comparator;
+        long length = Math.min(segmentSize, Integer.MAX_VALUE) / recordSize;
+        fSegmentLength = (int) Math.max(1, length);
+        RandomAccessFile f = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = f.getChannel();
+            fCount = channel.size() / recordSize;
+            int segmentCount = (int) ((fCount + fSegmentLength - 1) / fSegmentLength);
+            fSegments = new ByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long first = (long) i * fSegmentLength;
+                long count = Math.min(fSegmentLength, fCount - first);
+                fSegments[i] = channel.map(
+                    FileChannel.MapMode.READ_ONLY,
+                    first * recordSize,
+                    count * recordSize);
+            }
+        } finally {
+            // Mappings stay valid after the channel is closed
+            f.close();
+        }
+        fCurrent = new MappedRecord(null, 0, recordSize, -1);
+        fProbe = new MappedRecord(null, 0, recordSize, -1);
+    }
+
+    public void close() throws E {
+        fPos = fCount;
+        fSegments = new ByteBuffer[0];
+    }
+
+    private int compare(long index, MappedRecord key) {
+        moveTo(fProbe, index);
+        return fComparator.compare(fProbe, key);
+    }
+
+    public Comparator<MappedRecord> getComparator() {
+        return fComparator;
+    }
+
+    /**
+     * Returns the total number of records in the file
+     */
+    public long getCount() {
+        return fCount;
+    }
+
+    public MappedRecord getCurrent() {
+        if (fCurrent.getIndex() < 0) {
+            return null;
+        }
+        return fCopyRecords ? fCopy : fCurrent;
+    }
+
+    /**
+     * Returns the index of the next record returned by this cursor
+     */
+    public long getPosition() {
+        return fPos;
+    }
+
+    public int getRemaining() {
+        return (int) Math.min(Integer.MAX_VALUE, fCount - fPos);
+    }
+
+    public boolean loadNext() throws E {
+        if (fPos >= fCount) {
+            moveTo(fCurrent, -1);
+            return false;
+        }
+        moveTo(fCurrent, fPos++);
+        fCopy = fCopyRecords ? fCurrent.copy() : null;
+        return true;
+    }
+
+    private void moveTo(MappedRecord record, long index) {
+        if (index < 0) {
+            record.setPosition(null, 0, -1);
+        } else {
+            int segment = (int) (index / fSegmentLength);
+            int offset = (int) (index % fSegmentLength) * fRecordSize;
+            record.setPosition(fSegments[segment], offset, index);
+        }
+    }
+
+    /**
+     * Moves this cursor to the first record equal or greater than the given
+     * key. Records in the file should be sorted using the comparator of this
+     * cursor. The record is found using exponential search starting from the
+     * current position followed by a binary search.
+     * 
+     * @see org.ubimix.commons.cursor.ISeekableCursor#seek(java.lang.Object)
+     */
+    public boolean seek(MappedRecord key) throws E {
+        long low = fPos;
+        long high = fPos;
+        long step = 1;
+        while (high < fCount && compare(high, key) < 0) {
+            low = high + 1;
+            high = step < fCount - high ? high + step : fCount;
+            step <<= 1;
+        }
+        // All records before the "low" position are less than the key
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (compare(mid, key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        fPos = low;
+        moveTo(fCurrent, -1);
+        return fPos < fCount;
+    }
+
+    /**
+     * Defines if records returned by this cursor should be copied. If this
+     * flag is <code>false</code> (by default) then the {@link #getCurrent()}
+     * method returns the same {@link MappedRecord} instance for all records.
+     * Otherwise each record is returned as a new {@link MappedRecord} with
+     * its own copy of data, so records stay valid after this cursor is moved.
+     * 
+     * @param copyRecords if this flag is <code>true</code> then each record
+     *        is returned as a separate copy
+     */
+    public void setCopyRecords(boolean copyRecords) {
+        fCopyRecords = copyRecords;
+        fCopy = fCopyRecords && fCurrent.getIndex() >= 0
+            ? fCurrent.copy()
+            : null;
+    }
+
+    public int skip(int count) throws E {
+        int result = (int) Math.max(0, Math.min(count, fCount - fPos));
+        fPos += result;
+        moveTo(fCurrent, -1);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "MappedRecordCursor[" + getCurrent() + ":" + fPos + "]";
+    }
+
+}
@@ -5,7 +5,6 @@ package org.ubimix.commons.cursor;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
@@ -41,7 +40,9 @@ import java.util.Set;
  * 
  * @author kotelnikov
  */
-public class MergeCursor<T, E extends Exception> implements ICursor<T, E> {
+public class MergeCursor<T, E extends Exception>
+    implements
+    IBatchCursor<T, E> {
 
     /**
      * @author kotelnikov
@@ -79,24 +80,107 @@ public class MergeCursor<T, E extends Exception> implements ICursor<T, E> {
         }
     }
 
+    /**
+     * This cursor is used to compare keys with heads of merged cursors using
+     * the cursor comparator.
+     */
+    private static class KeyCursor<T, E extends Exception>
+        implements
+        ICursor<T, E> {
+
+        private T fKey;
+
+        public KeyCursor(T key) {
+            fKey = key;
+        }
+
+        public void close() throws E {
+        }
+
+        public T getCurrent() {
+            return fKey;
+        }
+
+        public boolean loadNext() throws E {
+            return false;
+        }
+
+    }
+
     private enum Status {
         NOT_STARTED, STARTED, STOPPED
     }
 
+    /**
+     * The default number of consecutive wins of the same cursor switching the
+     * merge in the galloping mode
+     */
+    public static final int DEFAULT_MIN_GALLOP = 7;
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static <T, E extends Exception> ICursor<T, E>[] newArray(int size) {
+        return new ICursor[size];
+    }
+
+    /**
+     * This flag is <code>true</code> when the head of the current winner is
+     * returned as the current value. The winner is moved to its next element
+     * only when the next element of the merge is requested, so cursors
+     * re-using the same instance for their elements (flyweights) can be
+     * merged.
+     */
+    private boolean fAdvanceWinner;
+
     private Comparator<ICursor<T, E>> fComparator;
 
     private T fCurrentValue;
 
-    protected List<ICursor<T, E>> fList = new ArrayList<ICursor<T, E>>();
+    /**
+     * Leaves of the tournament tree. Each position corresponds to the position
+     * of the cursor in the list given to the {@link #init(List)} method.
+     * Exhausted (and already closed) cursors are replaced by <code>null</code>
+     * values.
+     */
+    private ICursor<T, E>[] fCursors = newArray(0);
+
+    /**
+     * This flag is <code>true</code> when the same cursor won the last
+     * {@link #fMinGallop} matches. In this mode the head of the winner is
+     * compared only with the head of the {@link #fRunnerUp} cursor.
+     */
+    private boolean fGalloping;
+
+    private int fMinGallop = DEFAULT_MIN_GALLOP;
+
+    /**
+     * The index of the best cursor after the current winner; it is used only
+     * in the galloping mode. This value is -1 if there are no other cursors.
+     */
+    private int fRunnerUp = -1;
 
     private Status fStatus = Status.NOT_STARTED;
 
+    /**
+     * The "loser tree" used to select the smallest head of all cursors. The
+     * first cell contains the index of the current winner; all other cells
+     * (1..k-1) contain indexes of cursors lost the match in the corresponding
+     * internal node of the tree. So each step requires only log(k)
+     * comparisons.
+     */
+    private int[] fTree = new int[0];
+
+    /**
+     * The number of consecutive matches won by the current winner
+     */
+    private int fWins;
+
     public MergeCursor() {
     }
 
     /**
      * 
      */
+    @SuppressWarnings("unchecked")
     public MergeCursor(Comparator<T> comparator, ICursor<T, E>... cursors) {
         init(new DefaultCursorComparator<T, E>(comparator), cursors);
     }
@@ -107,10 +191,85 @@ public class MergeCursor<T, E extends Exception> implements ICursor<T, E> {
         init(new DefaultCursorComparator<T, E>(comparator), cursors);
     }
 
+    /**
+     * Moves the current winner to its next element if its head was already
+     * returned. If the same cursor wins {@link #fMinGallop} matches in a row
+     * then the merge switches in the galloping mode: new heads of the winner
+     * are compared only with the head of the runner-up cursor and the tree is
+     * not replayed until the winner loses.
+     */
+    private void advanceWinner() throws E {
+        if (!fAdvanceWinner) {
+            return;
+        }
+        fAdvanceWinner = false;
+        int winner = fTree[0];
+        ICursor<T, E> cursor = fCursors[winner];
+        if (!cursor.loadNext()) {
+            fCursors[winner] = null;
+            cursor.close();
+        }
+        if (fGalloping
+            && fCursors[winner] != null
+            && (fRunnerUp < 0 || isBefore(winner, fRunnerUp))) {
+            // The winner is still before all other cursors, so the replay
+            // would not change the tree.
+            return;
+        }
+        fGalloping = false;
+        replay(winner);
+        if (fTree[0] != winner) {
+            fWins = 0;
+        } else if (fMinGallop > 0 && ++fWins >= fMinGallop) {
+            fGalloping = true;
+            fRunnerUp = getRunnerUp(winner);
+        }
+        if (!hasWinner()) {
+            endIterations();
+        }
+    }
+
+    /**
+     * Builds the tournament tree from scratch. Leaves are stored (virtually)
+     * in the positions k..2k-1 and each internal node n has two children - 2n
+     * and 2n+1.
+     */
+    private void buildTree() {
+        int k = fCursors.length;
+        fTree = new int[k];
+        fGalloping = false;
+        fWins = 0;
+        if (k == 0) {
+            return;
+        }
+        int[] winners = new int[2 * k];
+        for (int i = 0; i < k; i++) {
+            winners[k + i] = i;
+        }
+        for (int n = k - 1; n > 0; n--) {
+            int first = winners[2 * n];
+            int second = winners[2 * n + 1];
+            if (isBefore(first, second)) {
+                winners[n] = first;
+                fTree[n] = second;
+            } else {
+                winners[n] = second;
+                fTree[n] = first;
+            }
+        }
+        fTree[0] = winners[1];
+    }
+
     public void close() throws E {
+        fAdvanceWinner = false;
         endIterations();
         Set<Throwable> errors = null;
-        for (ICursor<T, E> cursor : fList) {
+        for (int i = 0; i < fCursors.length; i++) {
+            ICursor<T, E> cursor = fCursors[i];
+            if (cursor == null) {
+                continue;
+            }
+            fCursors[i] = null;
             try {
                 cursor.close();
             } catch (Throwable t) {
@@ -141,6 +300,42 @@ public class MergeCursor<T, E extends Exception> implements ICursor<T, E> {
         return fCurrentValue;
     }
 
+    /**
+     * Returns all merged cursors which are not exhausted yet
+     * 
+     * @return a list of active merged cursors
+     */
+    protected List<ICursor<T, E>> getCursors() {
+        List<ICursor<T, E>> result = new ArrayList<ICursor<T, E>>();
+        for (ICursor<T, E> cursor : fCursors) {
+            if (cursor != null) {
+                result.add(cursor);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of the best cursor after the winner. In the loser
+     * tree it is the best of the cursors lost matches on the path from the
+     * winner's leaf to the root.
+     */
+    private int getRunnerUp(int leaf) {
+        int result = -1;
+        for (int n = (leaf + fCursors.length) >> 1; n > 0; n >>= 1) {
+            int loser = fTree[n];
+            if (result < 0 || isBefore(loser, result)) {
+                result = loser;
+            }
+        }
+        return result;
+    }
+
+    private boolean hasWinner() {
+        return fTree.length > 0 && fCursors[fTree[0]] != null;
+    }
+
+    @SuppressWarnings("unchecked")
     public void init(
         Comparator<ICursor<T, E>> comparator,
         ICursor<T, E>... cursors) {
@@ -156,56 +351,87 @@ public class MergeCursor<T, E extends Exception> implements ICursor<T, E> {
     }
 
     protected void init(List<? extends ICursor<T, E>> cursors) {
-        fList.clear();
         fCurrentValue = null;
+        fAdvanceWinner = false;
         fStatus = Status.NOT_STARTED;
-        fList.addAll(cursors);
+        fCursors = cursors.toArray(MergeCursor.<T, E> newArray(cursors.size()));
+        fTree = new int[0];
     }
 
-    private void insert(List<ICursor<T, E>> list, ICursor<T, E> cursor)
-        throws E {
-        int pos = Collections.binarySearch(list, cursor, fComparator);
-        if (pos < 0) {
-            pos = -(pos + 1);
+    /**
+     * Returns <code>true</code> if the winner should be moved to its next
+     * element only when the next element of this merge is requested. In this
+     * case merged cursors can re-use the same instance for their elements
+     * (flyweights), but the end of iterations is detected only by the call of
+     * the {@link #loadNext()} method returning <code>false</code>. Subclasses
+     * can overload this method to move the winner immediately after its head
+     * is returned, so the {@link #onEndIterations()} method is called
+     * together with the last element.
+     * 
+     * @return <code>true</code> if the winner is moved only when the next
+     *         element is requested
+     */
+    protected boolean isAdvanceDeferred() {
+        return true;
+    }
+
+    /**
+     * Returns <code>true</code> if the head of the first cursor should be
+     * returned before the head of the second one. Exhausted cursors are always
+     * after the active ones. Equal values are returned in the order of cursors
+     * so the merge is stable.
+     */
+    private boolean isBefore(int first, int second) {
+        ICursor<T, E> a = fCursors[first];
+        ICursor<T, E> b = fCursors[second];
+        if (a == null || b == null) {
+            return b == null && (a != null || first < second);
         }
-        list.add(pos, cursor);
+        int result = fComparator.compare(a, b);
+        return result < 0 || (result == 0 && first < second);
     }
 
     public boolean loadNext() throws E {
         if (fStatus == Status.NOT_STARTED) {
-            fStatus = Status.STARTED;
-            ArrayList<ICursor<T, E>> list = new ArrayList<ICursor<T, E>>();
-            for (int i = fList.size() - 1; i >= 0; i--) {
-                ICursor<T, E> cursor = fList.remove(i);
-                if (cursor.loadNext()) {
-                    insert(list, cursor);
-                } else {
-                    cursor.close();
-                }
-            }
-            fList = list;
-            onBeginIterations();
-            if (fList.isEmpty()) {
-                endIterations();
-            }
+            startIterations();
+        } else {
+            advanceWinner();
         }
         boolean result = false;
-        if (!fList.isEmpty()) {
+        if (hasWinner()) {
             result = true;
-            ICursor<T, E> cursor = fList.remove(0);
-            setCurrentCursor(cursor);
-            if (cursor.loadNext()) {
-                insert(fList, cursor);
-            } else {
-                cursor.close();
-            }
-            if (fList.isEmpty()) {
-                endIterations();
-            }
+            returnWinner();
         }
         return result;
     }
 
+    /**
+     * Loads the next batch of merged elements. All elements are loaded by the
+     * internal merge loop without additional calls of this cursor. Only the
+     * last element of the batch stays valid if merged cursors re-use the same
+     * instance for their elements.
+     * 
+     * @see org.ubimix.commons.cursor.IBatchCursor#loadNext(Object[], int, int)
+     */
+    public int loadNext(T[] buffer, int offset, int len) throws E {
+        if (fStatus == Status.NOT_STARTED) {
+            startIterations();
+        }
+        int count = 0;
+        while (count < len) {
+            advanceWinner();
+            if (!hasWinner()) {
+                break;
+            }
+            returnWinner();
+            buffer[offset + count++] = fCurrentValue;
+        }
+        if (count == 0) {
+            fCurrentValue = null;
+        }
+        return count;
+    }
+
     /**
      * This is an utility method used to notify about the beginning of
      * iterations
@@ -223,16 +449,132 @@ public class MergeCursor<T, E extends Exception> implements ICursor<T, E> {
     protected void onEndIterations() throws E {
     }
 
+    /**
+     * Replays matches on the path from the specified leaf to the root of the
+     * tree. This method should be called each time when the head of the
+     * corresponding cursor is changed.
+     */
+    private void replay(int leaf) {
+        int winner = leaf;
+        for (int n = (leaf + fCursors.length) >> 1; n > 0; n >>= 1) {
+            int loser = fTree[n];
+            if (isBefore(loser, winner)) {
+                fTree[n] = winner;
+                winner = loser;
+            }
+        }
+        fTree[0] = winner;
+    }
+
+    /**
+     * Makes the head of the current winner the current value. The winner is
+     * moved to its next element by the next call of the {@link #loadNext()}
+     * method (see {@link #isAdvanceDeferred()}).
+     */
+    private void returnWinner() throws E {
+        fAdvanceWinner = true;
+        setCurrentCursor(fCursors[fTree[0]]);
+        if (!isAdvanceDeferred()) {
+            advanceWinner();
+        }
+    }
+
     protected void setCurrentCursor(ICursor<T, E> cursor) throws E {
         fCurrentValue = cursor.getCurrent();
     }
 
+    /**
+     * Sets the number of consecutive wins of the same cursor switching this
+     * merge in the galloping mode. In this mode each element of a long run
+     * of one cursor requires only one comparison instead of log(k). Zero or
+     * negative values disable the galloping mode.
+     * 
+     * @param minGallop the number of consecutive wins starting the galloping
+     *        mode
+     */
+    public void setMinGallop(int minGallop) {
+        fMinGallop = minGallop;
+        if (fMinGallop <= 0) {
+            fGalloping = false;
+            fWins = 0;
+        }
+    }
+
+    /**
+     * Moves all merged cursors to the first elements equal or greater than the
+     * given key. Cursors implementing the {@link ISeekableCursor} interface
+     * are moved directly. All other cursors are moved element by element. The
+     * comparator of this merge cursor is used to compare heads of cursors with
+     * the given key. Skipped elements are not reported to the
+     * {@link #setCurrentCursor(ICursor)} method, so this method is not public
+     * by default; subclasses can expose it by implementing the
+     * {@link ISeekableCursor} interface (see {@link SeekableMergeCursor}).
+     * 
+     * @param key the key to seek
+     * @return <code>true</code> if there is an element equal or greater than
+     *         the given key
+     * @throws E
+     */
+    protected boolean seek(T key) throws E {
+        if (fStatus == Status.NOT_STARTED) {
+            startIterations();
+        } else {
+            advanceWinner();
+        }
+        if (!hasWinner()) {
+            return false;
+        }
+        ICursor<T, E> keyCursor = new KeyCursor<T, E>(key);
+        for (int i = 0; i < fCursors.length; i++) {
+            ICursor<T, E> cursor = fCursors[i];
+            if (cursor == null || fComparator.compare(cursor, keyCursor) >= 0) {
+                continue;
+            }
+            boolean loaded;
+            if (cursor instanceof ISeekableCursor<?, ?>) {
+                loaded = ((ISeekableCursor<T, E>) cursor).seek(key)
+                    && cursor.loadNext();
+            } else {
+                while ((loaded = cursor.loadNext())
+                    && fComparator.compare(cursor, keyCursor) < 0) {
+                }
+            }
+            if (!loaded) {
+                fCursors[i] = null;
+                cursor.close();
+            }
+        }
+        fCurrentValue = null;
+        buildTree();
+        if (!hasWinner()) {
+            endIterations();
+            return false;
+        }
+        return true;
+    }
+
+    private void startIterations() throws E {
+        fStatus = Status.STARTED;
+        for (int i = 0; i < fCursors.length; i++) {
+            ICursor<T, E> cursor = fCursors[i];
+            if (!cursor.loadNext()) {
+                fCursors[i] = null;
+                cursor.close();
+            }
+        }
+        buildTree();
+        onBeginIterations();
+        if (!hasWinner()) {
+            endIterations();
+        }
+    }
+
     @Override
     public String toString() {
         try {
-            return "MergeCursor[" + getCurrent() + ":" + fList.toString() + "]";
+            return "MergeCursor[" + getCurrent() + ":" + getCursors() + "]";
         } catch (Exception e) {
-            return "MergeCursor[" + fList.toString() + "]";
+            return "MergeCursor[" + getCursors() + "]";
         }
     }
 
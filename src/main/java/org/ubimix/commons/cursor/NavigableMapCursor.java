@@ -0,0 +1,52 @@
+package org.ubimix.commons.cursor;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ * This cursor returns entries of a sorted map. The {@link #seekKey(Object)}
+ * method uses the {@link NavigableMap#tailMap(Object, boolean)} view of the
+ * map to move to the requested entry in logarithmic time. The
+ * {@link #seek(java.util.Map.Entry)} method uses only the key of the given
+ * entry.
+ * 
+ * @author kotelnikov
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @param <E> the type of exceptions thrown by this cursor
+ */
+public class NavigableMapCursor<K, V, E extends Exception>
+    extends
+    AbstractNavigableCursor<Map.Entry<K, V>, K, E> {
+
+    private NavigableMap<K, V> fMap;
+
+    public NavigableMapCursor(NavigableMap<K, V> map) {
+        super(map.comparator(), map.size());
+        fMap = map;
+    }
+
+    @Override
+    protected K getKey(Map.Entry<K, V> value) {
+        return value.getKey();
+    }
+
+    @Override
+    protected int getRemaining(K from) {
+        return from != null ? fMap.tailMap(from, true).size() : fMap.size();
+    }
+
+    @Override
+    protected Iterator<Map.Entry<K, V>> iterator(K from) {
+        return from != null
+            ? fMap.tailMap(from, true).entrySet().iterator()
+            : fMap.entrySet().iterator();
+    }
+
+    @Override
+    public String toString() {
+        return "NavigableMapCursor[" + getCurrent() + "]";
+    }
+
+}
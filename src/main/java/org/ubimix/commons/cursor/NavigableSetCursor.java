@@ -0,0 +1,47 @@
+package org.ubimix.commons.cursor;
+
+import java.util.Iterator;
+import java.util.NavigableSet;
+
+/**
+ * This cursor returns elements of a sorted set. The {@link #seek(Object)}
+ * method uses the {@link NavigableSet#tailSet(Object, boolean)} view of the
+ * set to move to the requested element in logarithmic time.
+ * 
+ * @author kotelnikov
+ * @param <T> the type of elements returned by this cursor
+ * @param <E> the type of exceptions thrown by this cursor
+ */
+public class NavigableSetCursor<T, E extends Exception>
+    extends
+    AbstractNavigableCursor<T, T, E> {
+
+    private NavigableSet<T> fSet;
+
+    public NavigableSetCursor(NavigableSet<T> set) {
+        super(set.comparator(), set.size());
+        fSet = set;
+    }
+
+    @Override
+    protected T getKey(T value) {
+        return value;
+    }
+
+    @Override
+    protected int getRemaining(T from) {
+        return from != null ? fSet.tailSet(from, true).size() : fSet.size();
+    }
+
+    @Override
+    protected Iterator<T> iterator(T from) {
+        return from != null ? fSet.tailSet(from, true).iterator() : fSet
+            .iterator();
+    }
+
+    @Override
+    public String toString() {
+        return "NavigableSetCursor[" + getCurrent() + "]";
+    }
+
+}
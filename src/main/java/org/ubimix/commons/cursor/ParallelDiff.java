@@ -0,0 +1,558 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.ubimix.commons.cursor.DiffCursor.IDiffCursorListener;
+
+/**
+ * This class compares two ordered sets of values in parallel. The key space is
+ * split in ranges by a list of split points; differences in each range are
+ * calculated by an independent {@link DiffCursor} running in a fork-join
+ * pool. Cursors for each range are created by providers; the range is given
+ * to providers as a parameter. Returned cursors are limited by the range
+ * bounds in the same way as the {@link ComparableRangeCursor} does, so
+ * providers can return cursors over the whole sets. Seekable cursors (see
+ * {@link ISeekableCursor}) are moved directly to the beginning of their
+ * ranges.
+ * <p>
+ * Listener events can be delivered in the global order of keys or without
+ * order. In the first case events of each range are buffered and they are
+ * delivered by the thread calling the {@link #run(List)} method. In the
+ * second case the listener is notified directly by worker threads, so it
+ * should be thread-safe; events of the same range are still delivered in the
+ * order of keys. In both cases the {@link IDiffCursorListener#onEnd()} method
+ * is called once by the thread calling the {@link #run(List)} method when all
+ * ranges are compared.
+ * </p>
+ * 
+ * <pre>
+ * // Example of usage:
+ * List&lt;MyType&gt; splitPoints = ParallelDiff.getSplitPoints(
+ *     sampleCursor,
+ *     16,
+ *     comparator);
+ * new ParallelDiff&lt;MyType, E&gt;(
+ *     comparator,
+ *     firstProvider,
+ *     secondProvider,
+ *     listener,
+ *     true).run(splitPoints);
+ * </pre>
+ * 
+ * @author kotelnikov
+ * @param <T> the type of compared values
+ * @param <E> the type of exceptions
+ */
+public class ParallelDiff<T, E extends Exception> {
+
+    /**
+     * A diff event buffered by ordered partitions
+     */
+    private static class Event<T> {
+
+        private static final int ADDED = 1;
+
+        private static final int END = 0;
+
+        private static final int REMOVED = 2;
+
+        private static final int UPDATED = 3;
+
+        private T fFirst;
+
+        private T fSecond;
+
+        private int fType;
+
+        public Event(int type, T first, T second) {
+            fType = type;
+            fFirst = first;
+            fSecond = second;
+        }
+
+        public <E extends Exception> void deliver(
+            IDiffCursorListener<T, E> listener) throws E {
+            switch (fType) {
+                case ADDED:
+                    listener.onValueAdded(fFirst);
+                    break;
+                case REMOVED:
+                    listener.onValueRemoved(fFirst);
+                    break;
+                case UPDATED:
+                    listener.onValueUpdated(fFirst, fSecond);
+                    break;
+            }
+        }
+
+    }
+
+    /**
+     * This task calculates differences in one range of keys. In the ordered
+     * mode events are buffered in a queue. When the queue is full the task is
+     * suspended: it returns and releases the pool thread. The consumer
+     * submits the task again when the half of the queue is delivered, so pool
+     * threads are never blocked by the consumer.
+     */
+    private class PartitionTask
+        implements
+        Callable<Void>,
+        IDiffCursorListener<T, E> {
+
+        private DiffCursor<T, E> fCursor;
+
+        /**
+         * The first error of the task in the ordered mode. It is re-thrown by
+         * the consumer when all events of the task are delivered.
+         */
+        private Throwable fError;
+
+        private BlockingQueue<Event<T>> fQueue;
+
+        private Range<T> fRange;
+
+        private boolean fSuspended;
+
+        public PartitionTask(Range<T> range, boolean ordered) {
+            fRange = range;
+            if (ordered) {
+                fQueue = new LinkedBlockingQueue<Event<T>>();
+            }
+        }
+
+        public Void call() throws E {
+            if (fQueue != null) {
+                resume();
+            } else {
+                DiffCursor<T, E> cursor = newDiffCursor(fRange, this);
+                try {
+                    while (!fCancelled && cursor.loadNext()) {
+                    }
+                } finally {
+                    cursor.close();
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Submits the suspended task again, so it could close its cursors.
+         * This method is called when the diff is cancelled.
+         */
+        public synchronized void cancel() {
+            if (fSuspended) {
+                fSuspended = false;
+                fPool.submit(this);
+            }
+        }
+
+        private void finish() {
+            try {
+                if (fCursor != null) {
+                    fCursor.close();
+                }
+            } catch (Throwable t) {
+                if (fError == null) {
+                    fError = t;
+                }
+            }
+            fQueue.add(new Event<T>(Event.END, null, null));
+        }
+
+        public void onEnd() {
+            // The end of the whole diff is reported by the run method
+        }
+
+        public void onValueAdded(T value) throws E {
+            if (fQueue != null) {
+                fQueue.add(new Event<T>(Event.ADDED, value, null));
+            } else {
+                fListener.onValueAdded(value);
+            }
+        }
+
+        public void onValueRemoved(T value) throws E {
+            if (fQueue != null) {
+                fQueue.add(new Event<T>(Event.REMOVED, value, null));
+            } else {
+                fListener.onValueRemoved(value);
+            }
+        }
+
+        public void onValueUpdated(T firstValue, T secondValue) throws E {
+            if (fQueue != null) {
+                fQueue.add(new Event<T>(
+                    Event.UPDATED,
+                    firstValue,
+                    secondValue));
+            } else {
+                fListener.onValueUpdated(firstValue, secondValue);
+            }
+        }
+
+        /**
+         * Continues the comparison of the range until the queue is full or
+         * all values of the range are compared.
+         */
+        private void resume() {
+            try {
+                if (fCursor == null) {
+                    fCursor = newDiffCursor(fRange, this);
+                }
+                while (!fCancelled) {
+                    if (fQueue.size() >= fQueueSize && suspend()) {
+                        return;
+                    }
+                    if (!fCursor.loadNext()) {
+                        break;
+                    }
+                }
+            } catch (Throwable t) {
+                fError = t;
+            }
+            finish();
+        }
+
+        private synchronized boolean suspend() {
+            fSuspended = !fCancelled && fQueue.size() >= fQueueSize;
+            return fSuspended;
+        }
+
+        /**
+         * Returns the next event of this task. The suspended task is
+         * submitted again when the half of its queue is delivered.
+         */
+        public Event<T> take() throws InterruptedException {
+            Event<T> event = fQueue.take();
+            if (fQueue.size() <= fQueueSize / 2) {
+                synchronized (this) {
+                    if (fSuspended) {
+                        fSuspended = false;
+                        fPool.submit(this);
+                    }
+                }
+            }
+            return event;
+        }
+
+    }
+
+    /**
+     * A range of keys. The first key is included in the range, the last one
+     * is excluded. A <code>null</code> bound means that the range is not
+     * limited on this side.
+     * 
+     * @author kotelnikov
+     */
+    public static class Range<T> {
+
+        private T fFirst;
+
+        private T fLast;
+
+        public Range(T first, T last) {
+            fFirst = first;
+            fLast = last;
+        }
+
+        public T getFirst() {
+            return fFirst;
+        }
+
+        public T getLast() {
+            return fLast;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + fFirst + ".." + fLast + ")";
+        }
+
+    }
+
+    /**
+     * The default number of events buffered by each range in the ordered
+     * mode
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 1024;
+
+    /**
+     * The number of sampled values for each range used by the
+     * {@link #getSplitPoints(ICursor, int, Comparator)} method for not
+     * seekable cursors.
+     */
+    private static final int SAMPLES_PER_RANGE = 32;
+
+    private static <T> void addSplitPoint(
+        List<T> list,
+        T value,
+        Comparator<T> comparator) {
+        if (list.isEmpty()
+            || comparator.compare(list.get(list.size() - 1), value) < 0) {
+            list.add(value);
+        }
+    }
+
+    /**
+     * Returns split points dividing values of the given sorted cursor in the
+     * specified number of ranges with (approximately) the same number of
+     * values. If the cursor implements both {@link ISeekableCursor} and
+     * {@link ISizedCursor} interfaces then split points are read directly at
+     * the corresponding positions. Otherwise all values are read and split
+     * points are calculated from a sample of evenly spaced values, so the
+     * result depends only on the sequence of values. The cursor is closed by
+     * this method.
+     * 
+     * @param cursor the cursor providing values
+     * @param count the required number of ranges
+     * @param comparator the comparator of values
+     * @return an ordered list of distinct split points
+     * @throws E
+     */
+    public static <T, E extends Exception> List<T> getSplitPoints(
+        ICursor<T, E> cursor,
+        int count,
+        Comparator<T> comparator) throws E {
+        List<T> result = new ArrayList<T>();
+        try {
+            if (cursor instanceof ISeekableCursor<?, ?>
+                && cursor instanceof ISizedCursor<?, ?>) {
+                ISeekableCursor<T, E> c = (ISeekableCursor<T, E>) cursor;
+                int step = ((ISizedCursor<T, E>) cursor).getRemaining()
+                    / count;
+                if (step > 0) {
+                    c.skip(step);
+                    for (int i = 1; i < count && c.loadNext(); i++) {
+                        addSplitPoint(result, c.getCurrent(), comparator);
+                        c.skip(step - 1);
+                    }
+                }
+            } else {
+                // Each step-th value is sampled; when the sample is full
+                // every second sampled value is removed and the step is
+                // doubled
+                List<T> sample = new ArrayList<T>();
+                int size = count * SAMPLES_PER_RANGE;
+                long step = 1;
+                for (long n = 0; cursor.loadNext(); n++) {
+                    if (n % step == 0 && sample.size() == size * 2) {
+                        for (int i = 0; i < size; i++) {
+                            sample.set(i, sample.get(i * 2));
+                        }
+                        sample.subList(size, sample.size()).clear();
+                        step *= 2;
+                    }
+                    if (n % step == 0) {
+                        sample.add(cursor.getCurrent());
+                    }
+                }
+                for (int i = 1; i < count; i++) {
+                    int pos = (int) ((long) i * sample.size() / count);
+                    if (pos > 0 && pos < sample.size()) {
+                        addSplitPoint(result, sample.get(pos), comparator);
+                    }
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return result;
+    }
+
+    /**
+     * This flag is used to stop running tasks when an error occurs
+     */
+    private volatile boolean fCancelled;
+
+    private Comparator<T> fComparator;
+
+    private ICursorProvider<Range<T>, E, ? extends ICursor<T, E>> fFirstProvider;
+
+    private IDiffCursorListener<T, E> fListener;
+
+    private boolean fOrdered;
+
+    private ForkJoinPool fPool;
+
+    private int fQueueSize = DEFAULT_QUEUE_SIZE;
+
+    private ICursorProvider<Range<T>, E, ? extends ICursor<T, E>> fSecondProvider;
+
+    /**
+     * Creates a new parallel diff using the common fork-join pool.
+     * 
+     * @param comparator the comparator of values
+     * @param first provider of cursors over the first set of values
+     * @param second provider of cursors over the second set of values
+     * @param listener the listener notified about differences
+     * @param ordered if this flag is <code>true</code> then events are
+     *        delivered in the global order of keys
+     */
+    public ParallelDiff(
+        Comparator<T> comparator,
+        ICursorProvider<Range<T>, E, ? extends ICursor<T, E>> first,
+        ICursorProvider<Range<T>, E, ? extends ICursor<T, E>> second,
+        IDiffCursorListener<T, E> listener,
+        boolean ordered) {
+        this(
+            comparator,
+            first,
+            second,
+            listener,
+            ordered,
+            ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param comparator the comparator of values
+     * @param first provider of cursors over the first set of values
+     * @param second provider of cursors over the second set of values
+     * @param listener the listener notified about differences
+     * @param ordered if this flag is <code>true</code> then events are
+     *        delivered in the global order of keys
+     * @param pool the pool executing diffs of individual ranges
+     */
+    public ParallelDiff(
+        Comparator<T> comparator,
+        ICursorProvider<Range<T>, E, ? extends ICursor<T, E>> first,
+        ICursorProvider<Range<T>, E, ? extends ICursor<T, E>> second,
+        IDiffCursorListener<T, E> listener,
+        boolean ordered,
+        ForkJoinPool pool) {
+        fComparator = comparator;
+        fFirstProvider = first;
+        fSecondProvider = second;
+        fListener = listener;
+        fOrdered = ordered;
+        fPool = pool;
+    }
+
+    public int getQueueSize() {
+        return fQueueSize;
+    }
+
+    /**
+     * Returns a new cursor comparing values of one range.
+     */
+    private DiffCursor<T, E> newDiffCursor(
+        Range<T> range,
+        IDiffCursorListener<T, E> listener) throws E {
+        return new DiffCursor<T, E>(
+            fComparator,
+            newCursor(fFirstProvider, range),
+            newCursor(fSecondProvider, range),
+            listener);
+    }
+
+    private ICursor<T, E> newCursor(
+        ICursorProvider<Range<T>, E, ? extends ICursor<T, E>> provider,
+        Range<T> range) throws E {
+        ICursor<T, E> cursor = provider.getCursor(range);
+        if (range.getFirst() != null || range.getLast() != null) {
+            cursor = new ComparableRangeCursor<T, E>(
+                cursor,
+                range.getFirst(),
+                true,
+                range.getLast(),
+                false,
+                fComparator);
+        }
+        return cursor;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void rethrow(Throwable t) throws E {
+        if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        throw (E) t;
+    }
+
+    /**
+     * Compares both sets of values in ranges defined by the given split
+     * points. This method returns when all ranges are compared and all
+     * events are delivered.
+     * 
+     * @param splitPoints ordered list of distinct values splitting the key
+     *        space in ranges
+     * @throws E
+     */
+    public void run(List<T> splitPoints) throws E {
+        fCancelled = false;
+        List<PartitionTask> tasks = new ArrayList<PartitionTask>();
+        T first = null;
+        for (T point : splitPoints) {
+            tasks.add(new PartitionTask(new Range<T>(first, point), fOrdered));
+            first = point;
+        }
+        tasks.add(new PartitionTask(new Range<T>(first, null), fOrdered));
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        boolean finished = false;
+        try {
+            for (PartitionTask task : tasks) {
+                futures.add(fPool.submit(task));
+            }
+            for (int i = 0; i < tasks.size(); i++) {
+                if (fOrdered) {
+                    PartitionTask task = tasks.get(i);
+                    Event<T> event;
+                    while ((event = task.take()).fType != Event.END) {
+                        event.deliver(fListener);
+                    }
+                    if (task.fError != null) {
+                        rethrow(task.fError);
+                    }
+                } else {
+                    waitFor(futures.get(i));
+                }
+            }
+            finished = true;
+            fListener.onEnd();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        } finally {
+            if (!finished) {
+                fCancelled = true;
+                for (Future<Void> future : futures) {
+                    future.cancel(false);
+                }
+                for (PartitionTask task : tasks) {
+                    task.cancel();
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the number of events buffered by each range in the ordered mode.
+     */
+    public void setQueueSize(int queueSize) {
+        fQueueSize = Math.max(1, queueSize);
+    }
+
+    private void waitFor(Future<Void> future)
+        throws E,
+        InterruptedException {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            rethrow(e.getCause());
+        }
+    }
+
+}
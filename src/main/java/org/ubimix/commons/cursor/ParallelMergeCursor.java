@@ -0,0 +1,190 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A merge cursor for a very large number of inputs. Inputs are split in
+ * groups of consecutive cursors (at most <code>fanIn</code> cursors in each
+ * group); each group is merged by a separate {@link MergeCursor}. Groups are
+ * formed level by level until the number of cursors on the top level does
+ * not exceed the fan-in; the top-level merge is performed in the thread of
+ * the consumer. So each merge never reads more than <code>fanIn</code>
+ * inputs.
+ * <p>
+ * This cursor does not limit the total number of simultaneously open inputs:
+ * all given cursors are already open, and each merge loads the first element
+ * of all its inputs when iterations start. Merging requires the current
+ * element of each input, so all inputs stay open until they are exhausted.
+ * The fan-in limits only the number of inputs compared by each merge. To
+ * reduce the number of open inputs, merge them in several passes (for
+ * example, spill the results of groups of inputs, as {@link SortingCursor}
+ * does).
+ * </p>
+ * <p>
+ * At most <code>maxThreads</code> merges run in their own threads (see
+ * {@link ReadAheadCursor}) and feed the merge of the upper level through a
+ * bounded buffer. Threads are given to merges of the upper levels first;
+ * other merges are performed in the thread of their parent merge. So
+ * comparisons are distributed between a limited number of threads
+ * regardless of the number of inputs.
+ * </p>
+ * <p>
+ * Groups contain consecutive inputs and each merge is stable, so equal
+ * elements are returned in the order of their cursors exactly as by a single
+ * {@link MergeCursor}. Elements are transferred between threads, so merged
+ * cursors should not re-use the same instances for their elements
+ * (flyweights).
+ * </p>
+ * 
+ * @author kotelnikov
+ * @param <T> the type of merged elements
+ * @param <E> the type of exceptions
+ */
+public class ParallelMergeCursor<T, E extends Exception>
+    extends
+    MergeCursor<T, E> {
+
+    /**
+     * The default maximal number of inputs of each merge
+     */
+    public static final int DEFAULT_FAN_IN = 64;
+
+    private static <T, E extends Exception> List<ICursor<T, E>> buildTree(
+        Comparator<T> comparator,
+        List<? extends ICursor<T, E>> cursors,
+        int fanIn,
+        int bufferSize,
+        int maxThreads,
+        ThreadFactory threadFactory) {
+        fanIn = Math.max(2, fanIn);
+        // The number of merges on each level
+        List<Integer> merges = new ArrayList<Integer>();
+        int size = cursors.size();
+        while (size > fanIn) {
+            merges.add(size / fanIn + (size % fanIn > 1 ? 1 : 0));
+            size = (size + fanIn - 1) / fanIn;
+        }
+        // The number of merges running in their own threads on each level
+        int[] threads = new int[merges.size()];
+        for (int i = threads.length - 1; i >= 0; i--) {
+            threads[i] = Math.max(0, Math.min(maxThreads, merges.get(i)));
+            maxThreads -= threads[i];
+        }
+        List<ICursor<T, E>> level = new ArrayList<ICursor<T, E>>(cursors);
+        for (int depth = 0; level.size() > fanIn; depth++) {
+            List<ICursor<T, E>> next = new ArrayList<ICursor<T, E>>();
+            for (int i = 0; i < level.size(); i += fanIn) {
+                List<ICursor<T, E>> group = new ArrayList<ICursor<T, E>>(level
+                    .subList(i, Math.min(i + fanIn, level.size())));
+                if (group.size() == 1) {
+                    next.add(group.get(0));
+                } else {
+                    ICursor<T, E> merge = new MergeCursor<T, E>(
+                        comparator,
+                        group);
+                    if (next.size() < threads[depth]) {
+                        merge = threadFactory != null
+                            ? new ReadAheadCursor<T, E>(
+                                merge,
+                                bufferSize,
+                                threadFactory)
+                            : new ReadAheadCursor<T, E>(merge, bufferSize);
+                    }
+                    next.add(merge);
+                }
+            }
+            level = next;
+        }
+        return level;
+    }
+
+    /**
+     * @param comparator the comparator of elements
+     * @param cursors the merged cursors
+     */
+    public ParallelMergeCursor(
+        Comparator<T> comparator,
+        List<? extends ICursor<T, E>> cursors) {
+        this(comparator, cursors, DEFAULT_FAN_IN);
+    }
+
+    /**
+     * @param comparator the comparator of elements
+     * @param cursors the merged cursors
+     * @param fanIn the maximal number of inputs of each merge
+     */
+    public ParallelMergeCursor(
+        Comparator<T> comparator,
+        List<? extends ICursor<T, E>> cursors,
+        int fanIn) {
+        this(
+            comparator,
+            cursors,
+            fanIn,
+            ReadAheadCursor.DEFAULT_CAPACITY,
+            null);
+    }
+
+    /**
+     * Creates a new cursor using at most one thread per available processor
+     * for intermediate merges.
+     * 
+     * @param comparator the comparator of elements
+     * @param cursors the merged cursors
+     * @param fanIn the maximal number of inputs of each merge
+     * @param bufferSize the size of buffers between merges of different
+     *        levels
+     * @param threadFactory the factory of threads running intermediate
+     *        merges; if it is <code>null</code> then the default factory of
+     *        the {@link ReadAheadCursor} is used
+     */
+    public ParallelMergeCursor(
+        Comparator<T> comparator,
+        List<? extends ICursor<T, E>> cursors,
+        int fanIn,
+        int bufferSize,
+        ThreadFactory threadFactory) {
+        this(
+            comparator,
+            cursors,
+            fanIn,
+            bufferSize,
+            Runtime.getRuntime().availableProcessors(),
+            threadFactory);
+    }
+
+    /**
+     * @param comparator the comparator of elements
+     * @param cursors the merged cursors
+     * @param fanIn the maximal number of inputs of each merge
+     * @param bufferSize the size of buffers between merges of different
+     *        levels
+     * @param maxThreads the maximal number of intermediate merges running
+     *        in their own threads
+     * @param threadFactory the factory of threads running intermediate
+     *        merges; if it is <code>null</code> then the default factory of
+     *        the {@link ReadAheadCursor} is used
+     */
+    public ParallelMergeCursor(
+        Comparator<T> comparator,
+        List<? extends ICursor<T, E>> cursors,
+        int fanIn,
+        int bufferSize,
+        int maxThreads,
+        ThreadFactory threadFactory) {
+        super(comparator, buildTree(
+            comparator,
+            cursors,
+            fanIn,
+            bufferSize,
+            maxThreads,
+            threadFactory));
+    }
+
+}
@@ -0,0 +1,205 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A sequential cursor opening its sub-cursors in advance. While the current
+ * sub-cursor is read the next ones are opened in background using the
+ * {@link #openCursor(int)} method; optionally the first elements of each
+ * opened cursor are loaded in background as well. At most
+ * <code>ahead + 1</code> sub-cursors are open at the same time. Sub-cursors
+ * opened in advance are closed when this cursor is closed.
+ * 
+ * @author kotelnikov
+ * @param <T> the type of elements returned by this cursor
+ * @param <E> the type of exceptions thrown by this cursor
+ */
+public abstract class PrefetchingSequentialCursor<T, E extends Exception>
+    extends
+    SequentialCursor<T, E> {
+
+    /**
+     * This cursor returns elements loaded in advance and then the remaining
+     * elements of the underlying cursor.
+     */
+    private static class PreloadedCursor<T, E extends Exception>
+        implements
+        ICursor<T, E> {
+
+        private List<T> fBuffer = new ArrayList<T>();
+
+        private T fCurrent;
+
+        private ICursor<T, E> fCursor;
+
+        private boolean fFinished;
+
+        private int fPos;
+
+        public PreloadedCursor(ICursor<T, E> cursor, int count) throws E {
+            fCursor = cursor;
+            while (fBuffer.size() < count) {
+                if (!cursor.loadNext()) {
+                    fFinished = true;
+                    break;
+                }
+                fBuffer.add(cursor.getCurrent());
+            }
+        }
+
+        public void close() throws E {
+            fBuffer.clear();
+            fCurrent = null;
+            fCursor.close();
+        }
+
+        public T getCurrent() {
+            return fCurrent;
+        }
+
+        public boolean loadNext() throws E {
+            if (fPos < fBuffer.size()) {
+                fCurrent = fBuffer.set(fPos++, null);
+                return true;
+            }
+            fCurrent = null;
+            if (fFinished || !fCursor.loadNext()) {
+                fFinished = true;
+                return false;
+            }
+            fCurrent = fCursor.getCurrent();
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "PreloadedCursor[" + fCursor + "]";
+        }
+
+    }
+
+    private int fAhead;
+
+    private Executor fExecutor;
+
+    private boolean fFinished;
+
+    private int fNextIndex;
+
+    private LinkedList<CursorFuture<T, E>> fPending = new LinkedList<CursorFuture<T, E>>();
+
+    private int fPreload;
+
+    /**
+     * @param executor the executor used to open sub-cursors
+     * @param ahead the number of sub-cursors opened in advance
+     */
+    public PrefetchingSequentialCursor(Executor executor, int ahead) {
+        this(executor, ahead, 0);
+    }
+
+    /**
+     * @param executor the executor used to open sub-cursors
+     * @param ahead the number of sub-cursors opened in advance
+     * @param preload the number of elements loaded in advance from each
+     *        sub-cursor
+     */
+    public PrefetchingSequentialCursor(
+        Executor executor,
+        int ahead,
+        int preload) {
+        fExecutor = executor;
+        fAhead = Math.max(1, ahead);
+        fPreload = preload;
+    }
+
+    @Override
+    public void close() throws E {
+        try {
+            super.close();
+        } finally {
+            fFinished = true;
+            for (CursorFuture<T, E> task : fPending) {
+                task.discard();
+            }
+            fPending.clear();
+        }
+    }
+
+    /**
+     * Submits tasks opening next sub-cursors
+     */
+    private void fill() {
+        while (!fFinished && fPending.size() < fAhead) {
+            final int index = fNextIndex++;
+            CursorFuture<T, E> task = new CursorFuture<T, E>(
+                new Callable<ICursor<T, E>>() {
+                    public ICursor<T, E> call() throws Exception {
+                        ICursor<T, E> cursor = openCursor(index);
+                        if (cursor != null && fPreload > 0) {
+                            try {
+                                cursor = new PreloadedCursor<T, E>(
+                                    cursor,
+                                    fPreload);
+                            } catch (Exception e) {
+                                cursor.close();
+                                throw e;
+                            }
+                        }
+                        return cursor;
+                    }
+                });
+            fPending.add(task);
+            try {
+                fExecutor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // The cursor is opened in the current thread
+                task.run();
+            }
+        }
+    }
+
+    @Override
+    protected ICursor<T, E> loadNextCursor(ICursor<T, E> cursor) throws E {
+        fill();
+        if (fPending.isEmpty()) {
+            return null;
+        }
+        CursorFuture<T, E> task = fPending.removeFirst();
+        ICursor<T, E> result = task.getCursor();
+        if (result == null) {
+            // There are no more cursors; tasks opening the following cursors
+            // are not needed
+            fFinished = true;
+            for (CursorFuture<T, E> next : fPending) {
+                next.discard();
+            }
+            fPending.clear();
+        } else {
+            fill();
+        }
+        return result;
+    }
+
+    /**
+     * Opens the sub-cursor with the specified index. This method is called
+     * from threads of the executor, so it should be thread-safe. It should
+     * return <code>null</code> for all indexes greater or equal to the number
+     * of sub-cursors.
+     * 
+     * @param index the index of the sub-cursor to open
+     * @return the sub-cursor with the specified index or <code>null</code> if
+     *         there is no such cursor
+     * @throws E
+     */
+    protected abstract ICursor<T, E> openCursor(int index) throws E;
+
+}
@@ -0,0 +1,239 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A tree cursor loading children of nodes ahead of time. Each level of the
+ * tree is read in advance (up to the size of the look-ahead window) and
+ * children of these upcoming siblings are requested asynchronously using the
+ * {@link #loadChildren(Object)} method. When children of a node are returned
+ * their first nodes are read immediately, so descendants are prefetched as
+ * well. The number of pending requests is limited by the size of the window.
+ * <p>
+ * This cursor returns nodes in exactly the same order as the
+ * {@link TreeCursor}. All prefetched cursors which were not used are closed
+ * when the cursor is closed; cursors which are still loading are closed as
+ * soon as they are returned. Errors thrown by these cursors are ignored.
+ * </p>
+ * 
+ * @author kotelnikov
+ * @param <T> the type of nodes
+ * @param <E> the type of exceptions
+ */
+public abstract class PrefetchingTreeCursor<T, E extends Exception>
+    extends
+    TreeCursor<T, E> {
+
+    /**
+     * A node read in advance and the task loading its children
+     */
+    private static class Entry<T, E extends Exception> {
+
+        private T fNode;
+
+        private CursorFuture<T, E> fTask;
+
+        public Entry(T node) {
+            fNode = node;
+        }
+
+    }
+
+    /**
+     * Cursor over nodes of one level of the tree reading these nodes in
+     * advance.
+     */
+    private static class Level<T, E extends Exception>
+        implements
+        ICursor<T, E> {
+
+        private LinkedList<Entry<T, E>> fBuffer = new LinkedList<Entry<T, E>>();
+
+        private Entry<T, E> fCurrent;
+
+        private ICursor<T, E> fCursor;
+
+        private boolean fFinished;
+
+        private PrefetchingTreeCursor<T, E> fOwner;
+
+        public Level(ICursor<T, E> cursor) {
+            fCursor = cursor;
+        }
+
+        public void close() throws E {
+            try {
+                if (fCurrent != null) {
+                    fOwner.discard(fCurrent);
+                    fCurrent = null;
+                }
+                for (Entry<T, E> entry : fBuffer) {
+                    fOwner.discard(entry);
+                }
+                fBuffer.clear();
+            } finally {
+                fCursor.close();
+            }
+        }
+
+        public T getCurrent() {
+            return fCurrent != null ? fCurrent.fNode : null;
+        }
+
+        public boolean loadNext() throws E {
+            if (fCurrent != null) {
+                fOwner.discard(fCurrent);
+                fCurrent = null;
+            }
+            fOwner.fill(this);
+            if (fBuffer.isEmpty()) {
+                return false;
+            }
+            fCurrent = fBuffer.removeFirst();
+            fOwner.fLastEntry = fCurrent;
+            return true;
+        }
+
+    }
+
+    /**
+     * The default size of the look-ahead window
+     */
+    public static final int DEFAULT_WINDOW = 16;
+
+    private Executor fExecutor;
+
+    private int fInFlight;
+
+    private Entry<T, E> fLastEntry;
+
+    private int fWindow;
+
+    /**
+     * @param cursor the cursor over the top-level nodes
+     * @param executor the executor used to load children of nodes
+     * @param window the maximal number of nodes read in advance on each level
+     *        and the maximal number of pending requests of children
+     */
+    public PrefetchingTreeCursor(
+        ICursor<T, E> cursor,
+        Executor executor,
+        int window) {
+        this(new Level<T, E>(cursor), executor, window);
+    }
+
+    /**
+     * @param executor the executor used to load children of nodes
+     * @param window the size of the look-ahead window
+     * @param nodes the top-level nodes
+     */
+    @SuppressWarnings("unchecked")
+    public PrefetchingTreeCursor(Executor executor, int window, T... nodes) {
+        this(new IteratorBasedCursor<T, E>(nodes), executor, window);
+    }
+
+    private PrefetchingTreeCursor(
+        Level<T, E> level,
+        Executor executor,
+        int window) {
+        super(level);
+        level.fOwner = this;
+        fExecutor = executor;
+        fWindow = Math.max(1, window);
+    }
+
+    /**
+     * Cancels the prefetching of children of the given entry (if any).
+     */
+    private void discard(Entry<T, E> entry) {
+        if (entry.fTask != null) {
+            entry.fTask.discard();
+            entry.fTask = null;
+            fInFlight--;
+        }
+    }
+
+    /**
+     * Reads nodes of the given level in advance and requests their children
+     */
+    private void fill(Level<T, E> level) throws E {
+        while (!level.fFinished && level.fBuffer.size() < fWindow) {
+            if (level.fCursor.loadNext()) {
+                T node = level.fCursor.getCurrent();
+                level.fBuffer.add(new Entry<T, E>(node));
+            } else {
+                level.fFinished = true;
+            }
+        }
+        for (Entry<T, E> entry : level.fBuffer) {
+            if (fInFlight >= fWindow) {
+                break;
+            }
+            if (entry.fTask == null) {
+                submit(entry);
+            }
+        }
+    }
+
+    /**
+     * Returns children of the current node. This method uses the result of
+     * the prefetching task (if it exists) or loads children synchronously.
+     */
+    @Override
+    protected ICursor<T, E> getChildren(T node) throws E {
+        Entry<T, E> entry = fLastEntry;
+        fLastEntry = null;
+        ICursor<T, E> children;
+        if (entry != null && entry.fTask != null) {
+            CursorFuture<T, E> task = entry.fTask;
+            entry.fTask = null;
+            fInFlight--;
+            children = task.getCursor();
+        } else {
+            children = loadChildren(node);
+        }
+        if (children == null) {
+            return null;
+        }
+        Level<T, E> level = new Level<T, E>(children);
+        level.fOwner = this;
+        fill(level);
+        return level;
+    }
+
+    /**
+     * Returns a cursor over all children of the given node or
+     * <code>null</code> if this node is a leaf. This method is called from
+     * threads of the executor, so it should be thread-safe.
+     * 
+     * @param node the node for which this method should return children
+     * @return a cursor over all children of the given node or
+     *         <code>null</code> if this node is a leaf
+     * @throws E
+     */
+    protected abstract ICursor<T, E> loadChildren(T node) throws E;
+
+    private void submit(Entry<T, E> entry) {
+        final T node = entry.fNode;
+        CursorFuture<T, E> task = new CursorFuture<T, E>(
+            new Callable<ICursor<T, E>>() {
+                public ICursor<T, E> call() throws Exception {
+                    return loadChildren(node);
+                }
+            });
+        try {
+            fExecutor.execute(task);
+            entry.fTask = task;
+            fInFlight++;
+        } catch (RejectedExecutionException e) {
+            // Children of this node will be loaded synchronously
+        }
+    }
+
+}
@@ -5,12 +5,16 @@ package org.ubimix.commons.cursor;
 
 /**
  * This is a wrapper for an another cursor providing access to a range of items.
+ * A range over a not yet used {@link ListCursor} can be split in two parts
+ * (see {@link ISplittableCursor}).
  * 
  * @author kotelnikov
  */
 public class RangeCursor<T, E extends Exception>
     extends
-    AbstractRangeCursor<T, E> {
+    AbstractRangeCursor<T, E>
+    implements
+    ISplittableCursor<T, E> {
 
     private int fCount;
 
@@ -37,6 +41,11 @@ public class RangeCursor<T, E extends Exception>
         return fStartPos + fCount;
     }
 
+    @Override
+    protected int getMaxCount(int pos) {
+        return Math.max(0, getLastPos() - pos - 1);
+    }
+
     public int getStartPos() {
         return fStartPos;
     }
@@ -51,4 +60,46 @@ public class RangeCursor<T, E extends Exception>
         return pos < getFirstPos();
     }
 
+    /**
+     * Splits this range if the underlying cursor is a {@link ListCursor} and
+     * this range was not used yet. The returned cursor contains the first half
+     * of the range.
+     * 
+     * @see org.ubimix.commons.cursor.ISplittableCursor#split()
+     */
+    public ICursor<T, E> split() throws E {
+        ICursor<T, E> cursor = getCursor();
+        if (isStarted() || !(cursor instanceof ListCursor<?, ?>)) {
+            return null;
+        }
+        ListCursor<T, E> list = (ListCursor<T, E>) cursor;
+        int available = Math.max(0, list.getRemaining() - fStartPos);
+        int half = Math.min(fCount, available) / 2;
+        if (half == 0) {
+            return null;
+        }
+        int from = list.getPosition() + fStartPos;
+        RangeCursor<T, E> result = new RangeCursor<T, E>(new ListCursor<T, E>(
+            list.getList(),
+            from,
+            from + half,
+            list.getComparator()), 0, half);
+        fStartPos += half;
+        fCount -= half;
+        return result;
+    }
+
+    /**
+     * Skips all elements before the start position if the underlying cursor
+     * is an {@link ISeekableCursor}.
+     */
+    @Override
+    protected int seekStart(ICursor<T, E> cursor) throws E {
+        int result = 0;
+        if (fStartPos > 0 && cursor instanceof ISeekableCursor<?, ?>) {
+            result = ((ISeekableCursor<T, E>) cursor).skip(fStartPos);
+        }
+        return result;
+    }
+
 }
@@ -0,0 +1,304 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This cursor reads elements of the underlying cursor in a separate producer
+ * thread and transfers them to the consumer through a bounded
+ * single-producer/single-consumer ring buffer. So the work of the underlying
+ * cursor (disk access, decompression, filtering...) overlaps with the work of
+ * the consumer.
+ * <p>
+ * The producer thread is started by the first call of the
+ * {@link #loadNext()} method. The underlying cursor is used (and closed)
+ * only by this thread. Exceptions thrown by the underlying cursor are
+ * re-thrown by the {@link #loadNext()} method after all elements loaded
+ * before the error. The {@link #close()} method stops the producer and waits
+ * until the underlying cursor is closed. If the producer is blocked in the
+ * underlying cursor (I/O, queues...) then it is interrupted; errors caused by
+ * this interruption are ignored.
+ * </p>
+ * <p>
+ * If the consumer thread is interrupted while it waits for the next element
+ * then the {@link #loadNext()} method throws a {@link CancellationException};
+ * the interruption flag of the thread stays set. Elements already read by the
+ * producer are returned without waiting, and the cursor stays open, so it
+ * should be closed as usual.
+ * </p>
+ * <p>
+ * Producer threads are created by a {@link ThreadFactory}; it can create
+ * platform or virtual threads. By default daemon platform threads are used.
+ * </p>
+ * 
+ * @author kotelnikov
+ * @param <T> the type of elements
+ * @param <E> the type of exceptions
+ */
+public class ReadAheadCursor<T, E extends Exception> implements ICursor<T, E> {
+
+    /**
+     * Reads elements of the underlying cursor and puts them in the buffer
+     */
+    private class Producer implements Runnable {
+
+        public void run() {
+            try {
+                produce();
+            } catch (Throwable t) {
+                if (!fClosed) {
+                    fError = t;
+                }
+            } finally {
+                synchronized (ReadAheadCursor.this) {
+                    fFinishing = true;
+                }
+                // Clears the interruption used to stop this thread (if any)
+                // before the underlying cursor is closed
+                Thread.interrupted();
+                try {
+                    fCursor.close();
+                } catch (Throwable t) {
+                    if (fError == null) {
+                        fError = t;
+                    }
+                }
+                fDone = true;
+                LockSupport.unpark(fConsumerWaiter);
+            }
+        }
+
+    }
+
+    /**
+     * The default size of the buffer
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final ThreadFactory DEFAULT_THREAD_FACTORY = new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "ReadAheadCursor");
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    private Object[] fBuffer;
+
+    private volatile boolean fClosed;
+
+    private volatile Thread fConsumerWaiter;
+
+    private T fCurrent;
+
+    private ICursor<T, E> fCursor;
+
+    private volatile boolean fDone;
+
+    private volatile Throwable fError;
+
+    /**
+     * This flag is set by the producer before it closes the underlying
+     * cursor; after that the producer is not interrupted anymore. It is
+     * guarded by this object.
+     */
+    private boolean fFinishing;
+
+    /**
+     * The position of the next element to read; it is modified only by the
+     * consumer
+     */
+    private AtomicLong fHead = new AtomicLong();
+
+    private int fMask;
+
+    private Thread fProducer;
+
+    private volatile Thread fProducerWaiter;
+
+    /**
+     * The position of the next element to write; it is modified only by the
+     * producer
+     */
+    private AtomicLong fTail = new AtomicLong();
+
+    private ThreadFactory fThreadFactory;
+
+    /**
+     * @param cursor the underlying cursor
+     */
+    public ReadAheadCursor(ICursor<T, E> cursor) {
+        this(cursor, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param cursor the underlying cursor
+     * @param capacity the maximal number of elements read in advance; it is
+     *        rounded up to the nearest power of two
+     */
+    public ReadAheadCursor(ICursor<T, E> cursor, int capacity) {
+        this(cursor, capacity, DEFAULT_THREAD_FACTORY);
+    }
+
+    /**
+     * @param cursor the underlying cursor
+     * @param capacity the maximal number of elements read in advance; it is
+     *        rounded up to the nearest power of two
+     * @param threadFactory the factory creating the producer thread
+     */
+    public ReadAheadCursor(
+        ICursor<T, E> cursor,
+        int capacity,
+        ThreadFactory threadFactory) {
+        fCursor = cursor;
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        fBuffer = new Object[size];
+        fMask = size - 1;
+        fThreadFactory = threadFactory;
+    }
+
+    /**
+     * @see org.ubimix.commons.cursor.ICursor#close()
+     */
+    public void close() throws E {
+        fCurrent = null;
+        if (fClosed) {
+            return;
+        }
+        fClosed = true;
+        if (fProducer == null) {
+            fCursor.close();
+            return;
+        }
+        LockSupport.unpark(fProducerWaiter);
+        synchronized (this) {
+            // The producer could be blocked in the underlying cursor
+            if (!fFinishing) {
+                fProducer.interrupt();
+            }
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                fProducer.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        fProducer = null;
+        for (int i = 0; i < fBuffer.length; i++) {
+            fBuffer[i] = null;
+        }
+        rethrow();
+    }
+
+    /**
+     * @see org.ubimix.commons.cursor.ICursor#getCurrent()
+     */
+    public T getCurrent() {
+        return fCurrent;
+    }
+
+    /**
+     * @see org.ubimix.commons.cursor.ICursor#loadNext()
+     */
+    @SuppressWarnings("unchecked")
+    public boolean loadNext() throws E {
+        fCurrent = null;
+        if (fClosed) {
+            return false;
+        }
+        if (fProducer == null) {
+            fProducer = fThreadFactory.newThread(new Producer());
+            fProducer.start();
+        }
+        long head = fHead.get();
+        while (true) {
+            if (head < fTail.get()) {
+                int idx = (int) head & fMask;
+                fCurrent = (T) fBuffer[idx];
+                fBuffer[idx] = null;
+                fHead.set(head + 1);
+                LockSupport.unpark(fProducerWaiter);
+                return true;
+            }
+            if (fDone) {
+                // The producer could add elements before finishing
+                if (head < fTail.get()) {
+                    continue;
+                }
+                rethrow();
+                return false;
+            }
+            if (Thread.interrupted()) {
+                // The park() method returns immediately while the thread is
+                // interrupted, so waiting is stopped
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            }
+            fConsumerWaiter = Thread.currentThread();
+            if (head >= fTail.get() && !fDone) {
+                LockSupport.park(this);
+            }
+            fConsumerWaiter = null;
+        }
+    }
+
+    /**
+     * This method is called by the producer thread to read elements of the
+     * underlying cursor.
+     */
+    private void produce() throws E {
+        long tail = fTail.get();
+        while (!fClosed) {
+            if (tail - fHead.get() > fMask) {
+                fProducerWaiter = Thread.currentThread();
+                if (tail - fHead.get() > fMask && !fClosed) {
+                    LockSupport.park(this);
+                }
+                fProducerWaiter = null;
+                continue;
+            }
+            if (!fCursor.loadNext()) {
+                break;
+            }
+            fBuffer[(int) tail & fMask] = fCursor.getCurrent();
+            fTail.set(++tail);
+            LockSupport.unpark(fConsumerWaiter);
+        }
+    }
+
+    /**
+     * Re-throws the error of the producer thread (if any). Each error is
+     * re-thrown only once.
+     */
+    @SuppressWarnings("unchecked")
+    private void rethrow() throws E {
+        Throwable t = fError;
+        if (t == null) {
+            return;
+        }
+        fError = null;
+        if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        throw (E) t;
+    }
+
+    @Override
+    public String toString() {
+        return "ReadAheadCursor[" + fCursor + "]";
+    }
+
+}
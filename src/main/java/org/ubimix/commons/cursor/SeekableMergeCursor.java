@@ -0,0 +1,70 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A merge cursor implementing the {@link ISeekableCursor} interface. The
+ * {@link #seek(Object)} method moves all merged cursors to the first elements
+ * equal or greater than the given key; merged cursors implementing the
+ * {@link ISeekableCursor} interface are moved directly. The
+ * {@link #skip(int)} method loads skipped elements one by one.
+ * 
+ * @author kotelnikov
+ * @param <T> the type of merged elements
+ * @param <E> the type of exceptions
+ */
+public final class SeekableMergeCursor<T, E extends Exception>
+    extends
+    MergeCursor<T, E>
+    implements
+    ISeekableCursor<T, E> {
+
+    /**
+     * @param comparator the comparator of elements
+     * @param cursors the merged cursors
+     */
+    @SuppressWarnings("unchecked")
+    public SeekableMergeCursor(
+        Comparator<T> comparator,
+        ICursor<T, E>... cursors) {
+        super(comparator, cursors);
+    }
+
+    /**
+     * @param comparator the comparator of elements
+     * @param cursors the merged cursors
+     */
+    public SeekableMergeCursor(
+        Comparator<T> comparator,
+        List<? extends ICursor<T, E>> cursors) {
+        super(comparator, cursors);
+    }
+
+    /**
+     * @see org.ubimix.commons.cursor.MergeCursor#seek(java.lang.Object)
+     */
+    @Override
+    public boolean seek(T key) throws E {
+        return super.seek(key);
+    }
+
+    /**
+     * Skips the specified number of elements. Elements are loaded one by one,
+     * so the cost of this method is the same as the cost of the
+     * {@link #loadNext()} calls.
+     * 
+     * @see org.ubimix.commons.cursor.ISeekableCursor#skip(int)
+     */
+    public int skip(int count) throws E {
+        int result = 0;
+        while (result < count && loadNext()) {
+            result++;
+        }
+        return result;
+    }
+
+}
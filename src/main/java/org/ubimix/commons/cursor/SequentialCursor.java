@@ -10,7 +10,13 @@ package org.ubimix.commons.cursor;
  */
 public abstract class SequentialCursor<T, E extends Exception>
     implements
-    ICursor<T, E> {
+    IBatchCursor<T, E> {
+
+    /**
+     * The batch view of the current sub-cursor; it is created only once for
+     * each sub-cursor
+     */
+    private IBatchCursor<T, E> fBatchCursor;
 
     private T fCurrent;
 
@@ -19,7 +25,7 @@ public abstract class SequentialCursor<T, E extends Exception>
     public void close() throws E {
         if (fCursor != null) {
             fCursor.close();
-            fCursor = null;
+            setCursor(null);
         }
     }
 
@@ -30,7 +36,7 @@ public abstract class SequentialCursor<T, E extends Exception>
             result = true;
         } else {
             fCursor.close();
-            fCursor = null;
+            setCursor(null);
         }
         return result;
     }
@@ -47,21 +53,66 @@ public abstract class SequentialCursor<T, E extends Exception>
             result = doLoadNext();
         }
         if (!result && fCursor == null) {
-            fCursor = loadNextCursor(prevCursor);
+            setCursor(loadNextCursor(prevCursor));
             while (fCursor != null) {
                 result = doLoadNext();
                 if (result) {
                     break;
                 }
-                fCursor = loadNextCursor(fCursor);
+                setCursor(loadNextCursor(fCursor));
             }
         }
         return result;
     }
 
+    /**
+     * Loads elements by batches from sub-cursors. One batch can contain
+     * elements from multiple sub-cursors.
+     * 
+     * @see org.ubimix.commons.cursor.IBatchCursor#loadNext(Object[], int, int)
+     */
+    public int loadNext(T[] buffer, int offset, int len) throws E {
+        int count = 0;
+        while (count < len) {
+            if (fCursor == null) {
+                // The first cursor is loaded using the element-by-element
+                // method
+                if (!loadNext()) {
+                    break;
+                }
+                buffer[offset + count++] = fCurrent;
+                continue;
+            }
+            if (fBatchCursor == null) {
+                fBatchCursor = BatchCursorAdapter.toBatchCursor(fCursor);
+            }
+            int loaded = fBatchCursor.loadNext(buffer, offset + count, len
+                - count);
+            if (loaded > 0) {
+                count += loaded;
+                continue;
+            }
+            // The current cursor is finished; it is closed and the next one
+            // is loaded directly
+            ICursor<T, E> prevCursor = fCursor;
+            prevCursor.close();
+            setCursor(loadNextCursor(prevCursor));
+            if (fCursor == null) {
+                break;
+            }
+        }
+        fCurrent = count > 0 ? buffer[offset + count - 1] : null;
+        return count;
+    }
+
     protected abstract ICursor<T, E> loadNextCursor(ICursor<T, E> cursor)
         throws E;
 
+    private void setCursor(ICursor<T, E> cursor) {
+        fCursor = cursor;
+        fBatchCursor = null;
+    }
+
     @Override
     public String toString() {
         return "SequentialCursor[" + fCurrent + ":" + fCursor + "]";
@@ -0,0 +1,343 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.ubimix.commons.cursor.SpillFile.SpillException;
+
+/**
+ * This cursor returns all elements of an another (not ordered) cursor in the
+ * order defined by a comparator. Elements are sorted by chunks limited by a
+ * memory budget. Each sorted chunk is written in a temporary file (a "run")
+ * using the given serializer. Then runs are merged with a {@link MergeCursor}.
+ * If the number of runs is bigger than the maximal number of simultaneously
+ * merged cursors (fan-in) then groups of runs are merged in new runs until
+ * their number is small enough. So this cursor can sort inputs much bigger
+ * than the available memory. The sort is stable: equal elements are returned
+ * in the order of the original cursor.
+ * <p>
+ * The size of each element in memory is estimated by the
+ * {@link #getSize(Object)} method. This method should be overloaded in
+ * subclasses to give more precise estimations.
+ * </p>
+ * 
+ * <pre>
+ * // Example of usage:
+ * ICursor&lt;MyType, E&gt; cursor = ...; // not sorted values
+ * ISerializer&lt;MyType&gt; serializer = ...;
+ * ICursor&lt;MyType, E&gt; sorted = new SortingCursor&lt;MyType, E&gt;(
+ *     cursor,
+ *     comparator,
+ *     serializer,
+ *     64 * 1024 * 1024);
+ * while (sorted.loadNext()) {
+ *     System.out.println(sorted.getCurrent());
+ * }
+ * sorted.close();
+ * </pre>
+ * 
+ * @author kotelnikov
+ */
+public class SortingCursor<T, E extends Exception> implements ICursor<T, E> {
+
+    /**
+     * This cursor reads elements from a temporary file.
+     */
+    private class RunCursor implements ICursor<T, E> {
+
+        private T fCurrent;
+
+        private SpillFile<T>.Reader fReader;
+
+        private SpillFile<T> fRun;
+
+        public RunCursor(SpillFile<T> run) {
+            fRun = run;
+        }
+
+        public void close() throws E {
+            fCurrent = null;
+            fRun = null;
+            if (fReader != null) {
+                try {
+                    fReader.close();
+                } catch (IOException e) {
+                    fireIOException("Can not close a sorted run.", e);
+                } finally {
+                    fReader = null;
+                }
+            }
+        }
+
+        public T getCurrent() {
+            return fCurrent;
+        }
+
+        public boolean loadNext() throws E {
+            fCurrent = null;
+            try {
+                if (fReader == null && fRun != null) {
+                    fReader = fRun.open();
+                }
+                if (fReader == null || !fReader.hasNext()) {
+                    return false;
+                }
+                fCurrent = fReader.read();
+                return true;
+            } catch (IOException e) {
+                fireIOException("Can not read a sorted run.", e);
+                return false;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "RunCursor[" + fCurrent + ":" + fRun + "]";
+        }
+
+    }
+
+    /**
+     * The default estimation of the memory size of each element
+     */
+    public static final long DEFAULT_ELEMENT_SIZE = 64;
+
+    /**
+     * The default maximal number of simultaneously merged runs
+     */
+    public static final int DEFAULT_FAN_IN = 64;
+
+    private Comparator<T> fComparator;
+
+    private ICursor<T, E> fCursor;
+
+    private File fDir;
+
+    private int fFanIn;
+
+    private long fMemoryBudget;
+
+    private ICursor<T, E> fResult;
+
+    private List<SpillFile<T>> fRuns = new ArrayList<SpillFile<T>>();
+
+    private ISerializer<T> fSerializer;
+
+    /**
+     * @param cursor the cursor to sort
+     * @param comparator the comparator defining the order of elements
+     * @param serializer the serializer used to store elements in temporary
+     *        files
+     * @param memoryBudget the maximal memory size (in bytes) of elements
+     *        sorted in memory
+     */
+    public SortingCursor(
+        ICursor<T, E> cursor,
+        Comparator<T> comparator,
+        ISerializer<T> serializer,
+        long memoryBudget) {
+        this(cursor, comparator, serializer, memoryBudget, DEFAULT_FAN_IN, null);
+    }
+
+    /**
+     * @param cursor the cursor to sort
+     * @param comparator the comparator defining the order of elements
+     * @param serializer the serializer used to store elements in temporary
+     *        files
+     * @param memoryBudget the maximal memory size (in bytes) of elements
+     *        sorted in memory
+     * @param fanIn the maximal number of simultaneously merged runs
+     * @param dir the directory for temporary files; if it is
+     *        <code>null</code> then the default temporary directory is used
+     */
+    public SortingCursor(
+        ICursor<T, E> cursor,
+        Comparator<T> comparator,
+        ISerializer<T> serializer,
+        long memoryBudget,
+        int fanIn,
+        File dir) {
+        fCursor = cursor;
+        fComparator = comparator;
+        fSerializer = serializer;
+        fMemoryBudget = memoryBudget;
+        fFanIn = Math.max(2, fanIn);
+        fDir = dir;
+    }
+
+    public void close() throws E {
+        try {
+            if (fResult != null) {
+                fResult.close();
+                fResult = null;
+            }
+            if (fCursor != null) {
+                fCursor.close();
+                fCursor = null;
+            }
+        } finally {
+            deleteRuns(fRuns);
+            fRuns.clear();
+        }
+    }
+
+    private void deleteRuns(List<SpillFile<T>> runs) {
+        for (SpillFile<T> run : runs) {
+            run.delete();
+        }
+    }
+
+    /**
+     * This method is called to notify about errors with temporary files. By
+     * default it throws a {@link SpillException}. It could be overloaded in
+     * subclasses to transform the given error in the exception of the
+     * required type.
+     * 
+     * @param msg the error message
+     * @param e the original exception
+     * @throws E
+     */
+    protected void fireIOException(String msg, IOException e) throws E {
+        throw new SpillException(msg, e);
+    }
+
+    public T getCurrent() {
+        return fResult != null ? fResult.getCurrent() : null;
+    }
+
+    /**
+     * Returns an estimation of the memory size of the given element in
+     * bytes.
+     * 
+     * @param value the element
+     * @return the estimated size of the element
+     */
+    protected long getSize(T value) {
+        return DEFAULT_ELEMENT_SIZE;
+    }
+
+    public boolean loadNext() throws E {
+        if (fResult == null) {
+            if (fCursor == null) {
+                return false;
+            }
+            fResult = sort();
+        }
+        return fResult.loadNext();
+    }
+
+    /**
+     * Merges consecutive groups of runs in new runs. The order of runs is
+     * preserved so the merge stays stable.
+     */
+    private void mergeRuns() throws E {
+        // New runs are added to the end of the list to be removed by the
+        // close method if something goes wrong
+        List<SpillFile<T>> runs = new ArrayList<SpillFile<T>>(fRuns);
+        for (int i = 0; i < runs.size(); i += fFanIn) {
+            List<SpillFile<T>> group = runs.subList(
+                i,
+                Math.min(runs.size(), i + fFanIn));
+            if (group.size() == 1) {
+                fRuns.add(group.get(0));
+                continue;
+            }
+            List<ICursor<T, E>> cursors = new ArrayList<ICursor<T, E>>();
+            for (SpillFile<T> run : group) {
+                cursors.add(new RunCursor(run));
+            }
+            MergeCursor<T, E> merge = new MergeCursor<T, E>(
+                fComparator,
+                cursors);
+            try {
+                fRuns.add(writeRun(merge));
+            } finally {
+                merge.close();
+                deleteRuns(group);
+            }
+        }
+        fRuns.subList(0, runs.size()).clear();
+    }
+
+    /**
+     * Reads and sorts all elements of the underlying cursor and returns a
+     * cursor over sorted elements.
+     */
+    private ICursor<T, E> sort() throws E {
+        List<T> chunk = new ArrayList<T>();
+        try {
+            long size = 0;
+            while (fCursor.loadNext()) {
+                T value = fCursor.getCurrent();
+                chunk.add(value);
+                size += getSize(value);
+                if (size >= fMemoryBudget) {
+                    Collections.sort(chunk, fComparator);
+                    fRuns.add(writeRun(new ListCursor<T, E>(chunk)));
+                    chunk = new ArrayList<T>();
+                    size = 0;
+                }
+            }
+        } finally {
+            fCursor.close();
+            fCursor = null;
+        }
+        Collections.sort(chunk, fComparator);
+        // The last chunk is not stored; it is merged directly from memory
+        int count = fRuns.size() + (chunk.isEmpty() ? 0 : 1);
+        while (count > fFanIn) {
+            mergeRuns();
+            count = fRuns.size() + (chunk.isEmpty() ? 0 : 1);
+        }
+        List<ICursor<T, E>> cursors = new ArrayList<ICursor<T, E>>();
+        for (SpillFile<T> run : fRuns) {
+            cursors.add(new RunCursor(run));
+        }
+        ICursor<T, E> result = new ListCursor<T, E>(chunk, fComparator);
+        if (!cursors.isEmpty()) {
+            if (!chunk.isEmpty()) {
+                cursors.add(result);
+            }
+            result = new MergeCursor<T, E>(fComparator, cursors);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "SortingCursor[" + getCurrent() + ":" + fRuns + "]";
+    }
+
+    /**
+     * Writes all elements of the given cursor in a new temporary file. If
+     * the run can not be written (whatever the error is) then the file is
+     * removed.
+     */
+    private SpillFile<T> writeRun(ICursor<T, E> cursor) throws E {
+        SpillFile<T> run = null;
+        boolean written = false;
+        try {
+            run = new SpillFile<T>(fDir, fSerializer);
+            while (cursor.loadNext()) {
+                run.write(cursor.getCurrent());
+            }
+            run.finish();
+            written = true;
+        } catch (IOException e) {
+            fireIOException("Can not write a sorted run.", e);
+        } finally {
+            if (!written && run != null) {
+                run.delete();
+            }
+        }
+        return run;
+    }
+
+}
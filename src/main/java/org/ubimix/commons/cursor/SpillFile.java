@@ -0,0 +1,168 @@
+package org.ubimix.commons.cursor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Temporary file containing a sequence of serialized values. Values are
+ * written one after another and then they can be read (one or more times) in
+ * the same order. This class is used by cursors which can not keep all their
+ * data in memory. Files are not removed automatically; owners of spill files
+ * should call the {@link #delete()} method when the file is not needed
+ * anymore (usually when the owner cursor is closed).
+ * 
+ * @author kotelnikov
+ * @param <T> the type of stored values
+ */
+public class SpillFile<T> {
+
+    /**
+     * Sequential reader of values stored in a file
+     * 
+     * @author kotelnikov
+     */
+    public class Reader {
+
+        private DataInputStream fInput;
+
+        private int fPos;
+
+        private Reader() throws IOException {
+            fInput = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(fFile),
+                BUFFER_SIZE));
+        }
+
+        public void close() throws IOException {
+            if (fInput != null) {
+                fInput.close();
+                fInput = null;
+            }
+        }
+
+        public boolean hasNext() {
+            return fInput != null && fPos < fCount;
+        }
+
+        public T read() throws IOException {
+            T value = fSerializer.read(fInput);
+            fPos++;
+            return value;
+        }
+
+    }
+
+    /**
+     * This exception is thrown by cursors using temporary files when they can
+     * not read or write data and they can not transform
+     * {@link IOException}s into their own exceptions.
+     * 
+     * @author kotelnikov
+     */
+    public static class SpillException extends RuntimeException {
+
+        private static final long serialVersionUID = -2563462395622853513L;
+
+        public SpillException(String msg, IOException cause) {
+            super(msg, cause);
+        }
+
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private int fCount;
+
+    private File fFile;
+
+    private DataOutputStream fOutput;
+
+    private ISerializer<T> fSerializer;
+
+    /**
+     * @param dir the directory where the temporary file should be created; if
+     *        it is <code>null</code> then the default temporary directory is
+     *        used
+     * @param serializer the serializer used to write and read values
+     * @throws IOException
+     */
+    public SpillFile(File dir, ISerializer<T> serializer) throws IOException {
+        fSerializer = serializer;
+        fFile = File.createTempFile("cursor-", ".spill", dir);
+        try {
+            fOutput = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(fFile),
+                BUFFER_SIZE));
+        } catch (IOException e) {
+            fFile.delete();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes the output stream and removes the file.
+     */
+    public void delete() {
+        try {
+            finish();
+        } catch (IOException e) {
+            // Nothing to do - the file is removed anyway
+        }
+        fFile.delete();
+    }
+
+    /**
+     * Finishes writing of values in this file. It is called automatically when
+     * the file is opened for reading.
+     * 
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+        if (fOutput != null) {
+            fOutput.close();
+            fOutput = null;
+        }
+    }
+
+    public int getCount() {
+        return fCount;
+    }
+
+    public File getFile() {
+        return fFile;
+    }
+
+    /**
+     * Opens a new reader of values stored in this file
+     * 
+     * @return a new reader
+     * @throws IOException
+     */
+    public Reader open() throws IOException {
+        finish();
+        return new Reader();
+    }
+
+    @Override
+    public String toString() {
+        return "SpillFile[" + fFile + ":" + fCount + "]";
+    }
+
+    /**
+     * Appends a new value to this file
+     * 
+     * @param value the value to write
+     * @throws IOException
+     */
+    public void write(T value) throws IOException {
+        fSerializer.write(fOutput, value);
+        fCount++;
+    }
+
+}
@@ -8,7 +8,11 @@ import java.util.List;
 
 /**
  * This cursor allows to iterate over tree structures when each node can have
- * his own children. The method
+ * his own children. The method {@link #getChildren(Object)} is called for the
+ * current node only when the next node is requested, so the subtree of the
+ * current node can be skipped using the {@link #skipChildren()} method. To
+ * avoid multiple iterations over shared subtrees (in DAG-like structures) a
+ * visited set can be defined (see {@link #setVisitedSet(IVisitedSet)}).
  * 
  * @author kotelnikov
  * @param <T>
@@ -20,8 +24,12 @@ public abstract class TreeCursor<T, E extends Exception>
 
     private T fCurrent;
 
+    private boolean fExpand;
+
     private List<ICursor<T, E>> fStack = new ArrayList<ICursor<T, E>>();
 
+    private IVisitedSet<T> fVisitedSet;
+
     public TreeCursor(ICursor<T, E> cursor) {
         fStack.add(cursor);
     }
@@ -34,6 +42,7 @@ public abstract class TreeCursor<T, E extends Exception>
      * @see org.ubimix.commons.cursor.ICursor#close()
      */
     public void close() throws E {
+        fExpand = false;
         while (!fStack.isEmpty()) {
             ICursor<T, E> cursor = fStack.remove(fStack.size() - 1);
             cursor.close();
@@ -63,15 +72,22 @@ public abstract class TreeCursor<T, E extends Exception>
      * @see org.ubimix.commons.cursor.ICursor#loadNext()
      */
     public boolean loadNext() throws E {
+        if (fExpand) {
+            fExpand = false;
+            ICursor<T, E> cursor = getChildren(fCurrent);
+            if (cursor != null) {
+                fStack.add(cursor);
+            }
+        }
         boolean result = false;
         while (!result && !fStack.isEmpty()) {
             ICursor<T, E> cursor = fStack.get(fStack.size() - 1);
             if (cursor.loadNext()) {
-                result = true;
-                fCurrent = cursor.getCurrent();
-                cursor = getChildren(fCurrent);
-                if (cursor != null) {
-                    fStack.add(cursor);
+                T node = cursor.getCurrent();
+                if (fVisitedSet == null || fVisitedSet.visit(node)) {
+                    result = true;
+                    fCurrent = node;
+                    fExpand = true;
                 }
             } else {
                 fStack.remove(fStack.size() - 1);
@@ -80,4 +96,25 @@ public abstract class TreeCursor<T, E extends Exception>
         }
         return result;
     }
+
+    /**
+     * Sets the set of already visited nodes. Nodes found in this set are
+     * skipped with all their children. If the visited set is
+     * <code>null</code> (by default) then all nodes are returned.
+     * 
+     * @param visitedSet the set of visited nodes
+     */
+    public void setVisitedSet(IVisitedSet<T> visitedSet) {
+        fVisitedSet = visitedSet;
+    }
+
+    /**
+     * Skips all children of the current node. This method should be called
+     * before the next call of the {@link #loadNext()} method; in this case
+     * children of the current node are not loaded at all.
+     */
+    public void skipChildren() {
+        fExpand = false;
+    }
+
 }
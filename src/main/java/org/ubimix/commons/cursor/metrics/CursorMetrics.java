@@ -0,0 +1,170 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of one stage of a cursor pipeline. Instances of this class are
+ * shared by all cursors of the same stage and can be updated from multiple
+ * threads.
+ * 
+ * @author kotelnikov
+ */
+public class CursorMetrics implements ICursorMetrics {
+
+    /**
+     * The number of cells in load time histograms
+     */
+    public static final int HISTOGRAM_SIZE = 48;
+
+    private LongAdder fCloseCount = new LongAdder();
+
+    private LongAdder fConsumedCount = new LongAdder();
+
+    private LongAdder fEmittedCount = new LongAdder();
+
+    private AtomicLongArray fHistogram = new AtomicLongArray(HISTOGRAM_SIZE);
+
+    private LongAdder fLifetime = new LongAdder();
+
+    private LongAdder fLoadCount = new LongAdder();
+
+    private String fName;
+
+    private LongAdder fOpenCount = new LongAdder();
+
+    private LongAdder fSampledCount = new LongAdder();
+
+    private LongAdder fSampledTime = new LongAdder();
+
+    private int fSamplingMask;
+
+    /**
+     * @param name the name of the pipeline stage
+     * @param samplingRate one loadNext call of each "samplingRate" calls is
+     *        timed; this value is rounded down to a power of two
+     */
+    public CursorMetrics(String name, int samplingRate) {
+        fName = name;
+        fSamplingMask = Integer.highestOneBit(Math.max(1, samplingRate)) - 1;
+    }
+
+    void addConsumed(long count) {
+        fConsumedCount.add(count);
+    }
+
+    void addLoads(long count, long emitted) {
+        fLoadCount.add(count);
+        fEmittedCount.add(emitted);
+    }
+
+    void addSample(long time) {
+        fSampledCount.increment();
+        fSampledTime.add(time);
+        int cell = 63 - Long.numberOfLeadingZeros(Math.max(1, time));
+        fHistogram.incrementAndGet(Math.min(cell, HISTOGRAM_SIZE - 1));
+    }
+
+    public long getActiveCount() {
+        return fOpenCount.sum() - fCloseCount.sum();
+    }
+
+    public long getAverageLifetime() {
+        long count = fCloseCount.sum();
+        return count > 0 ? fLifetime.sum() / count : 0;
+    }
+
+    public long getAverageLoadTime() {
+        long count = fSampledCount.sum();
+        return count > 0 ? fSampledTime.sum() / count : 0;
+    }
+
+    public long getCloseCount() {
+        return fCloseCount.sum();
+    }
+
+    public long getConsumedCount() {
+        return fConsumedCount.sum();
+    }
+
+    public long getEmittedCount() {
+        return fEmittedCount.sum();
+    }
+
+    public long getLoadCount() {
+        return fLoadCount.sum();
+    }
+
+    public long[] getLoadTimeHistogram() {
+        long[] result = new long[HISTOGRAM_SIZE];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = fHistogram.get(i);
+        }
+        return result;
+    }
+
+    public String getName() {
+        return fName;
+    }
+
+    public long getOpenCount() {
+        return fOpenCount.sum();
+    }
+
+    public long getSampledCount() {
+        return fSampledCount.sum();
+    }
+
+    /**
+     * Returns the mask used to select sampled calls: a call is sampled if its
+     * number has no common bits with this mask.
+     */
+    int getSamplingMask() {
+        return fSamplingMask;
+    }
+
+    public double getSelectivity() {
+        long consumed = fConsumedCount.sum();
+        return consumed > 0 ? (double) fEmittedCount.sum() / consumed : -1;
+    }
+
+    void onClose(long lifetime) {
+        fCloseCount.increment();
+        fLifetime.add(lifetime);
+    }
+
+    void onOpen() {
+        fOpenCount.increment();
+    }
+
+    public void reset() {
+        fCloseCount.reset();
+        fConsumedCount.reset();
+        fEmittedCount.reset();
+        fLifetime.reset();
+        fLoadCount.reset();
+        fOpenCount.reset();
+        fSampledCount.reset();
+        fSampledTime.reset();
+        for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+            fHistogram.set(i, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CursorMetrics["
+            + fName
+            + ": loads="
+            + getLoadCount()
+            + ", emitted="
+            + getEmittedCount()
+            + ", consumed="
+            + getConsumedCount()
+            + "]";
+    }
+
+}
@@ -0,0 +1,247 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.ubimix.commons.cursor.ICursor;
+import org.ubimix.commons.cursor.ICursorProvider;
+
+/**
+ * This registry creates metrics for named stages of cursor pipelines and
+ * publishes them as MBeans (one MBean per stage). If the registry is
+ * disabled then its "instrument" methods return cursors and providers
+ * without changes, so instrumentation does not cost anything.
+ * 
+ * <pre>
+ * // Example of usage:
+ * CursorMetricsRegistry registry = new CursorMetricsRegistry();
+ * ICursor&lt;MyType, E&gt; input = registry.instrumentInput(&quot;filter&quot;, cursor);
+ * ICursor&lt;MyType, E&gt; filter = new FilteringCursor&lt;MyType, E&gt;(input) {
+ *     ...
+ * };
+ * filter = registry.instrument(&quot;filter&quot;, filter);
+ * // Metrics are available as the
+ * // &quot;org.ubimix.commons.cursor:type=CursorMetrics,name=&quot;filter&quot;&quot; MBean.
+ * </pre>
+ * 
+ * @author kotelnikov
+ */
+public class CursorMetricsRegistry {
+
+    /**
+     * The default JMX domain of metrics
+     */
+    public static final String DEFAULT_DOMAIN = "org.ubimix.commons.cursor";
+
+    /**
+     * By default one of 64 loadNext calls is timed
+     */
+    public static final int DEFAULT_SAMPLING_RATE = 64;
+
+    private String fDomain;
+
+    private volatile boolean fEnabled;
+
+    private Map<String, CursorMetrics> fMetrics = new ConcurrentHashMap<String, CursorMetrics>();
+
+    /**
+     * Names of MBeans registered by this registry. Only these MBeans are
+     * removed by the {@link #unregister()} method.
+     */
+    private Map<String, ObjectName> fNames = new HashMap<String, ObjectName>();
+
+    private volatile int fSamplingRate = DEFAULT_SAMPLING_RATE;
+
+    private MBeanServer fServer;
+
+    /**
+     * Creates an enabled registry publishing metrics in the platform MBean
+     * server.
+     */
+    public CursorMetricsRegistry() {
+        this(ManagementFactory.getPlatformMBeanServer(), DEFAULT_DOMAIN, true);
+    }
+
+    /**
+     * @param server the MBean server used to publish metrics; if it is
+     *        <code>null</code> then metrics are not published
+     * @param domain the JMX domain of metrics
+     * @param enabled if this flag is <code>false</code> then cursors are not
+     *        instrumented
+     */
+    public CursorMetricsRegistry(
+        MBeanServer server,
+        String domain,
+        boolean enabled) {
+        fServer = server;
+        fDomain = domain;
+        fEnabled = enabled;
+    }
+
+    /**
+     * Returns metrics of the specified stage; new metrics are created and
+     * published if they do not exist yet.
+     * 
+     * @param stage the name of the pipeline stage
+     * @return the metrics of the stage
+     */
+    public CursorMetrics getMetrics(String stage) {
+        CursorMetrics metrics = fMetrics.get(stage);
+        if (metrics == null) {
+            synchronized (fMetrics) {
+                metrics = fMetrics.get(stage);
+                if (metrics == null) {
+                    metrics = new CursorMetrics(stage, fSamplingRate);
+                    register(metrics);
+                    fMetrics.put(stage, metrics);
+                }
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Returns the JMX name of the MBean corresponding to the given stage.
+     */
+    public ObjectName getObjectName(String stage) throws JMException {
+        return new ObjectName(fDomain
+            + ":type=CursorMetrics,name="
+            + ObjectName.quote(stage));
+    }
+
+    public int getSamplingRate() {
+        return fSamplingRate;
+    }
+
+    /**
+     * Wraps the given cursor in an {@link InstrumentedCursor} updating
+     * metrics of the specified stage. The returned cursor implements the
+     * same seekable and sized cursor interfaces as the given one (see
+     * {@link InstrumentedCursor#newCursor(ICursor, CursorMetrics, boolean)}).
+     * 
+     * @param stage the name of the pipeline stage
+     * @param cursor the cursor to instrument
+     * @return an instrumented cursor or the given cursor itself if this
+     *         registry is disabled
+     */
+    public <T, E extends Exception> ICursor<T, E> instrument(
+        String stage,
+        ICursor<T, E> cursor) {
+        if (!fEnabled) {
+            return cursor;
+        }
+        return InstrumentedCursor.newCursor(cursor, getMetrics(stage), false);
+    }
+
+    /**
+     * Wraps the given provider; all cursors returned by the resulting provider
+     * update metrics of the specified stage.
+     * 
+     * @param stage the name of the pipeline stage
+     * @param provider the provider to instrument
+     * @return an instrumented provider or the given provider itself if this
+     *         registry is disabled
+     */
+    @SuppressWarnings("unchecked")
+    public <P, T, E extends Exception> ICursorProvider<P, E, ICursor<T, E>> instrument(
+        String stage,
+        ICursorProvider<P, E, ? extends ICursor<T, E>> provider) {
+        if (!fEnabled) {
+            return (ICursorProvider<P, E, ICursor<T, E>>) provider;
+        }
+        return new InstrumentedCursorProvider<P, T, E>(
+            provider,
+            getMetrics(stage));
+    }
+
+    /**
+     * Wraps the input cursor of a stage. Elements returned by this cursor are
+     * counted as consumed by the specified stage.
+     * 
+     * @param stage the name of the pipeline stage
+     * @param cursor the input of the stage
+     * @return an instrumented cursor or the given cursor itself if this
+     *         registry is disabled
+     */
+    public <T, E extends Exception> ICursor<T, E> instrumentInput(
+        String stage,
+        ICursor<T, E> cursor) {
+        if (!fEnabled) {
+            return cursor;
+        }
+        return InstrumentedCursor.newCursor(cursor, getMetrics(stage), true);
+    }
+
+    public boolean isEnabled() {
+        return fEnabled;
+    }
+
+    /**
+     * This method is called when metrics can not be published in the MBean
+     * server (for example if an MBean with the same name is already
+     * registered by somebody else). Metrics stay available by the
+     * {@link #getMetrics(String)} method. This method could be overloaded in
+     * subclasses to log such errors.
+     * 
+     * @param stage the name of the stage
+     * @param e the registration error
+     */
+    protected void onRegistrationError(String stage, JMException e) {
+    }
+
+    private void register(CursorMetrics metrics) {
+        if (fServer == null) {
+            return;
+        }
+        String stage = metrics.getName();
+        try {
+            ObjectName name = getObjectName(stage);
+            fServer.registerMBean(new StandardMBean(
+                metrics,
+                ICursorMetrics.class), name);
+            fNames.put(stage, name);
+        } catch (JMException e) {
+            onRegistrationError(stage, e);
+        }
+    }
+
+    public void setEnabled(boolean enabled) {
+        fEnabled = enabled;
+    }
+
+    /**
+     * Sets the sampling rate of metrics created after this call.
+     */
+    public void setSamplingRate(int samplingRate) {
+        fSamplingRate = samplingRate;
+    }
+
+    /**
+     * Removes all metrics from this registry and MBeans registered by this
+     * registry from the MBean server.
+     */
+    public void unregister() {
+        synchronized (fMetrics) {
+            for (Map.Entry<String, ObjectName> entry : fNames.entrySet()) {
+                try {
+                    fServer.unregisterMBean(entry.getValue());
+                } catch (JMException e) {
+                    onRegistrationError(entry.getKey(), e);
+                }
+            }
+            fNames.clear();
+            fMetrics.clear();
+        }
+    }
+
+}
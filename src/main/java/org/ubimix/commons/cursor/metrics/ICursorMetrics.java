@@ -0,0 +1,84 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor.metrics;
+
+/**
+ * The management interface of metrics collected for one stage of a cursor
+ * pipeline. Counters are updated by {@link InstrumentedCursor} instances.
+ * Times are measured only for sampled calls of the
+ * {@link org.ubimix.commons.cursor.ICursor#loadNext()} method, so
+ * time-related values are statistical estimations.
+ * 
+ * @author kotelnikov
+ */
+public interface ICursorMetrics {
+
+    /**
+     * Returns the number of currently opened (not closed) cursors
+     */
+    long getActiveCount();
+
+    /**
+     * Returns the average lifetime of closed cursors in nanoseconds
+     */
+    long getAverageLifetime();
+
+    /**
+     * Returns the average time of sampled loadNext calls in nanoseconds
+     */
+    long getAverageLoadTime();
+
+    /**
+     * Returns the number of closed cursors
+     */
+    long getCloseCount();
+
+    /**
+     * Returns the number of elements consumed by this stage from its input
+     */
+    long getConsumedCount();
+
+    /**
+     * Returns the number of elements returned by this stage
+     */
+    long getEmittedCount();
+
+    /**
+     * Returns the number of loadNext calls
+     */
+    long getLoadCount();
+
+    /**
+     * Returns the histogram of sampled loadNext times. The cell i contains the
+     * number of calls which took from 2^i to 2^(i+1) nanoseconds.
+     */
+    long[] getLoadTimeHistogram();
+
+    /**
+     * Returns the name of the pipeline stage
+     */
+    String getName();
+
+    /**
+     * Returns the number of opened cursors
+     */
+    long getOpenCount();
+
+    /**
+     * Returns the number of timed loadNext calls
+     */
+    long getSampledCount();
+
+    /**
+     * Returns the ratio between emitted and consumed elements or -1 if the
+     * number of consumed elements is unknown
+     */
+    double getSelectivity();
+
+    /**
+     * Resets all counters
+     */
+    void reset();
+
+}
@@ -0,0 +1,225 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor.metrics;
+
+import org.ubimix.commons.cursor.IBatchCursor;
+import org.ubimix.commons.cursor.ICursor;
+import org.ubimix.commons.cursor.ISeekableCursor;
+import org.ubimix.commons.cursor.ISizedCursor;
+import org.ubimix.commons.cursor.ISplittableCursor;
+
+/**
+ * This cursor collects metrics of the wrapped cursor. Only one of each N calls
+ * of the {@link #loadNext()} method is timed (see
+ * {@link CursorMetrics#CursorMetrics(String, int)}). Counters are accumulated
+ * locally and they are added to the shared metrics only for sampled calls and
+ * when the cursor is closed, so the overhead of not sampled calls is limited
+ * by a couple of increments.
+ * <p>
+ * An "input" cursor wraps the input of a pipeline stage. It does not measure
+ * time; it only counts the number of elements consumed by the stage. This
+ * number is used to calculate the selectivity of the stage (for example of
+ * filters).
+ * </p>
+ * <p>
+ * Instrumented cursors always implement the {@link IBatchCursor} interface.
+ * Batches are loaded directly from wrapped batch cursors and element by
+ * element from other cursors; each batch is counted and timed as one call.
+ * The {@link #newCursor(ICursor, CursorMetrics, boolean)} method returns
+ * wrappers implementing the {@link ISeekableCursor}, {@link ISizedCursor} and
+ * {@link ISplittableCursor} interfaces if the wrapped cursor implements them.
+ * Parts split from instrumented cursors are instrumented with the same
+ * metrics.
+ * </p>
+ * 
+ * @author kotelnikov
+ */
+public class InstrumentedCursor<T, E extends Exception>
+    implements
+    IBatchCursor<T, E> {
+
+    /**
+     * Returns a new instrumented cursor implementing the same
+     * {@link ISeekableCursor}, {@link ISizedCursor} and
+     * {@link ISplittableCursor} interfaces as the given cursor. Sized cursors
+     * are considered as sized only if they are seekable as well. Seekable
+     * cursors are considered as splittable only if they are sized as well.
+     * 
+     * @param cursor the cursor to wrap
+     * @param metrics the metrics to update
+     * @param input if this flag is <code>true</code> then the wrapped cursor
+     *        is considered as an input of the stage
+     * @return a new instrumented cursor
+     */
+    public static <T, E extends Exception> InstrumentedCursor<T, E> newCursor(
+        ICursor<T, E> cursor,
+        CursorMetrics metrics,
+        boolean input) {
+        boolean splittable = cursor instanceof ISplittableCursor<?, ?>;
+        if (!(cursor instanceof ISeekableCursor<?, ?>)) {
+            return splittable
+                ? new InstrumentedSplittableCursor<T, E>(
+                    (ISplittableCursor<T, E>) cursor,
+                    metrics,
+                    input)
+                : new InstrumentedCursor<T, E>(cursor, metrics, input);
+        }
+        ISeekableCursor<T, E> c = (ISeekableCursor<T, E>) cursor;
+        if (cursor instanceof ISizedCursor<?, ?>) {
+            return splittable
+                ? new InstrumentedSplittableNavigableCursor<T, E>(
+                    c,
+                    metrics,
+                    input)
+                : new InstrumentedNavigableCursor<T, E>(c, metrics, input);
+        }
+        return new InstrumentedSeekableCursor<T, E>(c, metrics, input);
+    }
+
+    private IBatchCursor<T, E> fBatchCursor;
+
+    private boolean fClosed;
+
+    private long fCount;
+
+    private ICursor<T, E> fCursor;
+
+    private long fEmitted;
+
+    private boolean fInput;
+
+    private long fLoads;
+
+    private CursorMetrics fMetrics;
+
+    private long fOpenTime;
+
+    public InstrumentedCursor(ICursor<T, E> cursor, CursorMetrics metrics) {
+        this(cursor, metrics, false);
+    }
+
+    /**
+     * @param cursor the cursor to wrap
+     * @param metrics the metrics to update
+     * @param input if this flag is <code>true</code> then the wrapped cursor
+     *        is considered as an input of the stage and elements returned by
+     *        this cursor are counted as consumed ones
+     */
+    @SuppressWarnings("unchecked")
+    public InstrumentedCursor(
+        ICursor<T, E> cursor,
+        CursorMetrics metrics,
+        boolean input) {
+        fCursor = cursor;
+        if (cursor instanceof IBatchCursor<?, ?>) {
+            fBatchCursor = (IBatchCursor<T, E>) cursor;
+        }
+        fMetrics = metrics;
+        fInput = input;
+        if (!fInput) {
+            fOpenTime = System.nanoTime();
+            fMetrics.onOpen();
+        }
+    }
+
+    public void close() throws E {
+        if (!fClosed) {
+            fClosed = true;
+            flush();
+            if (!fInput) {
+                fMetrics.onClose(System.nanoTime() - fOpenTime);
+            }
+        }
+        fCursor.close();
+    }
+
+    private void flush() {
+        if (fInput) {
+            fMetrics.addConsumed(fEmitted);
+        } else {
+            fMetrics.addLoads(fLoads, fEmitted);
+        }
+        fLoads = 0;
+        fEmitted = 0;
+    }
+
+    public ICursor<T, E> getCursor() {
+        return fCursor;
+    }
+
+    public T getCurrent() {
+        return fCursor.getCurrent();
+    }
+
+    public CursorMetrics getMetrics() {
+        return fMetrics;
+    }
+
+    private int load(T[] buffer, int offset, int len) throws E {
+        if (fBatchCursor != null) {
+            return fBatchCursor.loadNext(buffer, offset, len);
+        }
+        int count = 0;
+        while (count < len && fCursor.loadNext()) {
+            buffer[offset + count++] = fCursor.getCurrent();
+        }
+        return count;
+    }
+
+    public boolean loadNext() throws E {
+        boolean sampled = (fCount++ & fMetrics.getSamplingMask()) == 0;
+        fLoads++;
+        boolean result;
+        if (sampled && !fInput) {
+            long start = System.nanoTime();
+            result = fCursor.loadNext();
+            fMetrics.addSample(System.nanoTime() - start);
+        } else {
+            result = fCursor.loadNext();
+        }
+        if (result) {
+            fEmitted++;
+        }
+        if (sampled) {
+            flush();
+        }
+        return result;
+    }
+
+    public int loadNext(T[] buffer, int offset, int len) throws E {
+        boolean sampled = (fCount++ & fMetrics.getSamplingMask()) == 0;
+        fLoads++;
+        int result;
+        if (sampled && !fInput) {
+            long start = System.nanoTime();
+            result = load(buffer, offset, len);
+            fMetrics.addSample(System.nanoTime() - start);
+        } else {
+            result = load(buffer, offset, len);
+        }
+        fEmitted += result;
+        if (sampled) {
+            flush();
+        }
+        return result;
+    }
+
+    /**
+     * Returns a new instrumented cursor for a part split from the wrapped
+     * cursor. The part updates the same metrics as this cursor.
+     * 
+     * @param part the part split from the wrapped cursor
+     * @return an instrumented part or <code>null</code> if the given part is
+     *         <code>null</code>
+     */
+    protected ICursor<T, E> newPart(ICursor<T, E> part) {
+        return part != null ? newCursor(part, fMetrics, fInput) : null;
+    }
+
+    @Override
+    public String toString() {
+        return "InstrumentedCursor[" + fMetrics.getName() + ":" + fCursor + "]";
+    }
+
+}
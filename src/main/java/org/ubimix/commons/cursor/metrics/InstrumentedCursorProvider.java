@@ -0,0 +1,47 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor.metrics;
+
+import org.ubimix.commons.cursor.ICursor;
+import org.ubimix.commons.cursor.ICursorProvider;
+
+/**
+ * This provider wraps all cursors returned by another provider in
+ * {@link InstrumentedCursor}s updating the same metrics. It can be used to
+ * measure for example all children cursors of a
+ * {@link org.ubimix.commons.cursor.TreeCursor}.
+ * 
+ * @author kotelnikov
+ * @param <P> the type of parameters of the provider
+ * @param <T> the type of elements returned by cursors
+ * @param <E> the type of exceptions
+ */
+public class InstrumentedCursorProvider<P, T, E extends Exception>
+    implements
+    ICursorProvider<P, E, ICursor<T, E>> {
+
+    private CursorMetrics fMetrics;
+
+    private ICursorProvider<P, E, ? extends ICursor<T, E>> fProvider;
+
+    public InstrumentedCursorProvider(
+        ICursorProvider<P, E, ? extends ICursor<T, E>> provider,
+        CursorMetrics metrics) {
+        fProvider = provider;
+        fMetrics = metrics;
+    }
+
+    public ICursor<T, E> getCursor(P parameter) throws E {
+        ICursor<T, E> cursor = fProvider.getCursor(parameter);
+        if (cursor != null) {
+            cursor = InstrumentedCursor.newCursor(cursor, fMetrics, false);
+        }
+        return cursor;
+    }
+
+    public CursorMetrics getMetrics() {
+        return fMetrics;
+    }
+
+}
@@ -0,0 +1,49 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor.metrics;
+
+import org.ubimix.commons.cursor.ISeekableCursor;
+import org.ubimix.commons.cursor.ISizedCursor;
+
+/**
+ * An instrumented cursor for wrapped cursors implementing both
+ * {@link ISeekableCursor} and {@link ISizedCursor} interfaces.
+ * 
+ * @author kotelnikov
+ */
+public class InstrumentedNavigableCursor<T, E extends Exception>
+    extends
+    InstrumentedSeekableCursor<T, E>
+    implements
+    ISizedCursor<T, E> {
+
+    private ISizedCursor<T, E> fSizedCursor;
+
+    public InstrumentedNavigableCursor(
+        ISeekableCursor<T, E> cursor,
+        CursorMetrics metrics) {
+        this(cursor, metrics, false);
+    }
+
+    /**
+     * @param cursor the cursor to wrap; it should implement the
+     *        {@link ISizedCursor} interface
+     * @param metrics the metrics to update
+     * @param input if this flag is <code>true</code> then the wrapped cursor
+     *        is considered as an input of the stage
+     */
+    @SuppressWarnings("unchecked")
+    public InstrumentedNavigableCursor(
+        ISeekableCursor<T, E> cursor,
+        CursorMetrics metrics,
+        boolean input) {
+        super(cursor, metrics, input);
+        fSizedCursor = (ISizedCursor<T, E>) cursor;
+    }
+
+    public int getRemaining() {
+        return fSizedCursor.getRemaining();
+    }
+
+}
@@ -0,0 +1,50 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor.metrics;
+
+import org.ubimix.commons.cursor.ISeekableCursor;
+
+/**
+ * An instrumented cursor forwarding the {@link ISeekableCursor} methods to
+ * the wrapped cursor. Seek and skip operations are not measured.
+ * 
+ * @author kotelnikov
+ */
+public class InstrumentedSeekableCursor<T, E extends Exception>
+    extends
+    InstrumentedCursor<T, E>
+    implements
+    ISeekableCursor<T, E> {
+
+    private ISeekableCursor<T, E> fSeekableCursor;
+
+    public InstrumentedSeekableCursor(
+        ISeekableCursor<T, E> cursor,
+        CursorMetrics metrics) {
+        this(cursor, metrics, false);
+    }
+
+    /**
+     * @param cursor the cursor to wrap
+     * @param metrics the metrics to update
+     * @param input if this flag is <code>true</code> then the wrapped cursor
+     *        is considered as an input of the stage
+     */
+    public InstrumentedSeekableCursor(
+        ISeekableCursor<T, E> cursor,
+        CursorMetrics metrics,
+        boolean input) {
+        super(cursor, metrics, input);
+        fSeekableCursor = cursor;
+    }
+
+    public boolean seek(T key) throws E {
+        return fSeekableCursor.seek(key);
+    }
+
+    public int skip(int count) throws E {
+        return fSeekableCursor.skip(count);
+    }
+
+}
@@ -0,0 +1,48 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor.metrics;
+
+import org.ubimix.commons.cursor.ICursor;
+import org.ubimix.commons.cursor.ISplittableCursor;
+
+/**
+ * An instrumented cursor forwarding the {@link ISplittableCursor} methods to
+ * the wrapped cursor. Split parts are instrumented as well and they update
+ * the same metrics.
+ * 
+ * @author kotelnikov
+ */
+public class InstrumentedSplittableCursor<T, E extends Exception>
+    extends
+    InstrumentedCursor<T, E>
+    implements
+    ISplittableCursor<T, E> {
+
+    private ISplittableCursor<T, E> fSplittableCursor;
+
+    public InstrumentedSplittableCursor(
+        ISplittableCursor<T, E> cursor,
+        CursorMetrics metrics) {
+        this(cursor, metrics, false);
+    }
+
+    /**
+     * @param cursor the cursor to wrap
+     * @param metrics the metrics to update
+     * @param input if this flag is <code>true</code> then the wrapped cursor
+     *        is considered as an input of the stage
+     */
+    public InstrumentedSplittableCursor(
+        ISplittableCursor<T, E> cursor,
+        CursorMetrics metrics,
+        boolean input) {
+        super(cursor, metrics, input);
+        fSplittableCursor = cursor;
+    }
+
+    public ICursor<T, E> split() throws E {
+        return newPart(fSplittableCursor.split());
+    }
+
+}
@@ -0,0 +1,53 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor.metrics;
+
+import org.ubimix.commons.cursor.ICursor;
+import org.ubimix.commons.cursor.ISeekableCursor;
+import org.ubimix.commons.cursor.ISizedCursor;
+import org.ubimix.commons.cursor.ISplittableCursor;
+
+/**
+ * An instrumented cursor for wrapped cursors implementing the
+ * {@link ISeekableCursor}, {@link ISizedCursor} and {@link ISplittableCursor}
+ * interfaces. Split parts are instrumented as well and they update the same
+ * metrics.
+ * 
+ * @author kotelnikov
+ */
+public class InstrumentedSplittableNavigableCursor<T, E extends Exception>
+    extends
+    InstrumentedNavigableCursor<T, E>
+    implements
+    ISplittableCursor<T, E> {
+
+    private ISplittableCursor<T, E> fSplittableCursor;
+
+    public InstrumentedSplittableNavigableCursor(
+        ISeekableCursor<T, E> cursor,
+        CursorMetrics metrics) {
+        this(cursor, metrics, false);
+    }
+
+    /**
+     * @param cursor the cursor to wrap; it should implement the
+     *        {@link ISizedCursor} and {@link ISplittableCursor} interfaces
+     * @param metrics the metrics to update
+     * @param input if this flag is <code>true</code> then the wrapped cursor
+     *        is considered as an input of the stage
+     */
+    @SuppressWarnings("unchecked")
+    public InstrumentedSplittableNavigableCursor(
+        ISeekableCursor<T, E> cursor,
+        CursorMetrics metrics,
+        boolean input) {
+        super(cursor, metrics, input);
+        fSplittableCursor = (ISplittableCursor<T, E>) cursor;
+    }
+
+    public ICursor<T, E> split() throws E {
+        return newPart(fSplittableCursor.split());
+    }
+
+}
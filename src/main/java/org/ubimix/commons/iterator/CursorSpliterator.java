@@ -0,0 +1,297 @@
+/**
+ * 
+ */
+package org.ubimix.commons.iterator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.ubimix.commons.cursor.BatchCursorAdapter;
+import org.ubimix.commons.cursor.IBatchCursor;
+import org.ubimix.commons.cursor.ICursor;
+import org.ubimix.commons.cursor.ISizedCursor;
+import org.ubimix.commons.cursor.ISplittableCursor;
+import org.ubimix.commons.cursor.ListCursor;
+
+/**
+ * This spliterator returns elements of a cursor. Cursors implementing the
+ * {@link ISplittableCursor} interface are split directly. Elements of all
+ * other cursors are split by batches: each split loads the next batch of
+ * elements in an array (batches become bigger with each split). So streams
+ * over cursors can be processed in parallel.
+ * <p>
+ * The spliterator is always {@link #ORDERED}. It is {@link #SORTED} if a
+ * comparator is given and {@link #SIZED} if the cursor implements the
+ * {@link ISizedCursor} interface. The cursor is closed when all its elements
+ * are returned. Spliterators split from this one are closed in the same way;
+ * the {@link #close()} method closes all of them which are not exhausted yet
+ * (for example, when a short-circuiting operation stops the stream). Exceptions
+ * of cursors are re-thrown as runtime exceptions.
+ * </p>
+ * 
+ * <pre>
+ * // Example of usage:
+ * ICursor&lt;MyType, E&gt; cursor = ...;
+ * long count = CursorSpliterator.stream(cursor, true)
+ *     .filter(...)
+ *     .count();
+ * </pre>
+ * 
+ * @author kotelnikov
+ * @param <T> the type of elements
+ * @param <E> the type of exceptions thrown by the cursor
+ */
+public class CursorSpliterator<T, E extends Exception>
+    implements
+    Spliterator<T> {
+
+    /**
+     * The size increment of batches loaded from not splittable cursors
+     */
+    public static final int BATCH_UNIT = 1 << 10;
+
+    /**
+     * The maximal size of batches loaded from not splittable cursors
+     */
+    public static final int MAX_BATCH = 1 << 25;
+
+    /**
+     * Returns a stream of elements of the given cursor. The cursor and cursors
+     * of all split parts are closed when the stream is closed.
+     * 
+     * @param cursor the cursor to transform
+     * @param parallel if it is <code>true</code> then the returned stream is
+     *        parallel
+     * @return a stream over cursor elements
+     */
+    public static <T, E extends Exception> Stream<T> stream(
+        ICursor<T, E> cursor,
+        boolean parallel) {
+        return stream(new CursorSpliterator<T, E>(cursor), parallel);
+    }
+
+    /**
+     * Returns a stream of elements of the given sorted cursor. The cursor and
+     * cursors of all split parts are closed when the stream is closed.
+     * 
+     * @param cursor the cursor to transform
+     * @param comparator the comparator defining the order of elements
+     * @param parallel if it is <code>true</code> then the returned stream is
+     *        parallel
+     * @return a stream over cursor elements
+     */
+    public static <T, E extends Exception> Stream<T> stream(
+        ICursor<T, E> cursor,
+        Comparator<? super T> comparator,
+        boolean parallel) {
+        return stream(
+            new CursorSpliterator<T, E>(cursor, comparator),
+            parallel);
+    }
+
+    private static <T, E extends Exception> Stream<T> stream(
+        final CursorSpliterator<T, E> spliterator,
+        boolean parallel) {
+        return StreamSupport.stream(spliterator, parallel).onClose(
+            new Runnable() {
+                public void run() {
+                    spliterator.close();
+                }
+            });
+    }
+
+    private int fBatchSize;
+
+    private int fCharacteristics;
+
+    private Comparator<? super T> fComparator;
+
+    private ICursor<T, E> fCursor;
+
+    private boolean fFinished;
+
+    /**
+     * Spliterators split from this one. They are closed by the
+     * {@link #close()} method of this spliterator. Parts could be split in
+     * other threads, so this list is synchronized.
+     */
+    private List<CursorSpliterator<T, E>> fSplits = Collections
+        .synchronizedList(new ArrayList<CursorSpliterator<T, E>>());
+
+    public CursorSpliterator(ICursor<T, E> cursor) {
+        this(cursor, null, ORDERED);
+    }
+
+    /**
+     * @param cursor the cursor returning elements sorted using the given
+     *        comparator
+     * @param comparator the comparator defining the order of elements
+     */
+    public CursorSpliterator(
+        ICursor<T, E> cursor,
+        Comparator<? super T> comparator) {
+        this(cursor, comparator, ORDERED | SORTED);
+    }
+
+    private CursorSpliterator(
+        ICursor<T, E> cursor,
+        Comparator<? super T> comparator,
+        int characteristics) {
+        fCursor = cursor;
+        fComparator = comparator;
+        fCharacteristics = characteristics;
+        if (cursor instanceof ISizedCursor<?, ?>) {
+            fCharacteristics |= SIZED;
+        }
+    }
+
+    public int characteristics() {
+        return fCharacteristics;
+    }
+
+    /**
+     * Closes the underlying cursor and cursors of all spliterators split from
+     * this one
+     */
+    public void close() {
+        Throwable error = null;
+        try {
+            closeCursor();
+        } catch (Throwable t) {
+            error = t;
+        }
+        List<CursorSpliterator<T, E>> splits;
+        synchronized (fSplits) {
+            splits = new ArrayList<CursorSpliterator<T, E>>(fSplits);
+            fSplits.clear();
+        }
+        for (CursorSpliterator<T, E> split : splits) {
+            try {
+                split.close();
+            } catch (Throwable t) {
+                if (error == null) {
+                    error = t;
+                }
+            }
+        }
+        if (error != null) {
+            throw handleException(error);
+        }
+    }
+
+    /**
+     * Closes only the cursor of this spliterator. The reference to the cursor
+     * is removed, so exhausted parts do not keep loaded batches in memory.
+     */
+    private void closeCursor() {
+        if (fFinished) {
+            return;
+        }
+        fFinished = true;
+        ICursor<T, E> cursor = fCursor;
+        fCursor = null;
+        try {
+            cursor.close();
+        } catch (Throwable t) {
+            throw handleException(t);
+        }
+    }
+
+    public long estimateSize() {
+        if (fFinished) {
+            return 0;
+        }
+        if (fCursor instanceof ISizedCursor<?, ?>) {
+            return ((ISizedCursor<T, E>) fCursor).getRemaining();
+        }
+        return Long.MAX_VALUE;
+    }
+
+    public Comparator<? super T> getComparator() {
+        if ((fCharacteristics & SORTED) == 0) {
+            throw new IllegalStateException();
+        }
+        return fComparator;
+    }
+
+    private RuntimeException handleException(Throwable t) {
+        if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        return new RuntimeException(t);
+    }
+
+    private CursorSpliterator<T, E> newSpliterator(ICursor<T, E> cursor) {
+        CursorSpliterator<T, E> split = new CursorSpliterator<T, E>(
+            cursor,
+            fComparator,
+            fCharacteristics & (ORDERED | SORTED));
+        fSplits.add(split);
+        return split;
+    }
+
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (fFinished) {
+            return false;
+        }
+        boolean result;
+        try {
+            result = fCursor.loadNext();
+        } catch (Throwable t) {
+            throw handleException(t);
+        }
+        if (result) {
+            action.accept(fCursor.getCurrent());
+        } else {
+            closeCursor();
+        }
+        return result;
+    }
+
+    public Spliterator<T> trySplit() {
+        if (fFinished) {
+            return null;
+        }
+        try {
+            if (fCursor instanceof ISplittableCursor<?, ?>) {
+                ICursor<T, E> part = ((ISplittableCursor<T, E>) fCursor)
+                    .split();
+                return part != null ? newSpliterator(part) : null;
+            }
+            // Not splittable cursors: the next batch of elements is loaded
+            // in memory and returned as a separate spliterator
+            int size = Math.min(fBatchSize + BATCH_UNIT, MAX_BATCH);
+            size = (int) Math.min(size, estimateSize());
+            if (size <= 0) {
+                return null;
+            }
+            @SuppressWarnings("unchecked")
+            T[] batch = (T[]) new Object[size];
+            IBatchCursor<T, E> cursor = BatchCursorAdapter
+                .toBatchCursor(fCursor);
+            int count = cursor.loadNext(batch, 0, size);
+            if (count == 0) {
+                closeCursor();
+                return null;
+            }
+            fBatchSize = size;
+            return newSpliterator(new ListCursor<T, E>(
+                Arrays.asList(batch),
+                0,
+                count,
+                fComparator));
+        } catch (Throwable t) {
+            throw handleException(t);
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+/**
+ * 
+ */
+package org.ubimix.commons.iterator;
+
+import org.ubimix.commons.cursor.IIntCursor;
+
+/**
+ * This adapter gives access to the values of an {@link IIntCursor} as to a
+ * primitive Java iterator.
+ * 
+ * @author kotelnikov
+ */
+public class IntCursorAdapter<E extends Exception> extends IntShiftIterator {
+
+    private IIntCursor<E> fCursor;
+
+    /**
+     * 
+     */
+    public IntCursorAdapter(IIntCursor<E> cursor) {
+        fCursor = cursor;
+    }
+
+    public void close() throws E {
+        fCursor.close();
+    }
+
+    private RuntimeException handleException(Throwable t) {
+        if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        return new RuntimeException(t);
+    }
+
+    /**
+     * @see org.ubimix.commons.iterator.IntShiftIterator#shiftItem()
+     */
+    @Override
+    protected boolean shiftItem() {
+        try {
+            if (fCursor.loadNext()) {
+                fValue = fCursor.getCurrent();
+                return true;
+            } else {
+                fCursor.close();
+                return false;
+            }
+        } catch (Throwable t) {
+            throw handleException(t);
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+/* ************************************************************************** *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ * 
+ * This file is licensed to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * ************************************************************************** */
+package org.ubimix.commons.iterator;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * This is a version of the {@link ShiftIterator} for <code>int</code>
+ * values. Primitive values can not be <code>null</code> so the
+ * {@link #shiftItem()} method returns a flag showing if the next value was
+ * loaded.
+ * 
+ * @author kotelnikov
+ */
+public abstract class IntShiftIterator implements PrimitiveIterator.OfInt {
+
+    private boolean fDone;
+
+    private boolean fLoaded;
+
+    protected int fValue;
+
+    /**
+     * @return <code>true</code> if there is at least one value to return.
+     */
+    public boolean hasNext() {
+        return step(true);
+    }
+
+    /**
+     * Returns the next value.
+     * 
+     * @return the next value.
+     * @throws NoSuchElementException if there is no more values
+     */
+    public int nextInt() {
+        if (!step(false)) {
+            throw new NoSuchElementException();
+        }
+        return fValue;
+    }
+
+    /**
+     * @throws UnsupportedOperationException - this is an unallowed operation.
+     */
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Loads the next value in the {@link #fValue} field.
+     * 
+     * @return <code>true</code> if the next value was successfully loaded
+     */
+    protected abstract boolean shiftItem();
+
+    /**
+     * Go to the next value.
+     * 
+     * @param result
+     * @return true if a new value was successfully loaded
+     */
+    private boolean step(boolean result) {
+        if (!fDone) {
+            fLoaded = shiftItem();
+        }
+        fDone = result;
+        return fLoaded;
+    }
+
+}
@@ -0,0 +1,56 @@
+/**
+ * 
+ */
+package org.ubimix.commons.iterator;
+
+import org.ubimix.commons.cursor.ILongCursor;
+
+/**
+ * This adapter gives access to the values of an {@link ILongCursor} as to a
+ * primitive Java iterator.
+ * 
+ * @author kotelnikov
+ */
+public class LongCursorAdapter<E extends Exception> extends LongShiftIterator {
+
+    private ILongCursor<E> fCursor;
+
+    /**
+     * 
+     */
+    public LongCursorAdapter(ILongCursor<E> cursor) {
+        fCursor = cursor;
+    }
+
+    public void close() throws E {
+        fCursor.close();
+    }
+
+    private RuntimeException handleException(Throwable t) {
+        if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        return new RuntimeException(t);
+    }
+
+    /**
+     * @see org.ubimix.commons.iterator.LongShiftIterator#shiftItem()
+     */
+    @Override
+    protected boolean shiftItem() {
+        try {
+            if (fCursor.loadNext()) {
+                fValue = fCursor.getCurrent();
+                return true;
+            } else {
+                fCursor.close();
+                return false;
+            }
+        } catch (Throwable t) {
+            throw handleException(t);
+        }
+    }
+
+}
@@ -4,6 +4,9 @@ import junit.framework.Test;
 import junit.framework.TestSuite;
 
 import org.ubimix.commons.cursor.CursorTest;
+import org.ubimix.commons.cursor.PrimitiveCursorTest;
+import org.ubimix.commons.cursor.metrics.CursorMetricsTest;
+import org.ubimix.commons.iterator.CursorSpliteratorTest;
 import org.ubimix.commons.iterator.ShiftIteratorIteratorTest;
 
 public class AllTests {
@@ -12,7 +15,10 @@ public class AllTests {
         TestSuite suite = new TestSuite(AllTests.class.getName());
         // $JUnit-BEGIN$
         suite.addTestSuite(CursorTest.class);
+        suite.addTestSuite(PrimitiveCursorTest.class);
+        suite.addTestSuite(CursorMetricsTest.class);
         suite.addTestSuite(ShiftIteratorIteratorTest.class);
+        suite.addTestSuite(CursorSpliteratorTest.class);
         // $JUnit-END$
         return suite;
     }
@@ -3,16 +3,40 @@
  */
 package org.ubimix.commons.cursor;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.TestCase;
 
+import org.ubimix.commons.cursor.AggregationCursor.Aggregate;
+import org.ubimix.commons.cursor.DiffCursor.BatchDiffCursorListener;
 import org.ubimix.commons.cursor.DiffCursor.DiffCursorListener;
+import org.ubimix.commons.cursor.DiffCursor.IBatchDiffCursorListener;
 import org.ubimix.commons.cursor.DiffCursor.IDiffCursorListener;
+import org.ubimix.commons.cursor.GroupCursor.BatchGroupListener;
 import org.ubimix.commons.cursor.GroupCursor.GroupListener;
+import org.ubimix.commons.cursor.GroupCursor.IBatchGroupListener;
 import org.ubimix.commons.cursor.GroupCursor.IGroupListener;
 
 /**
@@ -42,6 +66,26 @@ public class CursorTest extends TestCase {
         return new String[0];
     }
 
+    private IBatchDiffCursorListener<String, RuntimeException> newBatchDiffRecorder(
+        final List<String> events) {
+        return new IBatchDiffCursorListener<String, RuntimeException>() {
+            public void onValuesAdded(List<String> values) {
+                events.add("+" + values);
+            }
+
+            public void onValuesRemoved(List<String> values) {
+                events.add("-" + values);
+            }
+
+            public void onValuesUpdated(
+                List<String> firstValues,
+                List<String> secondValues) {
+                assertEquals(firstValues.size(), secondValues.size());
+                events.add("~" + firstValues);
+            }
+        };
+    }
+
     protected ICursor<String, RuntimeException> newCharCursor(String value) {
         List<String> list = new ArrayList<String>();
         for (int i = 0; i < value.length(); i++) {
@@ -52,6 +96,105 @@ public class CursorTest extends TestCase {
         return iterator;
     }
 
+    /**
+     * Returns a list of numbers from 0 to size-1 formatted with the same
+     * number of digits; each access to list elements increments the given
+     * counter.
+     */
+    private List<String> newCountingList(final int size, final int[] counter) {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                counter[0]++;
+                return toKey(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private File newRecordFile(int first, int step, int last)
+        throws IOException {
+        File file = File.createTempFile("records", ".bin");
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+        try {
+            for (int i = first; i < last; i += step) {
+                out.writeLong(i);
+                out.writeInt(i * 10);
+            }
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private MappedRecord newRecordKey(long key) {
+        byte[] data = new byte[12];
+        for (int i = 7; i >= 0; i--) {
+            data[i] = (byte) key;
+            key >>= 8;
+        }
+        return MappedRecord.wrap(data);
+    }
+
+    private IDiffCursorListener<String, RuntimeException> newDiffRecorder(
+        final List<String> events) {
+        return new DiffCursorListener<String, RuntimeException>() {
+            @Override
+            public void onValueAdded(String value) {
+                events.add("+" + value);
+            }
+
+            @Override
+            public void onValueRemoved(String value) {
+                events.add("-" + value);
+            }
+
+            @Override
+            public void onValueUpdated(String firstValue, String secondValue) {
+                events.add("~" + firstValue);
+            }
+        };
+    }
+
+    /**
+     * Returns a fingerprint source counting values returned by its cursors
+     */
+    private IFingerprintSource<String, RuntimeException> newFingerprintSource(
+        List<String> list,
+        Comparator<String> comparator,
+        final int[] counter) {
+        return new ListFingerprintSource<String, RuntimeException>(
+            list,
+            comparator) {
+            @Override
+            public ICursor<String, RuntimeException> getCursor(
+                String first,
+                String last) {
+                return new FilteringCursor<String, RuntimeException>(super
+                    .getCursor(first, last)) {
+                    @Override
+                    protected boolean accept(String current) {
+                        counter[0]++;
+                        return true;
+                    }
+                };
+            }
+        };
+    }
+
+    private List<ICursor<String, RuntimeException>> newListCursors(
+        List<List<String>> lists) {
+        List<ICursor<String, RuntimeException>> cursors = new ArrayList<ICursor<String, RuntimeException>>();
+        for (List<String> list : lists) {
+            cursors.add(new ListCursor<String, RuntimeException>(list));
+        }
+        return cursors;
+    }
+
     private RangeCursor<String, RuntimeException> newRangeCursor(
         int pos,
         int count,
@@ -63,6 +206,47 @@ public class CursorTest extends TestCase {
 
     }
 
+    /**
+     * Returns a cursor failing if it is used after its end
+     */
+    private ICursor<String, RuntimeException> newStrictCursor(
+        final String... values) {
+        return new ICursor<String, RuntimeException>() {
+
+            private boolean fFinished;
+
+            private int fPos = -1;
+
+            public void close() {
+                fFinished = true;
+            }
+
+            public String getCurrent() {
+                return fPos >= 0 && fPos < values.length ? values[fPos] : null;
+            }
+
+            public boolean loadNext() {
+                assertFalse(fFinished);
+                fPos++;
+                fFinished = fPos >= values.length;
+                return !fFinished;
+            }
+        };
+    }
+
+    private ISerializer<String> newStringSerializer() {
+        return new ISerializer<String>() {
+            public String read(DataInput in) throws IOException {
+                return in.readUTF();
+            }
+
+            public void write(DataOutput out, String value)
+                throws IOException {
+                out.writeUTF(value);
+            }
+        };
+    }
+
     private void test(
         ICursor<String, RuntimeException> cursor,
         String... control) throws RuntimeException {
@@ -78,6 +262,386 @@ public class CursorTest extends TestCase {
         }
     }
 
+    public void testAggregationCursor() throws Exception {
+        IKeyExtractor<String, String> key = new IKeyExtractor<String, String>() {
+            public String getKey(String value) {
+                return value.substring(0, 1);
+            }
+        };
+        IKeyExtractor<String, Integer> number = new IKeyExtractor<String, Integer>() {
+            public Integer getKey(String value) {
+                return Integer.parseInt(value.substring(1));
+            }
+        };
+        List<String> list = Arrays.asList(
+            "a3",
+            "a1",
+            "a2",
+            "b5",
+            "c1",
+            "c9",
+            "a4");
+        IAggregator<String, Object[], List<Object>> aggregator = Aggregators
+            .compose(
+                Aggregators.<String> count(),
+                Aggregators.longSum(number),
+                Aggregators.<String> first(),
+                Aggregators.<String> last(),
+                Aggregators.min(STRING_COMPARATOR),
+                Aggregators.max(STRING_COMPARATOR),
+                Aggregators.<String> distinct(Aggregators.DEFAULT_PRECISION));
+        AggregationCursor<String, String, List<Object>, RuntimeException> cursor = new AggregationCursor<String, String, List<Object>, RuntimeException>(
+            new ListCursor<String, RuntimeException>(list),
+            key,
+            aggregator);
+        List<String> results = new ArrayList<String>();
+        while (cursor.loadNext()) {
+            results.add(cursor.getCurrent().toString());
+        }
+        cursor.close();
+        assertEquals(Arrays.asList(
+            "a=[3, 6, a3, a2, a1, a3, 3]",
+            "b=[1, 5, b5, b5, b5, b5, 1]",
+            "c=[2, 10, c1, c9, c1, c9, 2]",
+            "a=[1, 4, a4, a4, a4, a4, 1]"), results);
+
+        // Empty cursor
+        cursor = new AggregationCursor<String, String, List<Object>, RuntimeException>(
+            new ListCursor<String, RuntimeException>(
+                Collections.<String> emptyList()),
+            key,
+            aggregator);
+        assertFalse(cursor.loadNext());
+        cursor.close();
+
+        // Combined states of approximate distinct counters
+        IAggregator<String, byte[], Long> distinct = Aggregators.distinct(14);
+        byte[] first = distinct.newState();
+        byte[] second = distinct.newState();
+        for (int i = 0; i < 20000; i++) {
+            first = distinct.add(first, "v" + (i % 10000));
+            second = distinct.add(second, "v" + (5000 + i % 10000));
+        }
+        long firstCount = distinct.getResult(first);
+        long count = distinct.getResult(distinct.combine(first, second));
+        assertTrue(firstCount > 9500 && firstCount < 10500);
+        assertTrue(count > 14250 && count < 15750);
+    }
+
+    private void testBatch(
+        ICursor<String, RuntimeException> cursor,
+        int batchSize,
+        String... control) {
+        IBatchCursor<String, RuntimeException> batchCursor = BatchCursorAdapter
+            .toBatchCursor(cursor);
+        List<String> test = new ArrayList<String>();
+        try {
+            String[] buffer = new String[batchSize + 2];
+            int loaded;
+            while ((loaded = batchCursor.loadNext(buffer, 1, batchSize)) > 0) {
+                assertTrue(loaded <= batchSize);
+                assertEquals(buffer[loaded], batchCursor.getCurrent());
+                for (int i = 1; i <= loaded; i++) {
+                    test.add(buffer[i]);
+                }
+            }
+            assertNull(batchCursor.getCurrent());
+        } finally {
+            batchCursor.close();
+        }
+        assertEquals(Arrays.asList(control), test);
+    }
+
+    public void testBatchCursors() throws Exception {
+        final String[] array = a("a", "b", "c", "d", "e", "f", "g", "h");
+        for (int batchSize : new int[] { 1, 2, 3, 100 }) {
+            testBatch(
+                new IteratorBasedCursor<String, RuntimeException>(array),
+                batchSize,
+                array);
+            testBatch(
+                new FilteringCursor<String, RuntimeException>(
+                    new IteratorBasedCursor<String, RuntimeException>(array)) {
+                    @Override
+                    protected boolean accept(String current) {
+                        return current.compareTo("b") > 0
+                            && !"e".equals(current);
+                    }
+                },
+                batchSize,
+                "c",
+                "d",
+                "f",
+                "g",
+                "h");
+            testBatch(newRangeCursor(2, 3, array), batchSize, "c", "d", "e");
+            testBatch(newRangeCursor(6, 5, array), batchSize, "g", "h");
+            testBatch(newRangeCursor(9, 5, array), batchSize);
+            testBatch(
+                new ComparableRangeCursor<String, RuntimeException>(
+                    new IteratorBasedCursor<String, RuntimeException>(array),
+                    "b",
+                    false,
+                    "f",
+                    true,
+                    STRING_COMPARATOR),
+                batchSize,
+                "c",
+                "d",
+                "e",
+                "f");
+            testBatch(new SequentialCursor<String, RuntimeException>() {
+                int fPos;
+
+                @Override
+                protected ICursor<String, RuntimeException> loadNextCursor(
+                    ICursor<String, RuntimeException> cursor) {
+                    if (fPos >= array.length) {
+                        return null;
+                    }
+                    fPos += 3;
+                    return newRangeCursor(fPos - 3, 3, array);
+                }
+            }, batchSize, array);
+            // Finished sub-cursors should not be used anymore
+            testBatch(new SequentialCursor<String, RuntimeException>() {
+                int fPos;
+
+                @Override
+                protected ICursor<String, RuntimeException> loadNextCursor(
+                    ICursor<String, RuntimeException> cursor) {
+                    String[][] parts = {
+                        a("a", "b", "c"),
+                        empty(),
+                        a("d"),
+                        a("e", "f", "g", "h") };
+                    return fPos < parts.length
+                        ? newStrictCursor(parts[fPos++])
+                        : null;
+                }
+            }, batchSize, array);
+            testBatch(
+                new MergeCursor<String, RuntimeException>(
+                    STRING_COMPARATOR,
+                    newCharCursor("aceg"),
+                    newCharCursor("bdfh")),
+                batchSize,
+                array);
+            testBatch(
+                new GroupCursor<String, RuntimeException>(
+                    newCharCursor("abcdefgh"),
+                    new GroupListener<String, RuntimeException>()),
+                batchSize,
+                array);
+            test(
+                new BufferedCursor<String, RuntimeException>(
+                    new IteratorBasedCursor<String, RuntimeException>(array),
+                    batchSize),
+                array);
+            test(
+                new BufferedCursor<String, RuntimeException>(
+                    newCharCursor("abcdefgh"),
+                    batchSize),
+                array);
+        }
+    }
+
+    public void testBatchDiffCursor() throws Exception {
+        List<String> events = new ArrayList<String>();
+        IBatchDiffCursorListener<String, RuntimeException> listener = newBatchDiffRecorder(events);
+        DiffCursor<String, RuntimeException> cursor = new DiffCursor<String, RuntimeException>(
+            STRING_COMPARATOR,
+            newCharCursor("ABCDFHIJ"),
+            newCharCursor("ACEFGHKLM"),
+            listener,
+            2);
+        StringBuilder test = new StringBuilder();
+        while (cursor.loadNext()) {
+            test.append(cursor.getCurrent());
+        }
+        assertEquals(
+            Arrays.asList(
+                "~[A, C]",
+                "-[B, D]",
+                "+[E, G]",
+                "~[F, H]",
+                "-[I, J]",
+                "+[K, L]",
+                "+[M]"),
+            events);
+        assertEquals("AABCCDEFFGHHIJKLM", test.toString());
+        cursor.close();
+        assertEquals(7, events.size());
+
+        // Events collected before close are delivered by the close method
+        events.clear();
+        cursor = new DiffCursor<String, RuntimeException>(
+            STRING_COMPARATOR,
+            newCharCursor("AB"),
+            newCharCursor("AC"),
+            listener,
+            100);
+        assertTrue(cursor.loadNext());
+        assertTrue(cursor.loadNext());
+        assertTrue(cursor.loadNext());
+        assertEquals(0, events.size());
+        cursor.close();
+        assertEquals(Arrays.asList("-[B]", "~[A]"), events);
+    }
+
+    public void testBatchGroupCursor() throws Exception {
+        String[] values = a("A", "A", "B", "C", "C", "D");
+        testBatchGroupCursor(1, "");
+        testBatchGroupCursor(1, "[[A]][[B, B]][[A]]", "A", "B", "B", "A");
+        testBatchGroupCursor(2, "[[A, A]][[B], [C, C]][[D]]", values);
+        testBatchGroupCursor(100, "[[A, A], [B], [C, C], [D]]", values);
+
+        // Big groups are split; wrapped listeners get the remaining groups
+        final StringBuilder buf = new StringBuilder();
+        final BatchGroupListener<String, RuntimeException> listener = new BatchGroupListener<String, RuntimeException>(
+            new IBatchGroupListener<String, RuntimeException>() {
+                public void onGroups(List<List<String>> groups) {
+                    buf.append(groups);
+                }
+            },
+            2,
+            3);
+        GroupCursor<String, RuntimeException> cursor = new GroupCursor<String, RuntimeException>(
+            newCharCursor("AAAAAB"),
+            new GroupListener<String, RuntimeException>() {
+                @Override
+                public void beginGroup(String value) {
+                    listener.beginGroup(value);
+                }
+
+                @Override
+                public void endGroup(String value) {
+                    listener.endGroup(value);
+                }
+
+                @Override
+                public void onEnd() {
+                    listener.onEnd();
+                }
+
+                @Override
+                public void onGroup(String value) {
+                    listener.onGroup(value);
+                }
+            });
+        while (cursor.loadNext()) {
+        }
+        cursor.close();
+        assertEquals("[[A, A, A]][[A, A]][[B]]", buf.toString());
+    }
+
+    private void testBatchGroupCursor(
+        int batchSize,
+        String control,
+        String... values) {
+        final StringBuilder buf = new StringBuilder();
+        GroupCursor<String, RuntimeException> cursor = new GroupCursor<String, RuntimeException>(
+            new IteratorBasedCursor<String, RuntimeException>(values),
+            new IBatchGroupListener<String, RuntimeException>() {
+                public void onGroups(List<List<String>> groups) {
+                    buf.append(groups);
+                }
+            },
+            batchSize);
+        StringBuilder test = new StringBuilder();
+        while (cursor.loadNext()) {
+            test.append(cursor.getCurrent());
+        }
+        cursor.close();
+        assertEquals(control, buf.toString());
+        StringBuilder expected = new StringBuilder();
+        for (String value : values) {
+            expected.append(value);
+        }
+        assertEquals(expected.toString(), test.toString());
+    }
+
+    public void testBreadthFirstTreeCursor() throws Exception {
+        List<String> nodes = new ArrayList<String>();
+        for (int i = 0; i < 3; i++) {
+            nodes.add("" + i);
+            for (int j = 0; j < 3; j++) {
+                nodes.add(i + "/" + j);
+                for (int k = 0; k < 2; k++) {
+                    nodes.add(i + "/" + j + "/" + k);
+                }
+            }
+        }
+        // Nodes: 3 + 9 + 18; requests: 1 + 3 + 5 (the last for leaves)
+        testBreadthFirstTreeCursor(nodes, 4, -1, null, 9, 30);
+        testBreadthFirstTreeCursor(nodes, 4, 1, null, 1, 12);
+        testBreadthFirstTreeCursor(nodes, 4, 0, null, 0, 3);
+        testBreadthFirstTreeCursor(nodes, 1, -1, null, 30, 30);
+        ISerializer<String> serializer = newStringSerializer();
+        testBreadthFirstTreeCursor(nodes, 4, -1, serializer, 9, 30);
+        testBreadthFirstTreeCursor(nodes, 5, 2, serializer, 3, 30);
+    }
+
+    private void testBreadthFirstTreeCursor(
+        final List<String> nodes,
+        int batchSize,
+        int maxDepth,
+        ISerializer<String> serializer,
+        int requestCount,
+        int nodeCount) {
+        List<String> roots = new ArrayList<String>();
+        for (String node : nodes) {
+            if (node.indexOf('/') < 0) {
+                roots.add(node);
+            }
+        }
+        final int[] requests = { 0 };
+        BreadthFirstTreeCursor<String, RuntimeException> cursor = new BreadthFirstTreeCursor<String, RuntimeException>(
+            new ListCursor<String, RuntimeException>(roots),
+            batchSize,
+            maxDepth,
+            serializer,
+            2,
+            null) {
+            @Override
+            protected ICursor<String, RuntimeException> getChildren(
+                List<String> parents) {
+                requests[0]++;
+                List<String> children = new ArrayList<String>();
+                for (String parent : parents) {
+                    String prefix = parent + "/";
+                    for (String node : nodes) {
+                        if (node.startsWith(prefix)
+                            && node.indexOf('/', prefix.length()) < 0) {
+                            children.add(node);
+                        }
+                    }
+                }
+                return children.isEmpty()
+                    ? null
+                    : new ListCursor<String, RuntimeException>(children);
+            }
+        };
+        List<String> control = new ArrayList<String>();
+        for (int depth = 0; depth <= 2; depth++) {
+            for (String node : nodes) {
+                if (node.split("/").length == depth + 1) {
+                    control.add(node);
+                }
+            }
+        }
+        control = control.subList(0, nodeCount);
+        List<String> result = new ArrayList<String>();
+        while (cursor.loadNext()) {
+            String node = cursor.getCurrent();
+            assertEquals(node.split("/").length - 1, cursor.getDepth());
+            result.add(node);
+        }
+        cursor.close();
+        assertEquals(control, result);
+        assertEquals(requestCount, requests[0]);
+    }
+
     public void testConditionRangeCursor() throws Exception {
         testConditionRangeCursor("b", "e", empty(), empty());
         testConditionRangeCursor(
@@ -146,6 +710,8 @@ public class CursorTest extends TestCase {
             "1AAAAABC",
             "[~1][~A][+A][+A][+A][+A][+B][+C][-D]",
             "11AAAAAABCD");
+        testDiffCursor("AAA", "AAA", "[~A][~A][~A]", "AAAAAA");
+        testDiffCursor("AB", "AAB", "[~A][+A][~B]", "AAABB");
     };
 
     private void testDiffCursor(
@@ -188,6 +754,30 @@ public class CursorTest extends TestCase {
         assertEquals(result, test.toString());
     }
 
+    public void testDiffCursorEventOrder() throws Exception {
+        // Events about each value are delivered before the next value is
+        // loaded; the last event is delivered with the last value.
+        final List<String> events = new ArrayList<String>();
+        DiffCursor<String, RuntimeException> cursor = new DiffCursor<String, RuntimeException>(
+            STRING_COMPARATOR,
+            newCharCursor("AB"),
+            newCharCursor("AC"),
+            newDiffRecorder(events));
+        assertTrue(cursor.loadNext());
+        assertEquals("[]", events.toString());
+        assertTrue(cursor.loadNext());
+        assertEquals("[~A]", events.toString());
+        assertTrue(cursor.loadNext());
+        assertEquals("B", cursor.getCurrent());
+        assertEquals("[~A]", events.toString());
+        assertTrue(cursor.loadNext());
+        assertEquals("C", cursor.getCurrent());
+        assertEquals("[~A, -B, +C]", events.toString());
+        assertFalse(cursor.loadNext());
+        assertEquals("[~A, -B, +C]", events.toString());
+        cursor.close();
+    }
+
     public void testFilteringCursor() throws Exception {
         testFilteringCursor(
             "a",
@@ -211,6 +801,89 @@ public class CursorTest extends TestCase {
         test(cursor, control);
     }
 
+    public void testFingerprintDiff() throws Exception {
+        Random random = new Random(789);
+        List<String> first = new ArrayList<String>();
+        List<String> second = new ArrayList<String>();
+        List<String> control = new ArrayList<String>();
+        for (int i = 0; i < 100000; i++) {
+            String key = toKey(i);
+            int type = random.nextInt(10000);
+            if (type == 0) {
+                first.add(key);
+                control.add("-" + key);
+            } else if (type == 1) {
+                second.add(key);
+                control.add("+" + key);
+            } else if (type == 2) {
+                first.add(key + "a");
+                second.add(key + "b");
+                control.add("~" + key + "a");
+            } else {
+                first.add(key);
+                second.add(key);
+            }
+        }
+        // Changed values have the same key
+        Comparator<String> comparator = new Comparator<String>() {
+            public int compare(String o1, String o2) {
+                return o1.substring(0, 6).compareTo(o2.substring(0, 6));
+            }
+        };
+        final int[] counter = { 0 };
+        List<String> events = new ArrayList<String>();
+        new FingerprintDiff<String, RuntimeException>(
+            comparator,
+            newFingerprintSource(first, comparator, counter),
+            newFingerprintSource(second, comparator, counter),
+            newDiffRecorder(events)).run();
+        assertEquals(control, events);
+        assertTrue(counter[0] < 10000);
+
+        // Identical sources are not read at all
+        counter[0] = 0;
+        events.clear();
+        new FingerprintDiff<String, RuntimeException>(
+            comparator,
+            newFingerprintSource(first, comparator, counter),
+            newFingerprintSource(first, comparator, counter),
+            newDiffRecorder(events)).run();
+        assertEquals(0, events.size());
+        assertEquals(0, counter[0]);
+
+        // Completely different sources
+        events.clear();
+        new FingerprintDiff<String, RuntimeException>(
+            STRING_COMPARATOR,
+            newFingerprintSource(
+                Arrays.asList("a", "b"),
+                STRING_COMPARATOR,
+                counter),
+            newFingerprintSource(
+                Collections.<String> emptyList(),
+                STRING_COMPARATOR,
+                counter),
+            newDiffRecorder(events)).run();
+        assertEquals(Arrays.asList("-a", "-b"), events);
+
+        // Events buffered by the listener are delivered at the end
+        events.clear();
+        new FingerprintDiff<String, RuntimeException>(
+            STRING_COMPARATOR,
+            newFingerprintSource(
+                Arrays.asList("a", "b"),
+                STRING_COMPARATOR,
+                counter),
+            newFingerprintSource(
+                Collections.<String> emptyList(),
+                STRING_COMPARATOR,
+                counter),
+            new BatchDiffCursorListener<String, RuntimeException>(
+                newBatchDiffRecorder(events),
+                100)).run();
+        assertEquals(Arrays.asList("-[a, b]"), events);
+    }
+
     public void testGraphCursor() {
         testGraphCursor("[a][a/b][a/c]", 2, "a", "a/b", "a/c");
         testGraphCursor("[a][a/b][a/b/c]", 3, "a", "a/b", "a/b/c");
@@ -307,6 +980,33 @@ public class CursorTest extends TestCase {
             "ABCFG",
             "BCEG");
         testGroupMergeCursor("[A:3][B:2][C:1]", "AAB", "ABC");
+
+        // Re-initialized cursors notify listeners about each end
+        final int[] ends = { 0 };
+        GroupCursor<String, RuntimeException> cursor = new GroupCursor<String, RuntimeException>(
+            new GroupListener<String, RuntimeException>() {
+                @Override
+                public void onEnd() {
+                    ends[0]++;
+                }
+            }) {
+            {
+                init(newCharCursor("AB"));
+            }
+
+            @Override
+            public void close() {
+                super.close();
+                init(newCharCursor("C"));
+            }
+        };
+        while (cursor.loadNext()) {
+        }
+        cursor.close();
+        assertEquals(1, ends[0]);
+        while (cursor.loadNext()) {
+        }
+        assertEquals(2, ends[0]);
     }
 
     public void testGroupCursor(
@@ -360,6 +1060,233 @@ public class CursorTest extends TestCase {
 
     }
 
+    public void testHashAggregationCursor() throws Exception {
+        Random random = new Random(13);
+        List<String> list = new ArrayList<String>();
+        TreeMap<String, Long> control = new TreeMap<String, Long>();
+        for (int i = 0; i < 5000; i++) {
+            String value = "k" + random.nextInt(300);
+            list.add(value);
+            Long count = control.get(value);
+            control.put(value, count != null ? count + 1 : 1L);
+        }
+        IKeyExtractor<String, String> key = new IKeyExtractor<String, String>() {
+            public String getKey(String value) {
+                return value;
+            }
+        };
+        ISerializer<long[]> counterSerializer = new ISerializer<long[]>() {
+            public long[] read(DataInput in) throws IOException {
+                return new long[] { in.readLong() };
+            }
+
+            public void write(DataOutput out, long[] value)
+                throws IOException {
+                out.writeLong(value[0]);
+            }
+        };
+        long[] budgets = { Long.MAX_VALUE, 50 * 96, 96 };
+        for (long budget : budgets) {
+            HashAggregationCursor<String, String, long[], Long, RuntimeException> cursor = new HashAggregationCursor<String, String, long[], Long, RuntimeException>(
+                new ListCursor<String, RuntimeException>(list),
+                key,
+                Aggregators.<String> count(),
+                newStringSerializer(),
+                counterSerializer,
+                budget,
+                null);
+            cursor.setPartitions(4);
+            TreeMap<String, Long> test = new TreeMap<String, Long>();
+            while (cursor.loadNext()) {
+                Aggregate<String, Long> aggregate = cursor.getCurrent();
+                assertNull(test.put(aggregate.getKey(), aggregate.getResult()));
+            }
+            cursor.close();
+            assertEquals(control, test);
+        }
+
+        // Each level of spills splits partitions in four, so 20000 keys with
+        // the budget of 500 entries are inserted in at most four tables
+        // (levels 0-3) before partitions fit in memory
+        List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < 20000; i++) {
+            keys.add("key" + i);
+        }
+        final int[] inserts = { 0 };
+        HashAggregationCursor<String, String, long[], Long, RuntimeException> spilled = new HashAggregationCursor<String, String, long[], Long, RuntimeException>(
+            new ListCursor<String, RuntimeException>(keys),
+            key,
+            Aggregators.<String> count(),
+            newStringSerializer(),
+            counterSerializer,
+            500 * 96,
+            null) {
+            @Override
+            protected long getEntrySize(String k, long[] state) {
+                inserts[0]++;
+                return super.getEntrySize(k, state);
+            }
+        };
+        spilled.setPartitions(4);
+        int count = 0;
+        while (spilled.loadNext()) {
+            count++;
+        }
+        spilled.close();
+        assertEquals(keys.size(), count);
+        assertTrue(inserts[0] <= 4 * keys.size());
+
+        // Results can be used by other cursors
+        HashAggregationCursor<String, String, long[], Long, RuntimeException> cursor = new HashAggregationCursor<String, String, long[], Long, RuntimeException>(
+            new ListCursor<String, RuntimeException>(list),
+            key,
+            Aggregators.<String> count());
+        FilteringCursor<Aggregate<String, Long>, RuntimeException> filter = new FilteringCursor<Aggregate<String, Long>, RuntimeException>(
+            cursor) {
+            @Override
+            protected boolean accept(Aggregate<String, Long> value) {
+                return value.getKey().equals("k7");
+            }
+        };
+        assertTrue(filter.loadNext());
+        assertEquals(control.get("k7"), filter.getCurrent().getResult());
+        assertFalse(filter.loadNext());
+        filter.close();
+    }
+
+    public void testHashDiff() throws Exception {
+        Random random = new Random(456);
+        final List<String> first = new ArrayList<String>();
+        final List<String> second = new ArrayList<String>();
+        List<String> control = new ArrayList<String>();
+        for (int i = 0; i < 2000; i++) {
+            String key = toKey(i) + "=";
+            int type = random.nextInt(4);
+            if (type == 0) {
+                first.add(key + "a");
+                control.add("-" + key + "a");
+            } else if (type == 1) {
+                second.add(key + "b");
+                control.add("+" + key + "b");
+            } else if (type == 2) {
+                first.add(key + "a");
+                second.add(key + "b");
+                control.add("~" + key + "a");
+            } else {
+                first.add(key + "a");
+                second.add(key + "a");
+            }
+        }
+        Collections.shuffle(first, random);
+        Collections.shuffle(second, random);
+        Collections.sort(control);
+        IKeyExtractor<String, String> keyExtractor = new IKeyExtractor<String, String>() {
+            public String getKey(String value) {
+                return value.substring(0, value.indexOf('='));
+            }
+        };
+        ICursorProvider<Integer, RuntimeException, ICursor<String, RuntimeException>> firstProvider = new ICursorProvider<Integer, RuntimeException, ICursor<String, RuntimeException>>() {
+            public ICursor<String, RuntimeException> getCursor(Integer pass) {
+                return new IteratorBasedCursor<String, RuntimeException>(
+                    first);
+            }
+        };
+        ICursorProvider<Integer, RuntimeException, ICursor<String, RuntimeException>> secondProvider = new ICursorProvider<Integer, RuntimeException, ICursor<String, RuntimeException>>() {
+            public ICursor<String, RuntimeException> getCursor(Integer pass) {
+                return new IteratorBasedCursor<String, RuntimeException>(
+                    second);
+            }
+        };
+        for (boolean buildFirst : new boolean[] { true, false }) {
+            for (long budget : new long[] { Long.MAX_VALUE, 150000, 1000 }) {
+                List<String> events = new ArrayList<String>();
+                HashDiff<String, String, RuntimeException> diff = new HashDiff<String, String, RuntimeException>(
+                    keyExtractor,
+                    firstProvider,
+                    secondProvider,
+                    newDiffRecorder(events),
+                    buildFirst,
+                    newStringSerializer(),
+                    budget,
+                    null);
+                diff.setPartitions(4);
+                diff.run();
+                Collections.sort(events);
+                assertEquals(control, events);
+            }
+        }
+    }
+
+    public void testHashes() {
+        // Keys of one partition are split evenly on the next levels
+        List<Integer> hashes = new ArrayList<Integer>();
+        for (int i = 0; i < 300000; i++) {
+            int hash = ("key" + i).hashCode();
+            if (Hashes.getPartition(hash, 0, 16) == 0) {
+                hashes.add(hash);
+            }
+        }
+        for (int level = 1; level <= 2; level++) {
+            int[] counts = new int[16];
+            List<Integer> next = new ArrayList<Integer>();
+            for (int hash : hashes) {
+                int partition = Hashes.getPartition(hash, level, 16);
+                counts[partition]++;
+                if (partition == 0) {
+                    next.add(hash);
+                }
+            }
+            for (int count : counts) {
+                assertTrue(count > 0);
+                assertTrue(count < hashes.size() * 2 / 16);
+            }
+            hashes = next;
+        }
+    }
+
+    public void testIntersectionCursor() throws Exception {
+        testIntersectionCursor("", "");
+        testIntersectionCursor("abc", "abc");
+        testIntersectionCursor("", "abc", "");
+        testIntersectionCursor("ace", "abcdef", "acegi", "abce");
+        testIntersectionCursor("", "abc", "def");
+        testIntersectionCursor("bd", "abcd", "bd", "bcdxyz");
+
+        // The cost should depend on the size of the smallest cursor
+        int[] counter = { 0 };
+        List<String> list = newCountingList(1000000, counter);
+        IntersectionCursor<String, RuntimeException> cursor = new IntersectionCursor<String, RuntimeException>(
+            STRING_COMPARATOR,
+            new ListCursor<String, RuntimeException>(list),
+            new IteratorBasedCursor<String, RuntimeException>(
+                toKey(10),
+                toKey(50000),
+                "x"),
+            new ListCursor<String, RuntimeException>(list));
+        test(cursor, toKey(10), toKey(50000));
+        assertTrue(counter[0] < 200);
+    }
+
+    private void testIntersectionCursor(String control, String... values) {
+        List<ICursor<String, RuntimeException>> cursors = new ArrayList<ICursor<String, RuntimeException>>();
+        for (int i = 0; i < values.length; i++) {
+            // Mix seekable and non-seekable cursors
+            List<String> list = Arrays.asList(values[i].split(""));
+            if (values[i].length() == 0) {
+                list = Collections.emptyList();
+            }
+            if (i % 2 == 0) {
+                cursors.add(new ListCursor<String, RuntimeException>(list));
+            } else {
+                cursors.add(newCharCursor(values[i]));
+            }
+        }
+        IntersectionCursor<String, RuntimeException> cursor = new IntersectionCursor<String, RuntimeException>(
+            STRING_COMPARATOR,
+            cursors);
+        test(cursor, control.length() > 0 ? control.split("") : empty());
+    }
+
     public void testIteratorBasedCursor() throws RuntimeException {
         testIteratorBasedCursor0();
         testIteratorBasedCursor0("a");
@@ -373,12 +1300,170 @@ public class CursorTest extends TestCase {
         test(cursor, array);
     }
 
-    public void testMergeCursor() throws Exception {
-        testMergeCursor(a("a", "b", "c"), a("a"), a("b"), a("c"));
-        testMergeCursor(a("a", "b", "c"), a("c"), a("a"), a("b"));
-        testMergeCursor(a("a", "b", "c"), a("c"), a("b"), a("a"));
-        String[] a = {};
-        testMergeCursor(a);
+    public void testLazyMergeCursor() throws Exception {
+        final Comparator<String> comparator = new Comparator<String>() {
+            public int compare(String o1, String o2) {
+                return o1.substring(0, 6).compareTo(o2.substring(0, 6));
+            }
+        };
+        final AtomicInteger open = new AtomicInteger();
+        int maxOpen = 0;
+        List<LazyMergeCursor.Input<String, RuntimeException>> inputs = new ArrayList<LazyMergeCursor.Input<String, RuntimeException>>();
+        List<ICursor<String, RuntimeException>> cursors = new ArrayList<ICursor<String, RuntimeException>>();
+        // Partitions are declared in the reverse order; each partition
+        // overlaps with the next one
+        for (int i = 99; i >= 0; i--) {
+            final List<String> list = new ArrayList<String>();
+            for (int j = 0; j < 15; j += 2) {
+                list.add(toKey(i * 10 + j) + ":" + i);
+            }
+            cursors.add(new ListCursor<String, RuntimeException>(list));
+            inputs.add(new LazyMergeCursor.Input<String, RuntimeException>(
+                new ICursorProvider<String, RuntimeException, ICursor<String, RuntimeException>>() {
+                    public ICursor<String, RuntimeException> getCursor(
+                        String parameter) {
+                        assertEquals(list.get(0), parameter);
+                        open.incrementAndGet();
+                        return new ListCursor<String, RuntimeException>(list) {
+                            @Override
+                            public void close() {
+                                super.close();
+                                open.decrementAndGet();
+                            }
+                        };
+                    }
+                },
+                list.get(0)));
+        }
+        List<String> control = new ArrayList<String>();
+        MergeCursor<String, RuntimeException> merge = new MergeCursor<String, RuntimeException>(
+            comparator,
+            cursors);
+        while (merge.loadNext()) {
+            control.add(merge.getCurrent());
+        }
+        merge.close();
+
+        LazyMergeCursor<String, RuntimeException> cursor = new LazyMergeCursor<String, RuntimeException>(
+            comparator,
+            inputs);
+        List<String> result = new ArrayList<String>();
+        while (cursor.loadNext()) {
+            result.add(cursor.getCurrent());
+            maxOpen = Math.max(maxOpen, open.get());
+            if (result.size() == 1) {
+                assertEquals(1, cursor.getOpenedCount());
+            }
+        }
+        cursor.close();
+        assertEquals(control, result);
+        assertEquals(2, maxOpen);
+        assertEquals(0, open.get());
+
+        // Early close
+        cursor = new LazyMergeCursor<String, RuntimeException>(
+            comparator,
+            inputs);
+        for (int i = 0; i < 50; i++) {
+            assertTrue(cursor.loadNext());
+        }
+        assertTrue(cursor.getOpenedCount() < 10);
+        cursor.close();
+        assertEquals(0, open.get());
+    }
+
+    public void testMappedRecordCursor() throws Exception {
+        // Records: 8 bytes of key and 4 bytes of value
+        File first = newRecordFile(0, 2, 100);
+        File second = newRecordFile(1, 2, 100);
+        try {
+            Comparator<MappedRecord> comparator = MappedRecord
+                .newKeyComparator(0, 8);
+            MappedRecordCursor<RuntimeException> cursor = new MappedRecordCursor<RuntimeException>(
+                first,
+                12,
+                comparator,
+                12 * 7 + 5);
+            assertEquals(50, cursor.getRemaining());
+            assertNull(cursor.getCurrent());
+            for (int i = 0; i < 50; i++) {
+                assertTrue(cursor.loadNext());
+                assertEquals(i * 2, cursor.getCurrent().getLong(0));
+                assertEquals(i * 20, cursor.getCurrent().getInt(8));
+            }
+            assertFalse(cursor.loadNext());
+            assertNull(cursor.getCurrent());
+            cursor.close();
+
+            cursor = new MappedRecordCursor<RuntimeException>(
+                first,
+                12,
+                comparator,
+                12 * 3);
+            assertTrue(cursor.seek(newRecordKey(41)));
+            assertEquals(0, cursor.skip(-1));
+            assertEquals(21, cursor.getPosition());
+            assertEquals(4, cursor.skip(4));
+            assertTrue(cursor.loadNext());
+            assertEquals(50, cursor.getCurrent().getLong(0));
+            assertEquals(25, cursor.getCurrent().getIndex());
+            MappedRecord copy = cursor.getCurrent().copy();
+            assertTrue(cursor.seek(newRecordKey(60)));
+            assertTrue(cursor.loadNext());
+            assertEquals(60, cursor.getCurrent().getLong(0));
+            assertEquals(50, copy.getLong(0));
+            assertFalse(cursor.seek(newRecordKey(1000)));
+            assertFalse(cursor.loadNext());
+            cursor.close();
+
+            // Merges move their inputs only when the next record is loaded,
+            // so flyweight records stay valid until then
+            MappedRecordCursor<RuntimeException> firstCursor = new MappedRecordCursor<RuntimeException>(
+                first,
+                12,
+                comparator,
+                12 * 4);
+            MappedRecordCursor<RuntimeException> secondCursor = new MappedRecordCursor<RuntimeException>(
+                second,
+                12,
+                comparator);
+            MergeCursor<MappedRecord, RuntimeException> merge = new MergeCursor<MappedRecord, RuntimeException>(
+                comparator,
+                firstCursor,
+                secondCursor);
+            int count = 0;
+            while (merge.loadNext()) {
+                assertEquals(count++, merge.getCurrent().getLong(0));
+            }
+            merge.close();
+            assertEquals(100, count);
+
+            ComparableRangeCursor<MappedRecord, RuntimeException> range = new ComparableRangeCursor<MappedRecord, RuntimeException>(
+                new MappedRecordCursor<RuntimeException>(
+                    second,
+                    12,
+                    comparator),
+                newRecordKey(10),
+                newRecordKey(16),
+                comparator);
+            for (int i = 11; i < 17; i += 2) {
+                assertTrue(range.loadNext());
+                assertEquals(i, range.getCurrent().getLong(0));
+            }
+            assertFalse(range.loadNext());
+            range.close();
+        } finally {
+            first.delete();
+            second.delete();
+        }
+    }
+
+    public void testMergeCursor() throws Exception {
+        testMergeCursor(a("a", "b", "c"), a("a"), a("b"), a("c"));
+        testMergeCursor(a("a", "b", "c"), a("c"), a("a"), a("b"));
+        testMergeCursor(a("a", "b", "c"), a("c"), a("b"), a("a"));
+        String[] a = {};
+        testMergeCursor(a);
         testMergeCursor(
             a("a", "b", "c", "d", "e", "f", "g"),
             a("a", "b", "c", "d", "e", "f", "g"));
@@ -403,6 +1488,117 @@ public class CursorTest extends TestCase {
             a("a", "c", "e"));
     }
 
+    public void testMergeCursorFanIn() throws Exception {
+        for (int fanIn : new int[] { 1, 2, 3, 7, 64, 1000 }) {
+            Random random = new Random(fanIn);
+            List<String> control = new ArrayList<String>();
+            List<ICursor<String, RuntimeException>> cursors = new ArrayList<ICursor<String, RuntimeException>>();
+            for (int i = 0; i < fanIn; i++) {
+                List<String> list = new ArrayList<String>();
+                int size = random.nextInt(20);
+                for (int j = 0; j < size; j++) {
+                    list.add(String.valueOf((char) ('a' + random.nextInt(26))));
+                }
+                Collections.sort(list);
+                control.addAll(list);
+                cursors.add(new IteratorBasedCursor<String, RuntimeException>(
+                    list));
+            }
+            Collections.sort(control);
+            MergeCursor<String, RuntimeException> cursor = new MergeCursor<String, RuntimeException>(
+                STRING_COMPARATOR,
+                cursors);
+            test(cursor, control.toArray(new String[control.size()]));
+        }
+    }
+
+    public void testMergeCursorGalloping() throws Exception {
+        // Long runs: each cursor contains blocks of 100 consecutive keys
+        List<List<String>> runs = new ArrayList<List<String>>();
+        for (int i = 0; i < 16; i++) {
+            runs.add(new ArrayList<String>());
+        }
+        List<String> control = new ArrayList<String>();
+        for (int i = 0; i < 8000; i++) {
+            String key = toKey(i);
+            runs.get((i / 100) % 16).add(key);
+            control.add(key);
+        }
+        String[] result = control.toArray(new String[control.size()]);
+        int galloping = testMergeCursorGalloping(runs, result, 7);
+        int replaying = testMergeCursorGalloping(runs, result, 0);
+        assertTrue(galloping * 2 < replaying);
+
+        // Short runs with equal keys; the merge should stay stable
+        runs.clear();
+        for (int i = 0; i < 4; i++) {
+            runs.add(new ArrayList<String>());
+        }
+        control.clear();
+        for (int i = 0; i < 20; i++) {
+            String key = toKey(i / 2);
+            for (int j = 0; j < 4; j++) {
+                if ((i + j) % 3 != 0) {
+                    runs.get(j).add(key + "-" + j + "-" + i);
+                }
+            }
+        }
+        for (int i = 0; i < 20; i += 2) {
+            for (int j = 0; j < 4; j++) {
+                for (int n = i; n < i + 2; n++) {
+                    if ((n + j) % 3 != 0) {
+                        control.add(toKey(i / 2) + "-" + j + "-" + n);
+                    }
+                }
+            }
+        }
+        result = control.toArray(new String[control.size()]);
+        for (int minGallop : new int[] { 0, 1, 2, 7 }) {
+            testMergeCursorGalloping(runs, result, minGallop);
+        }
+    }
+
+    private int testMergeCursorGalloping(
+        List<List<String>> runs,
+        String[] control,
+        int minGallop) {
+        final int[] counter = { 0 };
+        // Values are compared by keys only (without suffixes)
+        Comparator<String> comparator = new Comparator<String>() {
+            public int compare(String o1, String o2) {
+                counter[0]++;
+                return o1.substring(0, 6).compareTo(o2.substring(0, 6));
+            }
+        };
+        List<ICursor<String, RuntimeException>> cursors = new ArrayList<ICursor<String, RuntimeException>>();
+        for (List<String> run : runs) {
+            cursors.add(new IteratorBasedCursor<String, RuntimeException>(run));
+        }
+        MergeCursor<String, RuntimeException> cursor = new MergeCursor<String, RuntimeException>(
+            comparator,
+            cursors);
+        cursor.setMinGallop(minGallop);
+        test(cursor, control);
+        return counter[0];
+    }
+
+    public void testMergeCursorStability() throws Exception {
+        // Values are compared by the first character only; equal values
+        // should be returned in the order of cursors.
+        Comparator<String> comparator = new Comparator<String>() {
+            public int compare(String o1, String o2) {
+                return o1.charAt(0) - o2.charAt(0);
+            }
+        };
+        MergeCursor<String, RuntimeException> cursor = new MergeCursor<String, RuntimeException>(
+            comparator,
+            new IteratorBasedCursor<String, RuntimeException>("b0", "c0"),
+            new IteratorBasedCursor<String, RuntimeException>("a1", "b1", "b1'"),
+            new IteratorBasedCursor<String, RuntimeException>("a2", "b2"),
+            new IteratorBasedCursor<String, RuntimeException>("a3", "c3"));
+        test(cursor, "a1", "a2", "a3", "b0", "b1", "b1'", "b2", "c0", "c3");
+    }
+
     private void testMergeCursor(String[] control, String[]... cursors)
         throws RuntimeException {
         Comparator<String> comparator = new Comparator<String>() {
@@ -421,6 +1617,392 @@ public class CursorTest extends TestCase {
         test(cursor, control);
     }
 
+    public void testParallelDiff() throws Exception {
+        Random random = new Random(321);
+        final List<String> first = new ArrayList<String>();
+        final List<String> second = new ArrayList<String>();
+        for (int i = 0; i < 5000; i++) {
+            String key = toKey(i / 3);
+            if (random.nextInt(4) != 0) {
+                first.add(key);
+            }
+            if (random.nextInt(4) != 0) {
+                second.add(key);
+            }
+        }
+        final List<String> control = new ArrayList<String>();
+        DiffCursor<String, RuntimeException> cursor = new DiffCursor<String, RuntimeException>(
+            STRING_COMPARATOR,
+            new ListCursor<String, RuntimeException>(first),
+            new ListCursor<String, RuntimeException>(second),
+            newDiffRecorder(control));
+        while (cursor.loadNext()) {
+        }
+        cursor.close();
+
+        ICursorProvider<ParallelDiff.Range<String>, RuntimeException, ICursor<String, RuntimeException>> firstProvider = new ICursorProvider<ParallelDiff.Range<String>, RuntimeException, ICursor<String, RuntimeException>>() {
+            public ICursor<String, RuntimeException> getCursor(
+                ParallelDiff.Range<String> range) {
+                return new ListCursor<String, RuntimeException>(first);
+            }
+        };
+        ICursorProvider<ParallelDiff.Range<String>, RuntimeException, ICursor<String, RuntimeException>> secondProvider = new ICursorProvider<ParallelDiff.Range<String>, RuntimeException, ICursor<String, RuntimeException>>() {
+            public ICursor<String, RuntimeException> getCursor(
+                ParallelDiff.Range<String> range) {
+                // Not seekable cursors
+                return new IteratorBasedCursor<String, RuntimeException>(
+                    second);
+            }
+        };
+        List<List<String>> splits = new ArrayList<List<String>>();
+        splits.add(Collections.<String> emptyList());
+        splits.add(ParallelDiff.getSplitPoints(
+            new ListCursor<String, RuntimeException>(first),
+            8,
+            STRING_COMPARATOR));
+        splits.add(ParallelDiff.getSplitPoints(
+            new IteratorBasedCursor<String, RuntimeException>(second),
+            5,
+            STRING_COMPARATOR));
+        assertEquals(7, splits.get(1).size());
+        // Sampled split points do not change between calls
+        assertEquals(splits.get(2), ParallelDiff.getSplitPoints(
+            new IteratorBasedCursor<String, RuntimeException>(second),
+            5,
+            STRING_COMPARATOR));
+        for (List<String> splitPoints : splits) {
+            List<String> events = new ArrayList<String>();
+            ParallelDiff<String, RuntimeException> diff = new ParallelDiff<String, RuntimeException>(
+                STRING_COMPARATOR,
+                firstProvider,
+                secondProvider,
+                newDiffRecorder(events),
+                true);
+            diff.setQueueSize(4);
+            diff.run(splitPoints);
+            assertEquals(control, events);
+
+            events = Collections.synchronizedList(new ArrayList<String>());
+            diff = new ParallelDiff<String, RuntimeException>(
+                STRING_COMPARATOR,
+                firstProvider,
+                secondProvider,
+                newDiffRecorder(events),
+                false);
+            diff.run(splitPoints);
+            List<String> sorted = new ArrayList<String>(control);
+            Collections.sort(sorted);
+            Collections.sort(events);
+            assertEquals(sorted, events);
+        }
+
+        // Ranges waiting for the consumer do not add threads to the pool
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            List<String> events = new ArrayList<String>();
+            ParallelDiff<String, RuntimeException> diff = new ParallelDiff<String, RuntimeException>(
+                STRING_COMPARATOR,
+                firstProvider,
+                secondProvider,
+                newDiffRecorder(events),
+                true,
+                pool);
+            diff.setQueueSize(4);
+            diff.run(splits.get(1));
+            assertEquals(control, events);
+            assertTrue(pool.getPoolSize() <= 2);
+        } finally {
+            pool.shutdown();
+        }
+
+        // Errors of providers are re-thrown
+        try {
+            ParallelDiff<String, RuntimeException> diff = new ParallelDiff<String, RuntimeException>(
+                STRING_COMPARATOR,
+                firstProvider,
+                new ICursorProvider<ParallelDiff.Range<String>, RuntimeException, ICursor<String, RuntimeException>>() {
+                    public ICursor<String, RuntimeException> getCursor(
+                        ParallelDiff.Range<String> range) {
+                        return new IteratorBasedCursor<String, RuntimeException>(
+                            second) {
+                            private int fCount;
+
+                            @Override
+                            public boolean loadNext() {
+                                if (++fCount > 100) {
+                                    throw new IllegalArgumentException();
+                                }
+                                return super.loadNext();
+                            }
+                        };
+                    }
+                },
+                newDiffRecorder(new ArrayList<String>()),
+                true);
+            diff.setQueueSize(1);
+            diff.run(splits.get(1));
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+
+        // Errors of listeners are re-thrown
+        try {
+            new ParallelDiff<String, RuntimeException>(
+                STRING_COMPARATOR,
+                firstProvider,
+                secondProvider,
+                new DiffCursorListener<String, RuntimeException>() {
+                    @Override
+                    public void onValueAdded(String value) {
+                        throw new IllegalStateException(value);
+                    }
+                },
+                true).run(splits.get(1));
+            fail();
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    public void testParallelMergeCursor() throws Exception {
+        Comparator<String> comparator = new Comparator<String>() {
+            public int compare(String o1, String o2) {
+                return o1.substring(0, 3).compareTo(o2.substring(0, 3));
+            }
+        };
+        Random random = new Random(7);
+        List<List<String>> inputs = new ArrayList<List<String>>();
+        for (int i = 0; i < 300; i++) {
+            List<String> list = new ArrayList<String>();
+            int count = random.nextInt(20);
+            for (int j = 0; j < count; j++) {
+                // Many equal keys in different inputs
+                list.add(toKey(random.nextInt(100)).substring(3) + ":" + i);
+            }
+            Collections.sort(list, comparator);
+            inputs.add(list);
+        }
+        List<String> control = new ArrayList<String>();
+        MergeCursor<String, RuntimeException> merge = new MergeCursor<String, RuntimeException>(
+            comparator,
+            newListCursors(inputs));
+        while (merge.loadNext()) {
+            control.add(merge.getCurrent());
+        }
+        merge.close();
+
+        for (int fanIn : new int[] { 2, 7, 64, 1000 }) {
+            ParallelMergeCursor<String, RuntimeException> cursor = new ParallelMergeCursor<String, RuntimeException>(
+                comparator,
+                newListCursors(inputs),
+                fanIn,
+                8,
+                null);
+            List<String> result = new ArrayList<String>();
+            while (cursor.loadNext()) {
+                result.add(cursor.getCurrent());
+            }
+            cursor.close();
+            assertEquals(control, result);
+        }
+
+        // The number of threads does not depend on the number of inputs
+        final AtomicInteger threads = new AtomicInteger();
+        ThreadFactory threadFactory = new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                threads.incrementAndGet();
+                Thread thread = new Thread(r);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+        ParallelMergeCursor<String, RuntimeException> cursor = new ParallelMergeCursor<String, RuntimeException>(
+            comparator,
+            newListCursors(inputs),
+            2,
+            8,
+            3,
+            threadFactory);
+        List<String> result = new ArrayList<String>();
+        while (cursor.loadNext()) {
+            result.add(cursor.getCurrent());
+        }
+        cursor.close();
+        assertEquals(control, result);
+        assertEquals(3, threads.get());
+
+        // Early close stops all intermediate merges and closes all inputs
+        final AtomicInteger closed = new AtomicInteger();
+        List<ICursor<String, RuntimeException>> cursors = new ArrayList<ICursor<String, RuntimeException>>();
+        for (List<String> input : inputs) {
+            cursors.add(new ListCursor<String, RuntimeException>(input) {
+                @Override
+                public void close() {
+                    closed.incrementAndGet();
+                    super.close();
+                }
+            });
+        }
+        cursor = new ParallelMergeCursor<String, RuntimeException>(
+            comparator,
+            cursors,
+            3);
+        assertTrue(cursor.loadNext());
+        assertEquals(control.get(0), cursor.getCurrent());
+        cursor.close();
+        assertEquals(inputs.size(), closed.get());
+    }
+
+    public void testPrefetchingSequentialCursor() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (int ahead = 1; ahead <= 4; ahead++) {
+                testPrefetchingSequentialCursor(executor, ahead, 0, -1);
+                testPrefetchingSequentialCursor(executor, ahead, 2, -1);
+                testPrefetchingSequentialCursor(executor, ahead, 0, 7);
+                testPrefetchingSequentialCursor(executor, ahead, 3, 0);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void testPrefetchingSequentialCursor(
+        ExecutorService executor,
+        final int ahead,
+        int preload,
+        int limit) throws Exception {
+        final int count = 10;
+        final AtomicInteger open = new AtomicInteger();
+        final AtomicInteger maxOpen = new AtomicInteger();
+        final AtomicInteger closed = new AtomicInteger();
+        PrefetchingSequentialCursor<String, RuntimeException> cursor = new PrefetchingSequentialCursor<String, RuntimeException>(
+            executor,
+            ahead,
+            preload) {
+            @Override
+            protected ICursor<String, RuntimeException> openCursor(int index) {
+                if (index >= count) {
+                    return null;
+                }
+                int n = open.incrementAndGet();
+                while (true) {
+                    int max = maxOpen.get();
+                    if (n <= max || maxOpen.compareAndSet(max, n)) {
+                        break;
+                    }
+                }
+                List<String> list = new ArrayList<String>();
+                for (int i = 0; i < index % 4; i++) {
+                    list.add(index + ":" + i);
+                }
+                return new IteratorBasedCursor<String, RuntimeException>(
+                    list) {
+                    @Override
+                    public void close() {
+                        super.close();
+                        open.decrementAndGet();
+                        closed.incrementAndGet();
+                    }
+                };
+            }
+        };
+        List<String> control = new ArrayList<String>();
+        for (int index = 0; index < count; index++) {
+            for (int i = 0; i < index % 4; i++) {
+                control.add(index + ":" + i);
+            }
+        }
+        if (limit >= 0) {
+            control = control.subList(0, limit);
+        }
+        List<String> result = new ArrayList<String>();
+        while ((limit < 0 || result.size() < limit) && cursor.loadNext()) {
+            result.add(cursor.getCurrent());
+        }
+        cursor.close();
+        assertEquals(control, result);
+        for (int i = 0; i < 100 && open.get() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, open.get());
+        assertTrue(maxOpen.get() <= ahead + 1);
+        if (limit < 0) {
+            assertEquals(count, closed.get());
+        }
+    }
+
+    public void testPrefetchingTreeCursor() throws Exception {
+        final List<String> nodes = new ArrayList<String>();
+        for (int i = 0; i < 5; i++) {
+            nodes.add("n" + i);
+            for (int j = 0; j < 4; j++) {
+                nodes.add("n" + i + "/" + j);
+                for (int k = 0; k < 3; k++) {
+                    nodes.add("n" + i + "/" + j + "/" + k);
+                }
+            }
+        }
+        final AtomicInteger opened = new AtomicInteger();
+        final AtomicInteger closed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (int limit : new int[] { Integer.MAX_VALUE, 7, 0 }) {
+                for (int window = 1; window <= 8; window *= 2) {
+                    opened.set(0);
+                    closed.set(0);
+                    PrefetchingTreeCursor<String, RuntimeException> cursor = new PrefetchingTreeCursor<String, RuntimeException>(
+                        executor,
+                        window,
+                        "") {
+                        @Override
+                        protected ICursor<String, RuntimeException> loadChildren(
+                            String parent) {
+                            String prefix = parent.length() > 0
+                                ? parent + "/"
+                                : "";
+                            List<String> children = new ArrayList<String>();
+                            for (String node : nodes) {
+                                if (node.startsWith(prefix)
+                                    && node.indexOf('/', prefix.length()) < 0) {
+                                    children.add(node);
+                                }
+                            }
+                            opened.incrementAndGet();
+                            return new IteratorBasedCursor<String, RuntimeException>(
+                                children) {
+                                @Override
+                                public void close() {
+                                    super.close();
+                                    closed.incrementAndGet();
+                                }
+                            };
+                        }
+                    };
+                    List<String> result = new ArrayList<String>();
+                    while (result.size() < limit && cursor.loadNext()) {
+                        result.add(cursor.getCurrent());
+                    }
+                    cursor.close();
+                    if (limit == Integer.MAX_VALUE) {
+                        List<String> control = new ArrayList<String>();
+                        control.add("");
+                        control.addAll(nodes);
+                        assertEquals(control, result);
+                    } else {
+                        assertEquals(limit, result.size());
+                    }
+                    // Wait for discarded tasks
+                    for (int i = 0; i < 100 && closed.get() < opened.get(); i++) {
+                        Thread.sleep(10);
+                    }
+                    assertEquals(opened.get(), closed.get());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     public void testRangeCursor() throws Exception {
         RangeCursor<String, RuntimeException> cursor = newRangeCursor(10, 10);
         test(cursor);
@@ -439,6 +2021,128 @@ public class CursorTest extends TestCase {
         test(cursor);
     }
 
+    public void testReadAheadCursor() throws Exception {
+        List<String> list = new ArrayList<String>();
+        for (int i = 0; i < 10000; i++) {
+            list.add(toKey(i));
+        }
+        for (int capacity : new int[] { 1, 4, 1000 }) {
+            ReadAheadCursor<String, RuntimeException> cursor = new ReadAheadCursor<String, RuntimeException>(
+                new ListCursor<String, RuntimeException>(list),
+                capacity);
+            List<String> result = new ArrayList<String>();
+            while (cursor.loadNext()) {
+                result.add(cursor.getCurrent());
+            }
+            cursor.close();
+            assertEquals(list, result);
+        }
+
+        // Checked exceptions are delivered to the consumer
+        ReadAheadCursor<Integer, IOException> failing = new ReadAheadCursor<Integer, IOException>(
+            new ICursor<Integer, IOException>() {
+                private int fCounter;
+
+                public void close() {
+                }
+
+                public Integer getCurrent() {
+                    return fCounter;
+                }
+
+                public boolean loadNext() throws IOException {
+                    if (++fCounter > 10) {
+                        throw new IOException("Error");
+                    }
+                    return true;
+                }
+            },
+            4);
+        int count = 0;
+        try {
+            while (failing.loadNext()) {
+                assertEquals(++count, failing.getCurrent().intValue());
+            }
+            fail();
+        } catch (IOException e) {
+            assertEquals("Error", e.getMessage());
+        }
+        assertEquals(10, count);
+        failing.close();
+
+        // Closing stops the producer reading an infinite cursor
+        final AtomicInteger closed = new AtomicInteger();
+        ReadAheadCursor<Integer, RuntimeException> infinite = new ReadAheadCursor<Integer, RuntimeException>(
+            new ICursor<Integer, RuntimeException>() {
+                private int fCounter;
+
+                public void close() {
+                    closed.incrementAndGet();
+                }
+
+                public Integer getCurrent() {
+                    return fCounter;
+                }
+
+                public boolean loadNext() {
+                    fCounter++;
+                    return true;
+                }
+            },
+            8);
+        for (int i = 1; i <= 100; i++) {
+            assertTrue(infinite.loadNext());
+            assertEquals(i, infinite.getCurrent().intValue());
+        }
+        infinite.close();
+        assertEquals(1, closed.get());
+        assertFalse(infinite.loadNext());
+
+        // Closing interrupts the producer blocked in the underlying cursor
+        final BlockingQueue<Integer> queue = new LinkedBlockingQueue<Integer>();
+        queue.add(1);
+        ReadAheadCursor<Integer, RuntimeException> blocked = new ReadAheadCursor<Integer, RuntimeException>(
+            new ICursor<Integer, RuntimeException>() {
+                private Integer fCurrent;
+
+                public void close() {
+                    closed.incrementAndGet();
+                }
+
+                public Integer getCurrent() {
+                    return fCurrent;
+                }
+
+                public boolean loadNext() {
+                    try {
+                        fCurrent = queue.take();
+                        return true;
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            },
+            8);
+        assertTrue(blocked.loadNext());
+        assertEquals(1, blocked.getCurrent().intValue());
+
+        // Interrupted consumers stop waiting for the next element
+        Thread.currentThread().interrupt();
+        try {
+            blocked.loadNext();
+            fail();
+        } catch (CancellationException e) {
+            assertTrue(Thread.interrupted());
+        }
+        queue.add(2);
+        assertTrue(blocked.loadNext());
+        assertEquals(2, blocked.getCurrent().intValue());
+
+        blocked.close();
+        assertEquals(2, closed.get());
+        assertFalse(blocked.loadNext());
+    }
+
     private void testSequential(final int slice, final String... control)
         throws RuntimeException {
         SequentialCursor<String, RuntimeException> cursor = new SequentialCursor<String, RuntimeException>() {
@@ -477,6 +2181,144 @@ public class CursorTest extends TestCase {
         test(cursor, control);
     }
 
+    public void testSeekableCursors() throws Exception {
+        int[] counter = { 0 };
+        List<String> list = newCountingList(100000, counter);
+        test(
+            new RangeCursor<String, RuntimeException>(
+                new ListCursor<String, RuntimeException>(list),
+                90000,
+                3),
+            toKey(90000),
+            toKey(90001),
+            toKey(90002));
+        assertTrue(counter[0] <= 4);
+
+        counter[0] = 0;
+        test(
+            new ComparableRangeCursor<String, RuntimeException>(
+                new ListCursor<String, RuntimeException>(list),
+                toKey(50000),
+                false,
+                toKey(50003),
+                true,
+                STRING_COMPARATOR),
+            toKey(50001),
+            toKey(50002),
+            toKey(50003));
+        assertTrue(counter[0] < 40);
+
+        ListCursor<String, RuntimeException> cursor = new ListCursor<String, RuntimeException>(
+            "a",
+            "b",
+            "b",
+            "c",
+            "e",
+            "f");
+        assertTrue(cursor.seek("b"));
+        assertTrue(cursor.loadNext());
+        assertEquals("b", cursor.getCurrent());
+        // Seek never moves cursors backward
+        assertTrue(cursor.seek("a"));
+        assertTrue(cursor.loadNext());
+        assertEquals("b", cursor.getCurrent());
+        assertTrue(cursor.seek("d"));
+        assertEquals(1, cursor.skip(1));
+        test(cursor, "f");
+
+        SeekableMergeCursor<String, RuntimeException> merge = new SeekableMergeCursor<String, RuntimeException>(
+            STRING_COMPARATOR,
+            new ListCursor<String, RuntimeException>("a", "c", "e", "g"),
+            newCharCursor("bdfh"),
+            newCharCursor("ab"));
+        assertTrue(merge.seek("c"));
+        assertTrue(merge.loadNext());
+        assertEquals("c", merge.getCurrent());
+        assertEquals(2, merge.skip(2));
+        assertTrue(merge.seek("f"));
+        test(merge, "f", "g", "h");
+        merge = new SeekableMergeCursor<String, RuntimeException>(
+            STRING_COMPARATOR,
+            new ListCursor<String, RuntimeException>("a", "c"),
+            newCharCursor("bd"));
+        assertFalse(merge.seek("x"));
+        test(merge);
+    }
+
+    public void testSortedSources() throws Exception {
+        // Galloping seek: the cost depends on the distance from the current
+        // position and not on the size of the list
+        int[] counter = { 0 };
+        ListCursor<String, RuntimeException> cursor = new ListCursor<String, RuntimeException>(
+            newCountingList(1000000, counter));
+        assertEquals(1000000, cursor.getRemaining());
+        assertTrue(cursor.seek(toKey(10)));
+        assertTrue(counter[0] <= 10);
+        assertTrue(cursor.loadNext());
+        assertEquals(toKey(10), cursor.getCurrent());
+        assertEquals(999989, cursor.getRemaining());
+        counter[0] = 0;
+        assertTrue(cursor.seek(toKey(13)));
+        assertTrue(counter[0] <= 4);
+        assertEquals(2, cursor.skip(2));
+        assertTrue(cursor.loadNext());
+        assertEquals(toKey(15), cursor.getCurrent());
+        assertFalse(cursor.seek("x"));
+        assertEquals(0, cursor.getRemaining());
+        test(cursor);
+
+        test(
+            new ListCursor<String, RuntimeException>(
+                Arrays.asList("a", "b", "c", "d", "e"),
+                1,
+                4,
+                STRING_COMPARATOR),
+            "b",
+            "c",
+            "d");
+
+        TreeSet<String> set = new TreeSet<String>(Arrays.asList(
+            "a",
+            "c",
+            "e",
+            "g",
+            "i"));
+        NavigableSetCursor<String, RuntimeException> setCursor = new NavigableSetCursor<String, RuntimeException>(
+            set);
+        assertEquals(5, setCursor.getRemaining());
+        assertTrue(setCursor.loadNext());
+        assertEquals("a", setCursor.getCurrent());
+        assertEquals(4, setCursor.getRemaining());
+        assertTrue(setCursor.seek("d"));
+        assertEquals(3, setCursor.getRemaining());
+        // Seek never moves cursors backward
+        assertTrue(setCursor.seek("b"));
+        assertTrue(setCursor.loadNext());
+        assertEquals("e", setCursor.getCurrent());
+        assertTrue(setCursor.seek("e"));
+        assertEquals(1, setCursor.skip(1));
+        test(setCursor, "i");
+        test(new ComparableRangeCursor<String, RuntimeException>(
+            new NavigableSetCursor<String, RuntimeException>(set),
+            "b",
+            "f",
+            STRING_COMPARATOR), "c", "e");
+
+        TreeMap<String, Integer> map = new TreeMap<String, Integer>();
+        map.put("a", 1);
+        map.put("b", 2);
+        map.put("c", 3);
+        NavigableMapCursor<String, Integer, RuntimeException> mapCursor = new NavigableMapCursor<String, Integer, RuntimeException>(
+            map);
+        assertTrue(mapCursor.seekKey("b"));
+        assertTrue(mapCursor.loadNext());
+        assertEquals("b", mapCursor.getCurrent().getKey());
+        assertEquals(Integer.valueOf(2), mapCursor.getCurrent().getValue());
+        assertEquals(1, mapCursor.getRemaining());
+        assertFalse(mapCursor.seekKey("d"));
+        assertFalse(mapCursor.loadNext());
+    }
+
     public void testSequentialCursor() throws Exception {
         testSequential(3, "a", "b", "c", "d", "e", "f", "g", "h", "i");
         testSequential(1, "a", "b", "c", "d", "e", "f", "g", "h", "i");
@@ -498,4 +2340,161 @@ public class CursorTest extends TestCase {
             "i");
     }
 
+    public void testSortingCursor() throws Exception {
+        final ISerializer<String> serializer = newStringSerializer();
+        File dir = File.createTempFile("sort", "");
+        dir.delete();
+        dir.mkdirs();
+        try {
+            Random random = new Random(123);
+            for (int size : new int[] { 0, 1, 9, 10, 11, 100, 1000 }) {
+                // Values are sorted by their first letter only; the suffix
+                // checks that the sort is stable.
+                List<String> list = new ArrayList<String>();
+                for (int i = 0; i < size; i++) {
+                    char ch = (char) ('a' + random.nextInt(5));
+                    list.add(ch + toKey(i));
+                }
+                Comparator<String> comparator = new Comparator<String>() {
+                    public int compare(String o1, String o2) {
+                        return o1.charAt(0) - o2.charAt(0);
+                    }
+                };
+                List<String> control = new ArrayList<String>(list);
+                Collections.sort(control);
+                for (int fanIn : new int[] { 2, 3, 64 }) {
+                    SortingCursor<String, RuntimeException> cursor = new SortingCursor<String, RuntimeException>(
+                        new ListCursor<String, RuntimeException>(list),
+                        comparator,
+                        serializer,
+                        10 * SortingCursor.DEFAULT_ELEMENT_SIZE,
+                        fanIn,
+                        dir);
+                    List<String> result = new ArrayList<String>();
+                    while (cursor.loadNext()) {
+                        result.add(cursor.getCurrent());
+                    }
+                    assertFalse(cursor.loadNext());
+                    cursor.close();
+                    assertEquals(control, result);
+                    assertEquals(0, dir.list().length);
+                }
+            }
+
+            // Runs should be removed if they can not be written
+            final int[] reads = { 0 };
+            ISerializer<String> failing = new ISerializer<String>() {
+                public String read(DataInput in) throws IOException {
+                    if (++reads[0] > 15) {
+                        throw new IllegalStateException("Can not read.");
+                    }
+                    return serializer.read(in);
+                }
+
+                public void write(DataOutput out, String value)
+                    throws IOException {
+                    serializer.write(out, value);
+                }
+            };
+            List<String> list = new ArrayList<String>();
+            for (int i = 0; i < 100; i++) {
+                list.add(toKey(100 - i));
+            }
+            SortingCursor<String, RuntimeException> cursor = new SortingCursor<String, RuntimeException>(
+                new ListCursor<String, RuntimeException>(list),
+                STRING_COMPARATOR,
+                failing,
+                10 * SortingCursor.DEFAULT_ELEMENT_SIZE,
+                2,
+                dir);
+            try {
+                cursor.loadNext();
+                fail();
+            } catch (IllegalStateException e) {
+            }
+            cursor.close();
+            assertEquals(0, dir.list().length);
+        } finally {
+            dir.delete();
+        }
+    }
+
+    public void testTreeCursor() throws Exception {
+        // A DAG: nodes 3, 4 and 5 are shared by 1 and 2
+        testTreeCursor(null, -1, "[0, 1, 3, 4, 5, 2, 3, 4, 5]");
+        testTreeCursor(null, 1, "[0, 1, 2, 3, 4, 5]");
+        testTreeCursor(null, 3, "[0, 1, 3, 2, 3]");
+        testTreeCursor(
+            new HashVisitedSet<Integer>(),
+            -1,
+            "[0, 1, 3, 4, 5, 2]");
+        testTreeCursor(new LongVisitedSet<Integer>() {
+            @Override
+            protected long getId(Integer node) {
+                return node;
+            }
+        }, -1, "[0, 1, 3, 4, 5, 2]");
+        testTreeCursor(new BitmapVisitedSet<Integer>() {
+            @Override
+            protected int getId(Integer node) {
+                return node;
+            }
+        }, 1, "[0, 1, 2, 3, 4, 5]");
+
+        LongVisitedSet<Integer> set = new LongVisitedSet<Integer>() {
+            @Override
+            protected long getId(Integer node) {
+                return node;
+            }
+        };
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(set.visit(i * 7));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(set.visit(i * 7));
+        }
+        assertEquals(1000, set.getSize());
+    }
+
+    private void testTreeCursor(
+        IVisitedSet<Integer> visitedSet,
+        final int pruned,
+        String control) {
+        final Integer[][] children = {
+            { 1, 2 },
+            { 3 },
+            { 3 },
+            { 4, 5 },
+            {},
+            {} };
+        final List<Integer> expanded = new ArrayList<Integer>();
+        TreeCursor<Integer, RuntimeException> cursor = new TreeCursor<Integer, RuntimeException>(
+            0) {
+            @Override
+            protected ICursor<Integer, RuntimeException> getChildren(
+                Integer node) {
+                expanded.add(node);
+                return new IteratorBasedCursor<Integer, RuntimeException>(
+                    children[node]);
+            }
+        };
+        cursor.setVisitedSet(visitedSet);
+        List<Integer> result = new ArrayList<Integer>();
+        while (cursor.loadNext()) {
+            Integer node = cursor.getCurrent();
+            result.add(node);
+            if (node == pruned) {
+                cursor.skipChildren();
+            }
+        }
+        cursor.close();
+        assertEquals(control, result.toString());
+        assertFalse(expanded.contains(pruned));
+    }
+
+    private String toKey(int index) {
+        String str = "000000" + index;
+        return str.substring(str.length() - 6);
+    }
+
 }
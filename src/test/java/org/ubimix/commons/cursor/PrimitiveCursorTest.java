@@ -0,0 +1,258 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.ubimix.commons.cursor.DiffCursor.DiffCursorListener;
+import org.ubimix.commons.cursor.IntGroupCursor.IntGroupListener;
+import org.ubimix.commons.cursor.LongDiffCursor.LongDiffCursorListener;
+import org.ubimix.commons.cursor.LongGroupCursor.LongGroupListener;
+import org.ubimix.commons.iterator.IntCursorAdapter;
+import org.ubimix.commons.iterator.LongCursorAdapter;
+
+/**
+ * @author kotelnikov
+ */
+public class PrimitiveCursorTest extends TestCase {
+
+    /**
+     * @param name
+     */
+    public PrimitiveCursorTest(String name) {
+        super(name);
+    }
+
+    private long[] chars(String str) {
+        long[] result = new long[str.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = str.charAt(i);
+        }
+        return result;
+    }
+
+    private void test(ILongCursor<RuntimeException> cursor, long... control) {
+        try {
+            for (long c : control) {
+                assertTrue(cursor.loadNext());
+                assertEquals(c, cursor.getCurrent());
+            }
+            assertFalse(cursor.loadNext());
+        } finally {
+            cursor.close();
+        }
+    }
+
+    public void testIntCursors() {
+        IntFilteringCursor<RuntimeException> cursor = new IntFilteringCursor<RuntimeException>(
+            new IntComparableRangeCursor<RuntimeException>(
+                new IntMergeCursor<RuntimeException>(
+                    new IntIteratorBasedCursor<RuntimeException>(1, 4, 7, 10),
+                    new IntIteratorBasedCursor<RuntimeException>(2, 5, 8),
+                    new IntIteratorBasedCursor<RuntimeException>(3, 6, 9)),
+                2,
+                false,
+                9,
+                true)) {
+            @Override
+            protected boolean accept(int current) {
+                return current % 2 == 1;
+            }
+        };
+        final StringBuilder buf = new StringBuilder();
+        IntGroupCursor<RuntimeException> group = new IntGroupCursor<RuntimeException>(
+            cursor,
+            new IntGroupListener<RuntimeException>() {
+                @Override
+                public void beginGroup(int value) {
+                    buf.append("[").append(value);
+                }
+
+                @Override
+                public void endGroup(int value) {
+                    buf.append("]");
+                }
+
+                @Override
+                public boolean sameGroup(int prev, int current) {
+                    return prev / 4 == current / 4;
+                }
+            });
+        IntCursorAdapter<RuntimeException> iterator = new IntCursorAdapter<RuntimeException>(
+            group);
+        List<Integer> list = new ArrayList<Integer>();
+        while (iterator.hasNext()) {
+            list.add(iterator.nextInt());
+        }
+        assertEquals(Arrays.asList(3, 5, 7, 9), list);
+        assertEquals("[3][5][9]", buf.toString());
+    }
+
+    public void testLongDiffCursor() {
+        String[][] tests = {
+            { "A", "AA" },
+            { "AA", "A" },
+            { "AA", "B" },
+            { "", "" },
+            { "A", "" },
+            { "AAA", "AAA" },
+            { "ABCF", "AADEF" },
+            { "13AB", "24AAC" },
+            { "1AD", "1AAAAABC" } };
+        for (String[] test : tests) {
+            testLongDiffCursor(test[0], test[1]);
+        }
+    }
+
+    /**
+     * Checks that the primitive diff produces exactly the same results as the
+     * generic one.
+     */
+    private void testLongDiffCursor(String first, String second) {
+        final StringBuilder control = new StringBuilder();
+        DiffCursor<Long, RuntimeException> diff = new DiffCursor<Long, RuntimeException>(
+            DefaultComparator.<Long> newComparator(),
+            new IteratorBasedCursor<Long, RuntimeException>(toList(first)),
+            new IteratorBasedCursor<Long, RuntimeException>(toList(second)),
+            new DiffCursorListener<Long, RuntimeException>() {
+                @Override
+                public void onValueAdded(Long value) {
+                    control.append("[+").append(value).append("]");
+                }
+
+                @Override
+                public void onValueRemoved(Long value) {
+                    control.append("[-").append(value).append("]");
+                }
+
+                @Override
+                public void onValueUpdated(Long firstValue, Long secondValue) {
+                    control.append("[~").append(firstValue).append("]");
+                }
+            });
+        while (diff.loadNext()) {
+            control.append(diff.getCurrent());
+            control.append(diff.isValueProvidedByFirstCursor() ? "a" : "b");
+        }
+        diff.close();
+
+        final StringBuilder test = new StringBuilder();
+        LongDiffCursor<RuntimeException> cursor = new LongDiffCursor<RuntimeException>(
+            new LongIteratorBasedCursor<RuntimeException>(chars(first)),
+            new LongIteratorBasedCursor<RuntimeException>(chars(second)),
+            new LongDiffCursorListener<RuntimeException>() {
+                @Override
+                public void onValueAdded(long value) {
+                    test.append("[+").append(value).append("]");
+                }
+
+                @Override
+                public void onValueRemoved(long value) {
+                    test.append("[-").append(value).append("]");
+                }
+
+                @Override
+                public void onValueUpdated(long firstValue, long secondValue) {
+                    test.append("[~").append(firstValue).append("]");
+                }
+            });
+        while (cursor.loadNext()) {
+            test.append(cursor.getCurrent());
+            test.append(cursor.isValueProvidedByFirstCursor() ? "a" : "b");
+        }
+        cursor.close();
+        assertEquals(control.toString(), test.toString());
+    }
+
+    public void testLongGroupCursor() {
+        final StringBuilder buf = new StringBuilder();
+        LongGroupCursor<RuntimeException> cursor = new LongGroupCursor<RuntimeException>(
+            new LongIteratorBasedCursor<RuntimeException>(1, 1, 2, 3, 3, 3, 1),
+            new LongGroupListener<RuntimeException>() {
+                int fCounter;
+
+                @Override
+                public void beginGroup(long value) {
+                    fCounter = 0;
+                }
+
+                @Override
+                public void endGroup(long value) {
+                    buf.append("[" + value + ":" + fCounter + "]");
+                }
+
+                @Override
+                public void onGroup(long value) {
+                    fCounter++;
+                }
+            });
+        test(cursor, 1, 1, 2, 3, 3, 3, 1);
+        assertEquals("[1:2][2:1][3:3][1:1]", buf.toString());
+    }
+
+    public void testLongMergeCursor() {
+        Random random = new Random(1);
+        for (int fanIn : new int[] { 0, 1, 2, 5, 100 }) {
+            List<ILongCursor<RuntimeException>> cursors = new ArrayList<ILongCursor<RuntimeException>>();
+            List<Long> control = new ArrayList<Long>();
+            for (int i = 0; i < fanIn; i++) {
+                long[] values = new long[random.nextInt(10)];
+                for (int j = 0; j < values.length; j++) {
+                    values[j] = random.nextInt(50);
+                    control.add(values[j]);
+                }
+                Arrays.sort(values);
+                cursors.add(new LongIteratorBasedCursor<RuntimeException>(
+                    values));
+            }
+            long[] expected = new long[control.size()];
+            for (int i = 0; i < expected.length; i++) {
+                expected[i] = control.get(i);
+            }
+            Arrays.sort(expected);
+            LongCursorAdapter<RuntimeException> iterator = new LongCursorAdapter<RuntimeException>(
+                new LongMergeCursor<RuntimeException>(cursors));
+            long[] test = new long[expected.length];
+            int pos = 0;
+            while (iterator.hasNext()) {
+                test[pos++] = iterator.nextLong();
+            }
+            assertFalse(iterator.hasNext());
+            assertEquals(expected.length, pos);
+            assertTrue(Arrays.equals(expected, test));
+        }
+    }
+
+    public void testLongRangeCursor() {
+        long[] values = { 1, 2, 3, 4, 5, 6 };
+        test(new LongComparableRangeCursor<RuntimeException>(
+            new LongIteratorBasedCursor<RuntimeException>(values),
+            2,
+            5), 2, 3, 4, 5);
+        test(new LongComparableRangeCursor<RuntimeException>(
+            new LongIteratorBasedCursor<RuntimeException>(values),
+            2,
+            false,
+            5,
+            false), 3, 4);
+        test(new LongComparableRangeCursor<RuntimeException>(
+            new LongIteratorBasedCursor<RuntimeException>(values),
+            7,
+            10));
+    }
+
+    private List<Long> toList(String str) {
+        List<Long> result = new ArrayList<Long>();
+        for (long value : chars(str)) {
+            result.add(value);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,251 @@
+/**
+ * 
+ */
+package org.ubimix.commons.cursor.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import junit.framework.TestCase;
+
+import org.ubimix.commons.cursor.FilteringCursor;
+import org.ubimix.commons.cursor.IBatchCursor;
+import org.ubimix.commons.cursor.ICursor;
+import org.ubimix.commons.cursor.ICursorProvider;
+import org.ubimix.commons.cursor.ISeekableCursor;
+import org.ubimix.commons.cursor.ISizedCursor;
+import org.ubimix.commons.cursor.ISplittableCursor;
+import org.ubimix.commons.cursor.IteratorBasedCursor;
+import org.ubimix.commons.cursor.ListCursor;
+import org.ubimix.commons.cursor.ListSequentialCursor;
+
+/**
+ * @author kotelnikov
+ */
+public class CursorMetricsTest extends TestCase {
+
+    /**
+     * @param name
+     */
+    public CursorMetricsTest(String name) {
+        super(name);
+    }
+
+    private ICursor<Integer, RuntimeException> newCursor(int size) {
+        Integer[] array = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            array[i] = i;
+        }
+        return new IteratorBasedCursor<Integer, RuntimeException>(array);
+    }
+
+    public void testCursorCapabilities() throws Exception {
+        CursorMetricsRegistry registry = new CursorMetricsRegistry(
+            null,
+            CursorMetricsRegistry.DEFAULT_DOMAIN,
+            true);
+        ICursor<Integer, RuntimeException> cursor = registry.instrument(
+            "list",
+            new ListCursor<Integer, RuntimeException>(Arrays.asList(
+                0,
+                1,
+                2,
+                3,
+                4,
+                5)));
+        assertTrue(cursor instanceof ISeekableCursor<?, ?>);
+        assertTrue(cursor instanceof ISizedCursor<?, ?>);
+        assertEquals(6, ((ISizedCursor<Integer, RuntimeException>) cursor)
+            .getRemaining());
+        assertTrue(((ISeekableCursor<Integer, RuntimeException>) cursor)
+            .seek(2));
+        Integer[] buffer = new Integer[3];
+        IBatchCursor<Integer, RuntimeException> batch = (IBatchCursor<Integer, RuntimeException>) cursor;
+        assertEquals(3, batch.loadNext(buffer, 0, 3));
+        assertEquals(Arrays.asList(2, 3, 4), Arrays.asList(buffer));
+        assertEquals(1, batch.loadNext(buffer, 0, 3));
+        assertEquals(0, batch.loadNext(buffer, 0, 3));
+        cursor.close();
+        CursorMetrics metrics = registry.getMetrics("list");
+        assertEquals(3, metrics.getLoadCount());
+        assertEquals(4, metrics.getEmittedCount());
+
+        // Not batch cursors are loaded element by element
+        cursor = registry.instrument("iterator", newCursor(5));
+        assertFalse(cursor instanceof ISeekableCursor<?, ?>);
+        batch = (IBatchCursor<Integer, RuntimeException>) cursor;
+        assertEquals(3, batch.loadNext(buffer, 0, 3));
+        assertEquals(Arrays.asList(0, 1, 2), Arrays.asList(buffer));
+        assertEquals(Integer.valueOf(2), cursor.getCurrent());
+        assertEquals(2, batch.loadNext(buffer, 0, 3));
+        assertFalse(cursor.loadNext());
+        cursor.close();
+        assertFalse(cursor instanceof ISplittableCursor<?, ?>);
+
+        // Split parts are instrumented with the same metrics
+        cursor = registry.instrument(
+            "split",
+            new ListCursor<Integer, RuntimeException>(Arrays.asList(
+                0,
+                1,
+                2,
+                3)));
+        assertTrue(cursor instanceof ISizedCursor<?, ?>);
+        ICursor<Integer, RuntimeException> part = ((ISplittableCursor<Integer, RuntimeException>) cursor)
+            .split();
+        assertTrue(part instanceof ISplittableCursor<?, ?>);
+        assertTrue(part instanceof ISizedCursor<?, ?>);
+        while (part.loadNext()) {
+        }
+        part.close();
+        while (cursor.loadNext()) {
+        }
+        cursor.close();
+        metrics = registry.getMetrics("split");
+        assertEquals(2, metrics.getOpenCount());
+        assertEquals(2, metrics.getCloseCount());
+        assertEquals(4, metrics.getEmittedCount());
+
+        cursor = registry.instrument(
+            "sequential",
+            new ListSequentialCursor<Integer, RuntimeException>(
+                newCursor(2),
+                newCursor(3)));
+        assertFalse(cursor instanceof ISeekableCursor<?, ?>);
+        part = ((ISplittableCursor<Integer, RuntimeException>) cursor).split();
+        assertTrue(part instanceof InstrumentedCursor<?, ?>);
+        metrics = registry.getMetrics("sequential");
+        InstrumentedCursor<?, ?> instrumented = (InstrumentedCursor<?, ?>) part;
+        assertSame(metrics, instrumented.getMetrics());
+        while (part.loadNext()) {
+        }
+        part.close();
+        cursor.close();
+        assertEquals(2, metrics.getEmittedCount());
+    }
+
+    public void testDisabledRegistry() throws Exception {
+        CursorMetricsRegistry registry = new CursorMetricsRegistry(
+            null,
+            CursorMetricsRegistry.DEFAULT_DOMAIN,
+            false);
+        ICursor<Integer, RuntimeException> cursor = newCursor(10);
+        assertSame(cursor, registry.instrument("test", cursor));
+        assertSame(cursor, registry.instrumentInput("test", cursor));
+    }
+
+    public void testFilterMetrics() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        CursorMetricsRegistry registry = new CursorMetricsRegistry(
+            server,
+            "test.metrics",
+            true);
+        registry.setSamplingRate(4);
+        try {
+            ICursor<Integer, RuntimeException> input = registry
+                .instrumentInput("filter", newCursor(1000));
+            ICursor<Integer, RuntimeException> cursor = new FilteringCursor<Integer, RuntimeException>(
+                input) {
+                @Override
+                protected boolean accept(Integer current) {
+                    return current % 4 == 0;
+                }
+            };
+            cursor = registry.instrument("filter", cursor);
+            int count = 0;
+            while (cursor.loadNext()) {
+                count++;
+            }
+            CursorMetrics metrics = registry.getMetrics("filter");
+            assertEquals(1, metrics.getActiveCount());
+            cursor.close();
+            assertEquals(250, count);
+            assertEquals(251, metrics.getLoadCount());
+            assertEquals(250, metrics.getEmittedCount());
+            assertEquals(1000, metrics.getConsumedCount());
+            assertEquals(0.25, metrics.getSelectivity(), 0.0001);
+            assertEquals(1, metrics.getOpenCount());
+            assertEquals(1, metrics.getCloseCount());
+            assertEquals(0, metrics.getActiveCount());
+            assertEquals(63, metrics.getSampledCount());
+            long total = 0;
+            for (long value : metrics.getLoadTimeHistogram()) {
+                total += value;
+            }
+            assertEquals(63, total);
+
+            ObjectName name = registry.getObjectName("filter");
+            assertTrue(server.isRegistered(name));
+            assertEquals(250L, server.getAttribute(name, "EmittedCount"));
+            server.invoke(name, "reset", new Object[0], new String[0]);
+            assertEquals(0, metrics.getEmittedCount());
+        } finally {
+            registry.unregister();
+        }
+        assertFalse(server.isRegistered(registry.getObjectName("filter")));
+    }
+
+    public void testForeignMBeans() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final List<String> errors = new ArrayList<String>();
+        CursorMetricsRegistry registry = new CursorMetricsRegistry(
+            server,
+            "test.foreign",
+            true) {
+            @Override
+            protected void onRegistrationError(String stage, JMException e) {
+                errors.add(stage);
+            }
+        };
+        ObjectName name = registry.getObjectName("stage");
+        CursorMetrics foreign = new CursorMetrics("stage", 1);
+        server.registerMBean(
+            new StandardMBean(foreign, ICursorMetrics.class),
+            name);
+        try {
+            CursorMetrics metrics = registry.getMetrics("stage");
+            assertTrue(metrics != foreign);
+            assertEquals(Arrays.asList("stage"), errors);
+            registry.unregister();
+            assertTrue(server.isRegistered(name));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    public void testProviderMetrics() throws Exception {
+        CursorMetricsRegistry registry = new CursorMetricsRegistry(
+            null,
+            CursorMetricsRegistry.DEFAULT_DOMAIN,
+            true);
+        ICursorProvider<Integer, RuntimeException, ICursor<Integer, RuntimeException>> provider = registry
+            .instrument(
+                "children",
+                new ICursorProvider<Integer, RuntimeException, ICursor<Integer, RuntimeException>>() {
+                    public ICursor<Integer, RuntimeException> getCursor(
+                        Integer parameter) {
+                        return newCursor(parameter);
+                    }
+                });
+        for (int i = 1; i <= 3; i++) {
+            ICursor<Integer, RuntimeException> cursor = provider.getCursor(i);
+            while (cursor.loadNext()) {
+            }
+            cursor.close();
+        }
+        CursorMetrics metrics = registry.getMetrics("children");
+        assertEquals(3, metrics.getOpenCount());
+        assertEquals(3, metrics.getCloseCount());
+        assertEquals(6, metrics.getEmittedCount());
+        assertEquals(9, metrics.getLoadCount());
+        assertEquals(-1.0, metrics.getSelectivity());
+    }
+
+}
@@ -0,0 +1,194 @@
+/**
+ * 
+ */
+package org.ubimix.commons.iterator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import junit.framework.TestCase;
+
+import org.ubimix.commons.cursor.DefaultComparator;
+import org.ubimix.commons.cursor.ICursor;
+import org.ubimix.commons.cursor.IteratorBasedCursor;
+import org.ubimix.commons.cursor.ListCursor;
+import org.ubimix.commons.cursor.ListSequentialCursor;
+import org.ubimix.commons.cursor.RangeCursor;
+
+/**
+ * @author kotelnikov
+ */
+public class CursorSpliteratorTest extends TestCase {
+
+    private static final int SIZE = 100000;
+
+    public CursorSpliteratorTest(String name) {
+        super(name);
+    }
+
+    private List<ICursor<Integer, RuntimeException>> newCursors(
+        final Set<Object> closed) {
+        List<ICursor<Integer, RuntimeException>> cursors = new ArrayList<ICursor<Integer, RuntimeException>>();
+        for (int i = 0; i < 10; i++) {
+            cursors.add(new IteratorBasedCursor<Integer, RuntimeException>(
+                newList(i * 1000, 1000)) {
+                @Override
+                public void close() {
+                    synchronized (closed) {
+                        closed.add(this);
+                    }
+                    super.close();
+                }
+            });
+        }
+        return cursors;
+    }
+
+    private List<Integer> newList(int first, int size) {
+        List<Integer> list = new ArrayList<Integer>();
+        for (int i = 0; i < size; i++) {
+            list.add(first + i);
+        }
+        return list;
+    }
+
+    private void test(
+        ICursor<Integer, RuntimeException> cursor,
+        List<Integer> control) {
+        List<Integer> result = CursorSpliterator
+            .stream(cursor, true)
+            .collect(Collectors.<Integer> toList());
+        assertEquals(control, result);
+    }
+
+    public void testCharacteristics() {
+        CursorSpliterator<Integer, RuntimeException> spliterator = new CursorSpliterator<Integer, RuntimeException>(
+            new ListCursor<Integer, RuntimeException>(newList(0, 10)),
+            DefaultComparator.<Integer> newComparator());
+        assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED));
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SORTED));
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED));
+        assertEquals(10, spliterator.estimateSize());
+        Spliterator<Integer> part = spliterator.trySplit();
+        assertEquals(5, part.estimateSize());
+        assertEquals(5, spliterator.estimateSize());
+        assertTrue(part.hasCharacteristics(Spliterator.SORTED));
+        assertNotNull(part.getComparator());
+
+        spliterator = new CursorSpliterator<Integer, RuntimeException>(
+            new IteratorBasedCursor<Integer, RuntimeException>(newList(0, 10)));
+        assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED));
+        assertFalse(spliterator.hasCharacteristics(Spliterator.SORTED));
+        assertFalse(spliterator.hasCharacteristics(Spliterator.SIZED));
+        part = spliterator.trySplit();
+        assertTrue(part.hasCharacteristics(Spliterator.SIZED));
+        assertEquals(10, part.estimateSize());
+        assertNull(spliterator.trySplit());
+        try {
+            spliterator.getComparator();
+            fail();
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    public void testClose() {
+        // Parts which are not exhausted are closed with the root spliterator
+        Set<Object> closed = new HashSet<Object>();
+        CursorSpliterator<Integer, RuntimeException> spliterator = new CursorSpliterator<Integer, RuntimeException>(
+            new ListSequentialCursor<Integer, RuntimeException>(
+                newCursors(closed)));
+        Spliterator<Integer> part = spliterator.trySplit();
+        Spliterator<Integer> subpart = part.trySplit();
+        Consumer<Integer> consumer = new Consumer<Integer>() {
+            public void accept(Integer t) {
+            }
+        };
+        assertTrue(subpart.tryAdvance(consumer));
+        assertTrue(part.tryAdvance(consumer));
+        assertTrue(spliterator.tryAdvance(consumer));
+        assertEquals(0, closed.size());
+        spliterator.close();
+        assertEquals(10, closed.size());
+
+        // Short-circuiting parallel streams close all parts
+        closed = new HashSet<Object>();
+        Stream<Integer> stream = CursorSpliterator.stream(
+            new ListSequentialCursor<Integer, RuntimeException>(
+                newCursors(closed)),
+            true);
+        assertTrue(stream.anyMatch(new Predicate<Integer>() {
+            public boolean test(Integer t) {
+                return t.intValue() == 5500;
+            }
+        }));
+        stream.close();
+        assertEquals(10, closed.size());
+    }
+
+    public void testListCursor() {
+        List<Integer> list = newList(0, SIZE);
+        test(new ListCursor<Integer, RuntimeException>(list), list);
+    }
+
+    public void testNotSplittableCursor() {
+        List<Integer> list = newList(0, SIZE);
+        test(new IteratorBasedCursor<Integer, RuntimeException>(list), list);
+    }
+
+    public void testRangeCursor() {
+        List<Integer> list = newList(0, SIZE);
+        RangeCursor<Integer, RuntimeException> cursor = new RangeCursor<Integer, RuntimeException>(
+            new ListCursor<Integer, RuntimeException>(list),
+            1000,
+            SIZE / 2);
+        RangeCursor<Integer, RuntimeException> part = (RangeCursor<Integer, RuntimeException>) cursor
+            .split();
+        assertEquals(0, part.getStartPos());
+        assertEquals(SIZE / 4, part.getCount());
+        assertTrue(part.loadNext());
+        assertEquals(1000, part.getCurrent().intValue());
+        assertTrue(cursor.loadNext());
+        assertEquals(1000 + SIZE / 4, cursor.getCurrent().intValue());
+        assertNull(cursor.split());
+
+        test(new RangeCursor<Integer, RuntimeException>(
+            new ListCursor<Integer, RuntimeException>(list),
+            1000,
+            SIZE / 2), list.subList(1000, 1000 + SIZE / 2));
+        test(new RangeCursor<Integer, RuntimeException>(
+            new ListCursor<Integer, RuntimeException>(list),
+            SIZE - 10,
+            SIZE), list.subList(SIZE - 10, SIZE));
+    }
+
+    public void testSequentialCursor() {
+        List<ICursor<Integer, RuntimeException>> cursors = new ArrayList<ICursor<Integer, RuntimeException>>();
+        List<Integer> control = new ArrayList<Integer>();
+        for (int i = 0; i < 10; i++) {
+            List<Integer> list = newList(i * 1000, 1000);
+            control.addAll(list);
+            cursors.add(i % 2 == 0
+                ? new ListCursor<Integer, RuntimeException>(list)
+                : new IteratorBasedCursor<Integer, RuntimeException>(list));
+        }
+        test(
+            new ListSequentialCursor<Integer, RuntimeException>(cursors),
+            control);
+
+        List<Integer> list = newList(0, SIZE);
+        test(
+            new ListSequentialCursor<Integer, RuntimeException>(Arrays
+                .<ICursor<Integer, RuntimeException>> asList(new ListCursor<Integer, RuntimeException>(
+                    list))),
+            list);
+    }
+
+}